@@ -17,12 +17,39 @@ package org.apache.ibatis.executor;
 
 import static org.apache.ibatis.executor.ExecutionPlaceholder.EXECUTION_PLACEHOLDER;
 
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
+import org.apache.ibatis.builder.StaticSqlSource;
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.cursor.Cursor;
@@ -36,9 +63,15 @@ import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
 import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.Reflector;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.LocalCacheScope;
+import org.apache.ibatis.session.ResultContext;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
@@ -51,6 +84,27 @@ public abstract class BaseExecutor implements Executor {
 
   private static final Log log = LogFactory.getLog(BaseExecutor.class);
 
+  /**
+   * Configuration variable holding maximum number of entries kept in local cache, 0 means unbounded.
+   */
+  public static final String LOCAL_CACHE_MAX_ENTRIES_PROPERTY = "localCache.maxEntries";
+  /**
+   * Configuration variable holding maximum estimated size of local cache in bytes, 0 means unbounded.
+   */
+  public static final String LOCAL_CACHE_MAX_BYTES_PROPERTY = "localCache.maxBytes";
+  /**
+   * Configuration variable holding local cache eviction policy, LRU (default) or LFU.
+   */
+  public static final String LOCAL_CACHE_EVICTION_PROPERTY = "localCache.eviction";
+  /**
+   * Configuration variable enabling soft references for local cache values.
+   */
+  public static final String LOCAL_CACHE_SOFT_REFERENCES_PROPERTY = "localCache.softReferences";
+  /**
+   * Configuration variable enabling per statement statistics, see {@link #getStatementStatistics(Configuration)}.
+   */
+  public static final String STATISTICS_PROPERTY = "executor.statistics";
+
   protected Transaction transaction;
   protected Executor wrapper;
 
@@ -62,14 +116,32 @@ public abstract class BaseExecutor implements Executor {
   protected int queryStack;
   private boolean closed;
 
+  private final List<PrefetchingCursor<?>> prefetchingCursors = new ArrayList<PrefetchingCursor<?>>();
+
+  // shared by all executors, extractors of a statement go away with it
+  private static final Map<MappedStatement, ConcurrentMap<Class<?>, CacheKeyExtractor>> cacheKeyExtractors =
+      Collections.synchronizedMap(new WeakHashMap<MappedStatement, ConcurrentMap<Class<?>, CacheKeyExtractor>>());
+
+  // shared by all executors of a configuration, so statistics outlive the sessions recording them
+  private static final Map<Configuration, ConcurrentMap<String, StatementRecorder>> statementRecorders =
+      Collections.synchronizedMap(new WeakHashMap<Configuration, ConcurrentMap<String, StatementRecorder>>());
+
+  private long localCacheHits;
+  private long localCacheMisses;
+
+  // null unless enabled, written by executor threads and read by anyone taking a snapshot
+  private final ConcurrentMap<String, StatementRecorder> recorders;
+
   protected BaseExecutor(Configuration configuration, Transaction transaction) {
     this.transaction = transaction;
     this.deferredLoads = new ConcurrentLinkedQueue<DeferredLoad>();
-    this.localCache = new PerpetualCache("LocalCache");
+    this.localCache = newLocalCache(configuration);
     this.localOutputParameterCache = new PerpetualCache("LocalOutputParameterCache");
     this.closed = false;
     this.configuration = configuration;
     this.wrapper = this;
+    this.recorders = Boolean.parseBoolean(variable(configuration, STATISTICS_PROPERTY))
+        ? recordersOf(configuration) : null;
   }
 
   @Override
@@ -114,7 +186,13 @@ public abstract class BaseExecutor implements Executor {
       throw new ExecutorException("Executor was closed.");
     }
     clearLocalCache();
-    return doUpdate(ms, parameter);
+    if (recorders == null) {
+      return doUpdate(ms, parameter);
+    }
+    long start = System.nanoTime();
+    int rows = doUpdate(ms, parameter);
+    recorder(ms).recordDatabaseCall(System.nanoTime() - start, rows);
+    return rows;
   }
 
   @Override
@@ -146,27 +224,50 @@ public abstract class BaseExecutor implements Executor {
     if (queryStack == 0 && ms.isFlushCacheRequired()) {
       clearLocalCache();
     }
+    if (queryStack == 0 && localCache instanceof LocalCache) {
+      // nested queries and deferred loads read values back, so they must survive GC until those are done
+      ((LocalCache) localCache).pin();
+    }
     List<E> list;
     try {
-      queryStack++;
-      list = resultHandler == null ? (List<E>) localCache.getObject(key) : null;
-      if (list != null) {
-        handleLocallyCachedOutputParameters(ms, key, parameter, boundSql);
-      } else {
-        list = queryFromDatabase(ms, parameter, rowBounds, resultHandler, key, boundSql);
+      try {
+        queryStack++;
+        list = resultHandler == null ? (List<E>) localCache.getObject(key) : null;
+        if (list != null) {
+          localCacheHits++;
+          if (recorders != null) {
+            recorder(ms).localCacheHits.incrementAndGet();
+          }
+          handleLocallyCachedOutputParameters(ms, key, parameter, boundSql);
+        } else {
+          localCacheMisses++;
+          if (recorders != null) {
+            recorder(ms).localCacheMisses.incrementAndGet();
+          }
+          list = queryFromDatabase(ms, parameter, rowBounds, resultHandler, key, boundSql);
+        }
+      } finally {
+        queryStack--;
       }
-    } finally {
-      queryStack--;
-    }
-    if (queryStack == 0) {
-      for (DeferredLoad deferredLoad : deferredLoads) {
-        deferredLoad.load();
+      if (queryStack == 0) {
+        for (DeferredLoad deferredLoad : deferredLoads) {
+          deferredLoad.load();
+        }
+        // issue #601
+        deferredLoads.clear();
+        if (configuration.getLocalCacheScope() == LocalCacheScope.STATEMENT) {
+          // issue #482
+          clearLocalCache();
+        }
       }
-      // issue #601
-      deferredLoads.clear();
-      if (configuration.getLocalCacheScope() == LocalCacheScope.STATEMENT) {
-        // issue #482
-        clearLocalCache();
+    } finally {
+      // runs on failure too, otherwise pinned entries would never be collectable again
+      if (queryStack == 0 && localCache instanceof LocalCache) {
+        ((LocalCache) localCache).release();
+        if (configuration.getLocalCacheScope() != LocalCacheScope.STATEMENT) {
+          // bounds are applied only here, nested queries and deferred loads rely on entries staying in place
+          ((LocalCache) localCache).evict();
+        }
       }
     }
     return list;
@@ -178,11 +279,52 @@ public abstract class BaseExecutor implements Executor {
     return doQueryCursor(ms, parameter, rowBounds, boundSql);
   }
 
+  /**
+   * Same as {@link #queryCursor(MappedStatement, Object, RowBounds)}, but rows are fetched and mapped ahead
+   * by a separate thread into a buffer holding at most <code>bufferSize</code> objects, which blocks the
+   * fetching thread until the caller catches up. Like any cursor, the local cache is never involved.
+   * The connection is used by the fetching thread until the cursor is consumed or closed, so the session
+   * must not run other statements meanwhile. Open cursors are closed on commit, rollback and close.
+   * <p>
+   * This method is not part of {@link Executor}, so it is only reachable on an unwrapped executor:
+   * neither {@code CachingExecutor} nor {@code SqlSession} delegate to it, and plugins wrapping the
+   * executor hide it as well.
+   */
+  public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds, int bufferSize) throws SQLException {
+    if (closed) {
+      throw new ExecutorException("Executor was closed.");
+    }
+    if (bufferSize <= 0) {
+      throw new ExecutorException("Cursor buffer size must be positive but was " + bufferSize);
+    }
+    Cursor<E> cursor = queryCursor(ms, parameter, rowBounds);
+    PrefetchingCursor<E> prefetchingCursor = new PrefetchingCursor<E>(cursor, bufferSize, ms.getId());
+    Iterator<PrefetchingCursor<?>> iterator = prefetchingCursors.iterator();
+    while (iterator.hasNext()) {
+      if (!iterator.next().isOpen()) {
+        iterator.remove();
+      }
+    }
+    prefetchingCursors.add(prefetchingCursor);
+    return prefetchingCursor;
+  }
+
+  // fetchers share the connection, so they must be stopped before it is committed, rolled back or closed
+  private void closePrefetchingCursors() {
+    for (PrefetchingCursor<?> cursor : prefetchingCursors) {
+      cursor.close();
+    }
+    prefetchingCursors.clear();
+  }
+
   @Override
   public void deferLoad(MappedStatement ms, MetaObject resultObject, String property, CacheKey key, Class<?> targetType) {
     if (closed) {
       throw new ExecutorException("Executor was closed.");
     }
+    if (recorders != null) {
+      recorder(ms).deferredLoads.incrementAndGet();
+    }
     DeferredLoad deferredLoad = new DeferredLoad(resultObject, property, key, localCache, configuration, targetType);
     if (deferredLoad.canLoad()) {
       deferredLoad.load();
@@ -202,23 +344,28 @@ public abstract class BaseExecutor implements Executor {
     cacheKey.update(rowBounds.getLimit());
     cacheKey.update(boundSql.getSql());
     List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
-    TypeHandlerRegistry typeHandlerRegistry = ms.getConfiguration().getTypeHandlerRegistry();
-    // mimic DefaultParameterHandler logic
-    for (ParameterMapping parameterMapping : parameterMappings) {
-      if (parameterMapping.getMode() != ParameterMode.OUT) {
-        Object value;
-        String propertyName = parameterMapping.getProperty();
-        if (boundSql.hasAdditionalParameter(propertyName)) {
-          value = boundSql.getAdditionalParameter(propertyName);
-        } else if (parameterObject == null) {
-          value = null;
-        } else if (typeHandlerRegistry.hasTypeHandler(parameterObject.getClass())) {
-          value = parameterObject;
-        } else {
-          MetaObject metaObject = configuration.newMetaObject(parameterObject);
-          value = metaObject.getValue(propertyName);
+    CacheKeyExtractor extractor = parameterObject == null ? null : cacheKeyExtractor(ms, parameterObject.getClass(), parameterMappings);
+    if (extractor != null) {
+      extractor.extract(cacheKey, configuration, parameterObject, boundSql);
+    } else {
+      TypeHandlerRegistry typeHandlerRegistry = ms.getConfiguration().getTypeHandlerRegistry();
+      // mimic DefaultParameterHandler logic
+      for (ParameterMapping parameterMapping : parameterMappings) {
+        if (parameterMapping.getMode() != ParameterMode.OUT) {
+          Object value;
+          String propertyName = parameterMapping.getProperty();
+          if (boundSql.hasAdditionalParameter(propertyName)) {
+            value = boundSql.getAdditionalParameter(propertyName);
+          } else if (parameterObject == null) {
+            value = null;
+          } else if (typeHandlerRegistry.hasTypeHandler(parameterObject.getClass())) {
+            value = parameterObject;
+          } else {
+            MetaObject metaObject = configuration.newMetaObject(parameterObject);
+            value = metaObject.getValue(propertyName);
+          }
+          cacheKey.update(value);
         }
-        cacheKey.update(value);
       }
     }
     if (configuration.getEnvironment() != null) {
@@ -228,6 +375,31 @@ public abstract class BaseExecutor implements Executor {
     return cacheKey;
   }
 
+  /**
+   * Returns extractor compiled for given statement and parameter type, or null if parameter mappings
+   * are generated for every call (dynamic SQL) or parameter objects are wrapped by a custom ObjectWrapperFactory.
+   */
+  private CacheKeyExtractor cacheKeyExtractor(MappedStatement ms, Class<?> parameterType, List<ParameterMapping> parameterMappings) {
+    if (!(ms.getSqlSource() instanceof RawSqlSource) && !(ms.getSqlSource() instanceof StaticSqlSource)) {
+      return null;
+    }
+    if (!(configuration.getObjectWrapperFactory() instanceof DefaultObjectWrapperFactory)) {
+      return null;
+    }
+    ConcurrentMap<Class<?>, CacheKeyExtractor> extractors = cacheKeyExtractors.get(ms);
+    if (extractors == null) {
+      extractors = new ConcurrentHashMap<Class<?>, CacheKeyExtractor>();
+      cacheKeyExtractors.put(ms, extractors);
+    }
+    CacheKeyExtractor extractor = extractors.get(parameterType);
+    if (extractor == null) {
+      extractor = CacheKeyExtractor.compile(ms, configuration, parameterType, parameterMappings);
+      extractors.put(parameterType, extractor);
+    }
+    // static SQL hands out the same mappings on every call, anything else is not what the extractor was compiled for
+    return extractor.matches(parameterMappings) ? extractor : null;
+  }
+
   @Override
   public boolean isCached(MappedStatement ms, CacheKey key) {
     return localCache.getObject(key) != null;
@@ -238,6 +410,7 @@ public abstract class BaseExecutor implements Executor {
     if (closed) {
       throw new ExecutorException("Cannot commit, transaction is already closed");
     }
+    closePrefetchingCursors();
     clearLocalCache();
     flushStatements();
     if (required) {
@@ -249,6 +422,7 @@ public abstract class BaseExecutor implements Executor {
   public void rollback(boolean required) throws SQLException {
     if (!closed) {
       try {
+        closePrefetchingCursors();
         clearLocalCache();
         flushStatements(true);
       } finally {
@@ -267,6 +441,74 @@ public abstract class BaseExecutor implements Executor {
     }
   }
 
+  public long getLocalCacheHits() {
+    return localCacheHits;
+  }
+
+  public long getLocalCacheMisses() {
+    return localCacheMisses;
+  }
+
+  public long getLocalCacheEvictions() {
+    return localCache instanceof LocalCache ? ((LocalCache) localCache).getEvictions() : 0;
+  }
+
+  public double getLocalCacheHitRate() {
+    long requests = localCacheHits + localCacheMisses;
+    return requests == 0 ? 0 : (double) localCacheHits / requests;
+  }
+
+  /**
+   * Returns statistics recorded so far by all executors of this executor's configuration.
+   *
+   * @see #getStatementStatistics(Configuration)
+   */
+  public Map<String, StatementStatistics> getStatementStatistics() {
+    return snapshot(recorders);
+  }
+
+  /**
+   * Returns statistics recorded so far by all executors of the configuration keyed by statement id,
+   * or an empty map unless {@value #STATISTICS_PROPERTY} is enabled. Statistics are kept after
+   * sessions are closed and go away with the configuration. Safe to call from any thread.
+   */
+  public static Map<String, StatementStatistics> getStatementStatistics(Configuration configuration) {
+    return snapshot(statementRecorders.get(configuration));
+  }
+
+  private static Map<String, StatementStatistics> snapshot(Map<String, StatementRecorder> recorders) {
+    Map<String, StatementStatistics> snapshot = new HashMap<String, StatementStatistics>();
+    if (recorders != null) {
+      for (Map.Entry<String, StatementRecorder> entry : recorders.entrySet()) {
+        snapshot.put(entry.getKey(), entry.getValue().snapshot(entry.getKey()));
+      }
+    }
+    return snapshot;
+  }
+
+  private static ConcurrentMap<String, StatementRecorder> recordersOf(Configuration configuration) {
+    synchronized (statementRecorders) {
+      ConcurrentMap<String, StatementRecorder> recorders = statementRecorders.get(configuration);
+      if (recorders == null) {
+        recorders = new ConcurrentHashMap<String, StatementRecorder>();
+        statementRecorders.put(configuration, recorders);
+      }
+      return recorders;
+    }
+  }
+
+  private StatementRecorder recorder(MappedStatement ms) {
+    StatementRecorder recorder = recorders.get(ms.getId());
+    if (recorder == null) {
+      recorder = new StatementRecorder();
+      StatementRecorder existing = recorders.putIfAbsent(ms.getId(), recorder);
+      if (existing != null) {
+        recorder = existing;
+      }
+    }
+    return recorder;
+  }
+
   protected abstract int doUpdate(MappedStatement ms, Object parameter)
       throws SQLException;
 
@@ -279,8 +521,16 @@ public abstract class BaseExecutor implements Executor {
   protected abstract <E> Cursor<E> doQueryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds, BoundSql boundSql)
       throws SQLException;
 
+  /**
+   * Called before a statement is closed, subclasses may take it over to use it again later.
+   * @return true if the statement must be left open
+   */
+  protected boolean releaseStatement(Statement statement) {
+    return false;
+  }
+
   protected void closeStatement(Statement statement) {
-    if (statement != null) {
+    if (statement != null && !releaseStatement(statement)) {
       try {
         if (!statement.isClosed()) {
           statement.close();
@@ -322,11 +572,17 @@ public abstract class BaseExecutor implements Executor {
   private <E> List<E> queryFromDatabase(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, CacheKey key, BoundSql boundSql) throws SQLException {
     List<E> list;
     localCache.putObject(key, EXECUTION_PLACEHOLDER);
+    long start = recorders == null ? 0 : System.nanoTime();
+    CountingResultHandler counter = recorders != null && resultHandler != null
+        ? new CountingResultHandler(resultHandler) : null;
     try {
-      list = doQuery(ms, parameter, rowBounds, resultHandler, boundSql);
+      list = doQuery(ms, parameter, rowBounds, counter == null ? resultHandler : counter, boundSql);
     } finally {
       localCache.removeObject(key);
     }
+    if (recorders != null) {
+      recorder(ms).recordDatabaseCall(System.nanoTime() - start, counter == null ? list.size() : counter.count);
+    }
     localCache.putObject(key, list);
     if (ms.getStatementType() == StatementType.CALLABLE) {
       localOutputParameterCache.putObject(key, parameter);
@@ -347,7 +603,817 @@ public abstract class BaseExecutor implements Executor {
   public void setExecutorWrapper(Executor wrapper) {
     this.wrapper = wrapper;
   }
+
+  private static PerpetualCache newLocalCache(Configuration configuration) {
+    int maxEntries = (int) longVariable(configuration, LOCAL_CACHE_MAX_ENTRIES_PROPERTY, 0);
+    long maxBytes = longVariable(configuration, LOCAL_CACHE_MAX_BYTES_PROPERTY, 0);
+    boolean softReferences = Boolean.parseBoolean(variable(configuration, LOCAL_CACHE_SOFT_REFERENCES_PROPERTY));
+    if (maxEntries <= 0 && maxBytes <= 0 && !softReferences) {
+      return new PerpetualCache("LocalCache");
+    }
+    String eviction = variable(configuration, LOCAL_CACHE_EVICTION_PROPERTY);
+    boolean lfu = "LFU".equalsIgnoreCase(eviction);
+    if (eviction != null && !lfu && !"LRU".equalsIgnoreCase(eviction)) {
+      throw new ExecutorException("Unknown local cache eviction policy: " + eviction);
+    }
+    return new LocalCache("LocalCache", maxEntries, maxBytes, lfu, softReferences);
+  }
+
+  protected static String variable(Configuration configuration, String name) {
+    Properties variables = configuration == null ? null : configuration.getVariables();
+    return variables == null ? null : variables.getProperty(name);
+  }
+
+  protected static long longVariable(Configuration configuration, String name, long defaultValue) {
+    String value = variable(configuration, name);
+    return value == null ? defaultValue : Long.parseLong(value.trim());
+  }
   
+  /**
+   * Local cache bounded by number of entries and/or estimated size, with LRU or LFU eviction and optional soft references.
+   * Eviction only happens on {@link #evict()}, which the executor calls when the outermost query completes,
+   * and execution placeholders are never evicted. Values put or read between {@link #pin()} and {@link #release()}
+   * are held strongly even with soft references.
+   */
+  protected static class LocalCache extends PerpetualCache {
+
+    private static final Map<Class<?>, Field[]> FIELDS = new ConcurrentHashMap<Class<?>, Field[]>();
+    private static final int SAMPLE_SIZE = 16;
+    private static final int MAX_DEPTH = 3;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final boolean lfu;
+    private final boolean softReferences;
+    private final Map<Object, Entry> entries;
+    // LFU only, keys by access count, least used first and oldest first within the same count
+    private final TreeMap<Long, Set<Object>> frequencies = new TreeMap<Long, Set<Object>>();
+    private final List<Entry> pinnedEntries = new ArrayList<Entry>();
+    private boolean pinned;
+    private long bytes;
+    private long evictions;
+
+    public LocalCache(String id, int maxEntries, long maxBytes, boolean lfu, boolean softReferences) {
+      super(id);
+      this.maxEntries = maxEntries;
+      this.maxBytes = maxBytes;
+      this.lfu = lfu;
+      this.softReferences = softReferences;
+      this.entries = new LinkedHashMap<Object, Entry>(16, 0.75f, !lfu);
+    }
+
+    @Override
+    public int getSize() {
+      return entries.size();
+    }
+
+    @Override
+    public void putObject(Object key, Object value) {
+      removeObject(key);
+      Entry entry = new Entry(value, softReferences && value != EXECUTION_PLACEHOLDER);
+      if (maxBytes > 0 && value != EXECUTION_PLACEHOLDER) {
+        entry.bytes = estimateSize(value, MAX_DEPTH);
+        bytes += entry.bytes;
+      }
+      entries.put(key, entry);
+      if (lfu) {
+        frequency(entry.frequency).add(key);
+      }
+      pin(entry, value);
+    }
+
+    @Override
+    public Object getObject(Object key) {
+      Entry entry = entries.get(key);
+      if (entry == null) {
+        return null;
+      }
+      Object value = entry.get();
+      if (value == null) {
+        // collected by GC
+        remove(key, entry);
+        evictions++;
+        return null;
+      }
+      if (lfu) {
+        unfrequency(entry.frequency, key);
+        frequency(entry.frequency + 1).add(key);
+      }
+      entry.frequency++;
+      pin(entry, value);
+      return value;
+    }
+
+    @Override
+    public Object removeObject(Object key) {
+      Entry entry = entries.get(key);
+      if (entry == null) {
+        return null;
+      }
+      remove(key, entry);
+      return entry.get();
+    }
+
+    @Override
+    public void clear() {
+      entries.clear();
+      frequencies.clear();
+      pinnedEntries.clear();
+      bytes = 0;
+    }
+
+    /**
+     * Holds values put or read from now on strongly, until {@link #release()}.
+     */
+    public void pin() {
+      pinned = true;
+    }
+
+    /**
+     * Lets values held by {@link #pin()} be collected again.
+     */
+    public void release() {
+      for (Entry entry : pinnedEntries) {
+        entry.strong = null;
+      }
+      pinnedEntries.clear();
+      pinned = false;
+    }
+
+    public long getEvictions() {
+      return evictions;
+    }
+
+    public long getEstimatedBytes() {
+      return bytes;
+    }
+
+    /**
+     * Evicts entries until cache fits its bounds.
+     */
+    public void evict() {
+      while ((maxEntries > 0 && entries.size() > maxEntries) || (maxBytes > 0 && bytes > maxBytes)) {
+        Object victim = lfu ? leastFrequentlyUsed() : leastRecentlyUsed();
+        if (victim == null) {
+          return;
+        }
+        remove(victim, entries.get(victim));
+        evictions++;
+      }
+    }
+
+    private Object leastRecentlyUsed() {
+      // access order, so the least recently used entry comes first
+      for (Map.Entry<Object, Entry> candidate : entries.entrySet()) {
+        if (candidate.getValue().value != EXECUTION_PLACEHOLDER) {
+          return candidate.getKey();
+        }
+      }
+      return null;
+    }
+
+    private Object leastFrequentlyUsed() {
+      // only placeholders of running queries are skipped
+      for (Set<Object> keys : frequencies.values()) {
+        for (Object key : keys) {
+          if (entries.get(key).value != EXECUTION_PLACEHOLDER) {
+            return key;
+          }
+        }
+      }
+      return null;
+    }
+
+    private Set<Object> frequency(long frequency) {
+      Set<Object> keys = frequencies.get(frequency);
+      if (keys == null) {
+        keys = new LinkedHashSet<Object>();
+        frequencies.put(frequency, keys);
+      }
+      return keys;
+    }
+
+    private void unfrequency(long frequency, Object key) {
+      Set<Object> keys = frequencies.get(frequency);
+      if (keys != null && keys.remove(key) && keys.isEmpty()) {
+        frequencies.remove(frequency);
+      }
+    }
+
+    private void pin(Entry entry, Object value) {
+      if (pinned && entry.soft && entry.strong == null) {
+        entry.strong = value;
+        pinnedEntries.add(entry);
+      }
+    }
+
+    private void remove(Object key, Entry entry) {
+      entries.remove(key);
+      if (lfu) {
+        unfrequency(entry.frequency, key);
+      }
+      bytes -= entry.bytes;
+    }
+
+    /**
+     * Rough estimation of value's heap footprint. Large collections are sampled.
+     */
+    static long estimateSize(Object value, int depth) {
+      if (value == null) {
+        return 0;
+      }
+      if (value instanceof String) {
+        return 40 + 2L * ((String) value).length();
+      }
+      if (value instanceof Number || value instanceof Boolean || value instanceof Character || value instanceof Date) {
+        return 24;
+      }
+      Class<?> type = value.getClass();
+      if (type.isArray()) {
+        int length = Array.getLength(value);
+        if (type.getComponentType().isPrimitive()) {
+          return 16 + 8L * length;
+        }
+        List<Object> elements = new ArrayList<Object>();
+        for (int i = 0; i < length && i < SAMPLE_SIZE; i++) {
+          elements.add(Array.get(value, i));
+        }
+        return 16 + 8L * length + sampled(elements, length, depth);
+      }
+      if (value instanceof Collection) {
+        Collection<?> collection = (Collection<?>) value;
+        List<Object> elements = new ArrayList<Object>();
+        Iterator<?> iterator = collection.iterator();
+        while (iterator.hasNext() && elements.size() < SAMPLE_SIZE) {
+          elements.add(iterator.next());
+        }
+        return 32 + 8L * collection.size() + sampled(elements, collection.size(), depth);
+      }
+      if (value instanceof Map) {
+        Map<?, ?> map = (Map<?, ?>) value;
+        List<Object> elements = new ArrayList<Object>();
+        Iterator<? extends Map.Entry<?, ?>> iterator = map.entrySet().iterator();
+        while (iterator.hasNext() && elements.size() < SAMPLE_SIZE * 2) {
+          Map.Entry<?, ?> entry = iterator.next();
+          elements.add(entry.getKey());
+          elements.add(entry.getValue());
+        }
+        return 48 + 32L * map.size() + sampled(elements, map.size() * 2, depth);
+      }
+      long size = 16;
+      for (Field field : fieldsOf(type)) {
+        size += 8;
+        if (depth > 0 && !field.getType().isPrimitive()) {
+          try {
+            size += estimateSize(field.get(value), depth - 1);
+          } catch (IllegalAccessException e) {
+            // ignore, reference size is already accounted
+          }
+        }
+      }
+      return size;
+    }
+
+    private static long sampled(List<Object> elements, int total, int depth) {
+      if (depth <= 0 || elements.isEmpty()) {
+        return 0;
+      }
+      long size = 0;
+      for (Object element : elements) {
+        size += estimateSize(element, depth - 1);
+      }
+      return size * total / elements.size();
+    }
+
+    private static Field[] fieldsOf(Class<?> type) {
+      Field[] fields = FIELDS.get(type);
+      if (fields == null) {
+        List<Field> list = new ArrayList<Field>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+          for (Field field : current.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+              try {
+                field.setAccessible(true);
+                list.add(field);
+              } catch (RuntimeException e) {
+                // not accessible, e.g. SecurityException or InaccessibleObjectException of JDK internals, skip it
+              }
+            }
+          }
+        }
+        fields = list.toArray(new Field[list.size()]);
+        FIELDS.put(type, fields);
+      }
+      return fields;
+    }
+
+    private static class Entry {
+
+      private final Object value;
+      private final boolean soft;
+      // set while pinned
+      private Object strong;
+      private long bytes;
+      private long frequency;
+
+      Entry(Object value, boolean soft) {
+        this.value = soft ? new SoftReference<Object>(value) : value;
+        this.soft = soft;
+      }
+
+      Object get() {
+        if (strong != null) {
+          return strong;
+        }
+        return soft ? ((SoftReference<?>) value).get() : value;
+      }
+
+    }
+
+  }
+
+  /**
+   * Reads cache key components of one statement for one parameter type, without building a MetaObject per call.
+   */
+  private static class CacheKeyExtractor {
+
+    private static final int SELF = 0;
+    private static final int MAP = 1;
+    private static final int GETTER = 2;
+    private static final int META_OBJECT = 3;
+
+    private static final Object[] NO_ARGUMENTS = new Object[0];
+
+    // must not reference the statement, it is the weak key extractors are stored under
+    private final List<ParameterMapping> parameterMappings;
+    private final String[] properties;
+    private final int[] readers;
+    // getters come from the reflector of statement's configuration, which holds them as long as the statement lives
+    private final Invoker[] getters;
+
+    private CacheKeyExtractor(List<ParameterMapping> parameterMappings, String[] properties, int[] readers, Invoker[] getters) {
+      this.parameterMappings = parameterMappings;
+      this.properties = properties;
+      this.readers = readers;
+      this.getters = getters;
+    }
+
+    static CacheKeyExtractor compile(MappedStatement ms, Configuration configuration, Class<?> parameterType,
+        List<ParameterMapping> parameterMappings) {
+      boolean self = ms.getConfiguration().getTypeHandlerRegistry().hasTypeHandler(parameterType);
+      boolean map = Map.class.isAssignableFrom(parameterType);
+      boolean bean = !self && !map && !Collection.class.isAssignableFrom(parameterType) && !parameterType.isArray();
+      Reflector reflector = bean ? configuration.getReflectorFactory().findForClass(parameterType) : null;
+
+      List<String> properties = new ArrayList<String>();
+      List<Integer> readers = new ArrayList<Integer>();
+      List<Invoker> getters = new ArrayList<Invoker>();
+      for (ParameterMapping parameterMapping : parameterMappings) {
+        if (parameterMapping.getMode() != ParameterMode.OUT) {
+          String property = parameterMapping.getProperty();
+          boolean simple = property.indexOf('.') < 0 && property.indexOf('[') < 0;
+          Invoker getter = null;
+          int reader;
+          if (self) {
+            reader = SELF;
+          } else if (map && simple) {
+            reader = MAP;
+          } else if (reflector != null && simple && reflector.hasGetter(property)) {
+            reader = GETTER;
+            getter = reflector.getGetInvoker(property);
+          } else {
+            reader = META_OBJECT;
+          }
+          properties.add(property);
+          readers.add(reader);
+          getters.add(getter);
+        }
+      }
+
+      int[] readerArray = new int[readers.size()];
+      for (int i = 0; i < readerArray.length; i++) {
+        readerArray[i] = readers.get(i);
+      }
+      return new CacheKeyExtractor(parameterMappings, properties.toArray(new String[properties.size()]), readerArray,
+          getters.toArray(new Invoker[getters.size()]));
+    }
+
+    boolean matches(List<ParameterMapping> mappings) {
+      return parameterMappings == mappings;
+    }
+
+    void extract(CacheKey cacheKey, Configuration configuration, Object parameterObject, BoundSql boundSql) {
+      for (int i = 0; i < properties.length; i++) {
+        String property = properties[i];
+        Object value;
+        if (boundSql.hasAdditionalParameter(property)) {
+          value = boundSql.getAdditionalParameter(property);
+        } else {
+          switch (readers[i]) {
+            case SELF:
+              value = parameterObject;
+              break;
+            case MAP:
+              value = ((Map<?, ?>) parameterObject).get(property);
+              break;
+            case GETTER:
+              value = get(getters[i], property, parameterObject);
+              break;
+            default:
+              value = configuration.newMetaObject(parameterObject).getValue(property);
+          }
+        }
+        cacheKey.update(value);
+      }
+    }
+
+    private static Object get(Invoker getter, String property, Object parameterObject) {
+      try {
+        return getter.invoke(parameterObject, NO_ARGUMENTS);
+      } catch (Throwable t) {
+        throw new ReflectionException("Could not get property '" + property + "' from " + parameterObject.getClass() + ".  Cause: " + t.toString(), t);
+      }
+    }
+
+  }
+
+  /**
+   * Lock-free counters and histograms of one statement.
+   */
+  private static class StatementRecorder {
+
+    private final AtomicLong localCacheHits = new AtomicLong();
+    private final AtomicLong localCacheMisses = new AtomicLong();
+    private final AtomicLong deferredLoads = new AtomicLong();
+    private final Histogram databaseTime = new Histogram();
+    private final Histogram rows = new Histogram();
+
+    void recordDatabaseCall(long nanos, int rowCount) {
+      databaseTime.record(nanos);
+      // batch executor reports BATCH_UPDATE_RETURN_VALUE until statements are flushed
+      if (rowCount >= 0) {
+        rows.record(rowCount);
+      }
+    }
+
+    StatementStatistics snapshot(String id) {
+      return new StatementStatistics(id, localCacheHits.get(), localCacheMisses.get(), deferredLoads.get(),
+          databaseTime.snapshot(), rows.snapshot());
+    }
+  }
+
+  /**
+   * Counts rows passed to a caller supplied handler, doQuery returns an empty list for those.
+   */
+  private static class CountingResultHandler implements ResultHandler<Object> {
+
+    private final ResultHandler<Object> delegate;
+    private int count;
+
+    @SuppressWarnings("unchecked")
+    CountingResultHandler(ResultHandler delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void handleResult(ResultContext<? extends Object> context) {
+      count++;
+      delegate.handleResult(context);
+    }
+  }
+
+  /**
+   * Statistics of one statement as seen at the time of {@link BaseExecutor#getStatementStatistics(Configuration)}.
+   */
+  public static class StatementStatistics {
+
+    private final String id;
+    private final long localCacheHits;
+    private final long localCacheMisses;
+    private final long deferredLoads;
+    private final HistogramSnapshot databaseTime;
+    private final HistogramSnapshot rows;
+
+    StatementStatistics(String id, long localCacheHits, long localCacheMisses, long deferredLoads,
+        HistogramSnapshot databaseTime, HistogramSnapshot rows) {
+      this.id = id;
+      this.localCacheHits = localCacheHits;
+      this.localCacheMisses = localCacheMisses;
+      this.deferredLoads = deferredLoads;
+      this.databaseTime = databaseTime;
+      this.rows = rows;
+    }
+
+    public String getId() {
+      return id;
+    }
+
+    public long getLocalCacheHits() {
+      return localCacheHits;
+    }
+
+    public long getLocalCacheMisses() {
+      return localCacheMisses;
+    }
+
+    public long getDeferredLoads() {
+      return deferredLoads;
+    }
+
+    /**
+     * Time spent in database calls, in nanoseconds.
+     */
+    public HistogramSnapshot getDatabaseTime() {
+      return databaseTime;
+    }
+
+    public HistogramSnapshot getRows() {
+      return rows;
+    }
+
+    @Override
+    public String toString() {
+      return id + " {hits=" + localCacheHits + ", misses=" + localCacheMisses + ", deferredLoads=" + deferredLoads
+          + ", databaseTime=" + databaseTime + ", rows=" + rows + "}";
+    }
+  }
+
+  /**
+   * Log-linear histogram of non negative values: 8 linear sub-buckets per power of two, so recorded values
+   * are reported with at most 12.5% error. Recording is a single atomic increment per counter.
+   */
+  static class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long value) {
+      if (value < 0) {
+        value = 0;
+      }
+      counts.incrementAndGet(index(value));
+      total.addAndGet(value);
+      long current = max.get();
+      while (value > current && !max.compareAndSet(current, value)) {
+        current = max.get();
+      }
+    }
+
+    HistogramSnapshot snapshot() {
+      long[] copy = new long[BUCKETS];
+      long count = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        copy[i] = counts.get(i);
+        count += copy[i];
+      }
+      return new HistogramSnapshot(copy, count, total.get(), max.get());
+    }
+
+    static int index(long value) {
+      if (value < SUB_BUCKETS) {
+        return (int) value;
+      }
+      int exponent = 63 - Long.numberOfLeadingZeros(value);
+      int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+      return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long highestValue(int index) {
+      if (index < SUB_BUCKETS) {
+        return index;
+      }
+      int shift = index / SUB_BUCKETS - 1;
+      long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+      return lowest + (1L << shift) - 1;
+    }
+  }
+
+  /**
+   * Immutable copy of a {@link Histogram}. Buckets are copied one by one while recording goes on,
+   * so the count may be slightly ahead of the total.
+   */
+  public static class HistogramSnapshot {
+
+    private final long[] counts;
+    private final long count;
+    private final long total;
+    private final long max;
+
+    HistogramSnapshot(long[] counts, long count, long total, long max) {
+      this.counts = counts;
+      this.count = count;
+      this.total = total;
+      this.max = max;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getTotal() {
+      return total;
+    }
+
+    public long getMax() {
+      return max;
+    }
+
+    public double getMean() {
+      return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * Returns the highest value of the bucket holding given percentile (0-100), capped by the maximum recorded value.
+     */
+    public long getValueAtPercentile(double percentile) {
+      long target = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= target) {
+          return Math.min(Histogram.highestValue(i), max);
+        }
+      }
+      return count == 0 ? 0 : max;
+    }
+
+    @Override
+    public String toString() {
+      return "{count=" + count + ", mean=" + getMean() + ", p50=" + getValueAtPercentile(50)
+          + ", p99=" + getValueAtPercentile(99) + ", max=" + max + "}";
+    }
+  }
+
+  /**
+   * Cursor fed by a thread iterating the underlying cursor into a bounded buffer.
+   * The underlying cursor is only closed once that thread has stopped.
+   */
+  protected static class PrefetchingCursor<T> implements Cursor<T> {
+
+    private static final Object NULL = new Object();
+    private static final Object END = new Object();
+    private static final long OFFER_TIMEOUT = 100;
+
+    private final Cursor<T> delegate;
+    private final BlockingQueue<Object> buffer;
+    private final String name;
+    private final int startIndex;
+    private Thread fetcher;
+    private volatile boolean closed;
+    private volatile Throwable failure;
+    private boolean consumed;
+    private int fetched;
+
+    public PrefetchingCursor(Cursor<T> delegate, int bufferSize, String name) {
+      this.delegate = delegate;
+      this.buffer = new ArrayBlockingQueue<Object>(bufferSize);
+      this.name = name;
+      this.startIndex = delegate.getCurrentIndex();
+    }
+
+    @Override
+    public boolean isOpen() {
+      return !closed && !consumed;
+    }
+
+    @Override
+    public boolean isConsumed() {
+      return consumed;
+    }
+
+    @Override
+    public int getCurrentIndex() {
+      return startIndex + fetched;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+      if (fetcher != null) {
+        throw new IllegalStateException("Cannot open more than one iterator on a Cursor");
+      }
+      if (closed) {
+        throw new IllegalStateException("A Cursor is already closed.");
+      }
+      fetcher = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          fetch();
+        }
+      }, "Cursor fetcher [" + name + "]");
+      fetcher.setDaemon(true);
+      fetcher.start();
+      return new Iterator<T>() {
+        private Object next;
+
+        @Override
+        public boolean hasNext() {
+          if (next == null) {
+            next = take();
+          }
+          return next != END;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public T next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          Object object = next;
+          next = null;
+          fetched++;
+          return object == NULL ? null : (T) object;
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException("Cannot remove element from Cursor");
+        }
+      };
+    }
+
+    @Override
+    public void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      try {
+        if (fetcher != null) {
+          // makes room for a fetcher waiting on a full buffer. It is not interrupted, as some drivers
+          // close the connection when interrupted in the middle of I/O
+          buffer.clear();
+          fetcher.join();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        buffer.clear();
+        // releases a consumer blocked on another thread
+        buffer.offer(END);
+        try {
+          delegate.close();
+        } catch (IOException e) {
+          // ignore, same as a consumed DefaultCursor
+        }
+      }
+    }
+
+    private void fetch() {
+      try {
+        for (T object : delegate) {
+          if (!offer(object == null ? NULL : object)) {
+            return;
+          }
+        }
+      } catch (Throwable t) {
+        failure = t;
+      }
+      offer(END);
+    }
+
+    /**
+     * Waits for room in the buffer, checking for close in between. Returns false if closed.
+     */
+    private boolean offer(Object object) {
+      try {
+        while (!closed) {
+          if (buffer.offer(object, OFFER_TIMEOUT, TimeUnit.MILLISECONDS)) {
+            return true;
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return false;
+    }
+
+    private Object take() {
+      if (closed || consumed) {
+        return END;
+      }
+      Object object;
+      try {
+        object = buffer.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new ExecutorException("Interrupted while waiting for cursor rows.", e);
+      }
+      if (object == END) {
+        consumed = true;
+        if (failure != null) {
+          throw new ExecutorException("Error fetching cursor rows.  Cause: " + failure, failure);
+        }
+      }
+      return object;
+    }
+  }
+
   private static class DeferredLoad {
 
     private final MetaObject resultObject;
@@ -16,32 +16,47 @@
 package org.apache.ibatis.executor;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javassist.util.proxy.Proxy;
 
 import javax.sql.DataSource;
 
 import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.domain.blog.Author;
 import org.apache.ibatis.domain.blog.Blog;
 import org.apache.ibatis.domain.blog.Post;
 import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
 import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+import org.junit.After;
 import org.junit.BeforeClass;
+import org.junit.Ignore;
 import org.junit.Test;
 
 public class BaseExecutorTest extends BaseDataTest {
+  private static final Log log = LogFactory.getLog(BaseExecutorTest.class);
+
   protected final Configuration config;
   protected static DataSource ds;
 
@@ -50,6 +65,9 @@ public class BaseExecutorTest extends BaseDataTest {
     ds = createBlogDataSource();
   }
 
+  // executors created by createBaseExecutor(), closed after each test
+  private final List<Executor> executors = new ArrayList<Executor>();
+
   public BaseExecutorTest() {
     config = new Configuration();
     config.setLazyLoadingEnabled(true);
@@ -60,6 +78,22 @@ public class BaseExecutorTest extends BaseDataTest {
     config.setDefaultFetchSize(100);
   }
 
+  @After
+  public void closeExecutors() throws Exception {
+    for (Executor executor : executors) {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  // tests of executor internals, skipped when the executor under test is wrapped
+  private BaseExecutor createBaseExecutor() throws Exception {
+    Executor executor = createExecutor(new JdbcTransaction(ds, null, false));
+    executors.add(executor);
+    assumeTrue(executor instanceof BaseExecutor);
+    return (BaseExecutor) executor;
+  }
+
   @Test
   public void shouldInsertNewAuthorWithBeforeAutoKey() throws Exception {
     
@@ -87,4 +121,185 @@ public class BaseExecutorTest extends BaseDataTest {
     }
   }
 
+  @Test
+  public void shouldEvictFromBoundedLocalCache() throws Exception {
+    config.getVariables().setProperty(BaseExecutor.LOCAL_CACHE_MAX_ENTRIES_PROPERTY, "1");
+    BaseExecutor executor = createBaseExecutor();
+    MappedStatement selectStatement = ExecutorTestHelper.prepareSelectOneAuthorMappedStatement(config);
+    executor.query(selectStatement, 101, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+    executor.query(selectStatement, 102, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+    executor.query(selectStatement, 101, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+    executor.query(selectStatement, 101, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+    assertEquals(1, executor.getLocalCacheHits());
+    assertEquals(3, executor.getLocalCacheMisses());
+    assertEquals(2, executor.getLocalCacheEvictions());
+  }
+
+  @Test
+  public void shouldEvictLeastFrequentlyUsedLocalCacheEntry() {
+    BaseExecutor.LocalCache cache = new BaseExecutor.LocalCache("test", 2, 0, true, true);
+    cache.pin();
+    cache.putObject("a", "1");
+    cache.putObject("b", "2");
+    cache.getObject("a");
+    cache.getObject("a");
+    cache.getObject("b");
+    cache.putObject("c", "3");
+    cache.release();
+    cache.evict();
+    assertEquals(2, cache.getSize());
+    assertEquals(1, cache.getEvictions());
+    assertNull(cache.getObject("c"));
+  }
+
+  @Test
+  public void shouldEstimateSizeOfObjectsWithInaccessibleFields() {
+    // walks into JDK internals, which cannot be made accessible on Java 9+
+    assertTrue(BaseExecutor.LocalCache.estimateSize(new AtomicReference<Object>(Thread.currentThread()), 3) > 0);
+  }
+
+  @Test
+  public void shouldRecordStatementStatistics() throws Exception {
+    config.getVariables().setProperty(BaseExecutor.STATISTICS_PROPERTY, "true");
+    BaseExecutor executor = createBaseExecutor();
+    MappedStatement selectStatement = ExecutorTestHelper.prepareSelectOneAuthorMappedStatement(config);
+    executor.query(selectStatement, 101, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+    executor.query(selectStatement, 101, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+    BaseExecutor.StatementStatistics statistics = executor.getStatementStatistics().get(selectStatement.getId());
+    assertEquals(1, statistics.getLocalCacheHits());
+    assertEquals(1, statistics.getLocalCacheMisses());
+    assertEquals(1, statistics.getDatabaseTime().getCount());
+    assertTrue(statistics.getDatabaseTime().getMax() > 0);
+    assertEquals(1, statistics.getRows().getTotal());
+
+    // a second session adds to the same statistics, rows given to a result handler are counted too
+    final List<Object> handled = new ArrayList<Object>();
+    createBaseExecutor().query(selectStatement, 101, RowBounds.DEFAULT, new ResultHandler<Object>() {
+      @Override
+      public void handleResult(ResultContext<? extends Object> context) {
+        handled.add(context.getResultObject());
+      }
+    });
+    statistics = BaseExecutor.getStatementStatistics(config).get(selectStatement.getId());
+    assertEquals(1, handled.size());
+    assertEquals(1, statistics.getLocalCacheHits());
+    assertEquals(2, statistics.getLocalCacheMisses());
+    assertEquals(2, statistics.getDatabaseTime().getCount());
+    assertEquals(2, statistics.getRows().getTotal());
+  }
+
+  @Test
+  public void shouldStreamRowsThroughPrefetchingCursor() throws Exception {
+    BaseExecutor executor = createBaseExecutor();
+    MappedStatement selectStatement = ExecutorTestHelper.prepareSelectAllAuthorsAutoMappedStatement(config);
+    List<Author> expected = executor.query(selectStatement, null, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+    executor.clearLocalCache();
+    // a single slot buffer makes the fetching thread wait for every row
+    Cursor<Author> cursor = executor.queryCursor(selectStatement, null, RowBounds.DEFAULT, 1);
+    List<Author> authors = new ArrayList<Author>();
+    for (Author author : cursor) {
+      authors.add(author);
+    }
+    assertEquals(expected.size(), authors.size());
+    assertEquals(expected.get(0).toString(), authors.get(0).toString());
+    assertEquals(expected.size() - 1, cursor.getCurrentIndex());
+    assertTrue(cursor.isConsumed());
+    assertFalse(cursor.isOpen());
+    assertEquals(0, executor.getLocalCacheHits());
+    cursor.close();
+  }
+
+  @Test
+  public void shouldStopFetchingWhenPrefetchingCursorIsClosed() throws Exception {
+    BaseExecutor executor = createBaseExecutor();
+    MappedStatement selectStatement = ExecutorTestHelper.prepareSelectAllAuthorsAutoMappedStatement(config);
+    Cursor<Author> cursor = executor.queryCursor(selectStatement, null, RowBounds.DEFAULT, 1);
+    Iterator<Author> iterator = cursor.iterator();
+    assertNotNull(iterator.next());
+    cursor.close();
+    assertFalse(cursor.isOpen());
+    assertFalse(iterator.hasNext());
+  }
+
+  @Test
+  public void shouldClosePrefetchingCursorOnRollback() throws Exception {
+    BaseExecutor executor = createBaseExecutor();
+    MappedStatement selectStatement = ExecutorTestHelper.prepareSelectAllAuthorsAutoMappedStatement(config);
+    Cursor<Author> cursor = executor.queryCursor(selectStatement, null, RowBounds.DEFAULT, 1);
+    Iterator<Author> iterator = cursor.iterator();
+    assertNotNull(iterator.next());
+    executor.rollback(true);
+    assertFalse(cursor.isOpen());
+    assertFalse(iterator.hasNext());
+  }
+
+  @Ignore("benchmark, run manually: compares plain and prefetching cursors over -Dcursor.bench.rows inserted authors")
+  @Test
+  public void benchmarkPrefetchingCursor() throws Exception {
+    int rows = Integer.getInteger("cursor.bench.rows", 50000);
+    BaseExecutor executor = createBaseExecutor();
+    MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+    MappedStatement selectStatement = ExecutorTestHelper.prepareSelectAllAuthorsAutoMappedStatement(config);
+    for (int i = 0; i < rows; i++) {
+      executor.update(insertStatement, new Author(1000 + i, "author" + i, "******", "author" + i + "@apache.org", "bio " + i, Section.NEWS));
+    }
+    for (int run = 0; run < 3; run++) {
+      long start = System.nanoTime();
+      long plain = consume(executor.<Author>queryCursor(selectStatement, null, RowBounds.DEFAULT));
+      long plainTime = System.nanoTime() - start;
+      start = System.nanoTime();
+      long prefetched = consume(executor.<Author>queryCursor(selectStatement, null, RowBounds.DEFAULT, 1024));
+      long prefetchedTime = System.nanoTime() - start;
+      assertEquals(plain, prefetched);
+      log.warn("run " + run + ": queryCursor " + plainTime / 1000000 + " ms, prefetching cursor "
+          + prefetchedTime / 1000000 + " ms, " + rows + " rows");
+    }
+  }
+
+  // stands for per row work of an export job, so fetching has something to overlap with
+  private static long consume(Cursor<Author> cursor) throws Exception {
+    long checksum = 0;
+    try {
+      for (Author author : cursor) {
+        checksum += author.toString().hashCode() & 0xff;
+        for (int i = 0; i < 200; i++) {
+          checksum += Integer.toHexString(i * author.getId()).length();
+        }
+      }
+    } finally {
+      cursor.close();
+    }
+    return checksum;
+  }
+
+  @Test
+  public void shouldCreateSameCacheKeyWithCompiledExtractor() throws Exception {
+    Executor executor = createExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      Author author = new Author(101, "someone", "******", "someone@apache.org", null, Section.NEWS);
+      MappedStatement insertStatement = ExecutorTestHelper.prepareInsertAuthorMappedStatement(config);
+      // the first call compiles extractor, the second one reuses it
+      CacheKey first = executor.createCacheKey(insertStatement, author, RowBounds.DEFAULT, insertStatement.getBoundSql(author));
+      CacheKey second = executor.createCacheKey(insertStatement, author, RowBounds.DEFAULT, insertStatement.getBoundSql(author));
+      assertEquals(first, second);
+
+      // alternating parameter types get an extractor each
+      Map<String, Object> parameter = new HashMap<String, Object>();
+      parameter.put("id", author.getId());
+      parameter.put("username", author.getUsername());
+      parameter.put("password", author.getPassword());
+      parameter.put("email", author.getEmail());
+      parameter.put("bio", author.getBio());
+      parameter.put("favouriteSection", author.getFavouriteSection());
+      assertEquals(first, executor.createCacheKey(insertStatement, parameter, RowBounds.DEFAULT, insertStatement.getBoundSql(parameter)));
+      assertEquals(first, executor.createCacheKey(insertStatement, author, RowBounds.DEFAULT, insertStatement.getBoundSql(author)));
+
+      author.setUsername("someone else");
+      CacheKey changed = executor.createCacheKey(insertStatement, author, RowBounds.DEFAULT, insertStatement.getBoundSql(author));
+      assertFalse(first.equals(changed));
+    } finally {
+      executor.close(false);
+    }
+  }
+
 }
@@ -17,22 +17,39 @@ package org.apache.ibatis.scripting.xmltags;
 
 import java.lang.reflect.Array;
 import java.math.BigDecimal;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
 
 /**
  * @author Clinton Begin
  */
 public class ExpressionEvaluator {
 
+  // compiled form of simple expressions, expressions which can't be compiled are mapped to OGNL fallback
+  private static final Map<String, CompiledExpression> compiledExpressions = new ConcurrentHashMap<String, CompiledExpression>();
+
   public boolean evaluateBoolean(String expression, Object parameterObject) {
-    Object value = OgnlCache.getValue(expression, parameterObject);
+    Object value = evaluate(expression, parameterObject);
     if (value instanceof Boolean) {
       return (Boolean) value;
     }
+    if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+      return ((Number) value).longValue() != 0;
+    }
     if (value instanceof Number) {
         return !new BigDecimal(String.valueOf(value)).equals(BigDecimal.ZERO);
     }
@@ -40,24 +57,22 @@ public class ExpressionEvaluator {
   }
 
   public Iterable<?> evaluateIterable(String expression, Object parameterObject) {
-    Object value = OgnlCache.getValue(expression, parameterObject);
+    Object value = evaluate(expression, parameterObject);
     if (value == null) {
       throw new BuilderException("The expression '" + expression + "' evaluated to a null value.");
     }
     if (value instanceof Iterable) {
       return (Iterable<?>) value;
     }
+    if (value instanceof Object[]) {
+      // a view, not a copy. Being a List, it also tells foreach its size upfront
+      return Arrays.asList((Object[]) value);
+    }
     if (value.getClass().isArray()) {
         // the array may be primitive, so Arrays.asList() may throw
-        // a ClassCastException (issue 209).  Do the work manually
+        // a ClassCastException (issue 209).  Wrap it with a view boxing elements one by one
         // Curse primitives! :) (JGB)
-        int size = Array.getLength(value);
-        List<Object> answer = new ArrayList<Object>();
-        for (int i = 0; i < size; i++) {
-            Object o = Array.get(value, i);
-            answer.add(o);
-        }
-        return answer;
+        return new PrimitiveArrayList(value);
     }
     if (value instanceof Map) {
       return ((Map) value).entrySet();
@@ -65,4 +80,453 @@ public class ExpressionEvaluator {
     throw new BuilderException("Error evaluating expression '" + expression + "'.  Return value (" + value + ") was not iterable.");
   }
 
+  private Object evaluate(String expression, Object parameterObject) {
+    CompiledExpression compiled = compiledExpressions.get(expression);
+    if (compiled == null) {
+      compiled = CompiledExpression.compile(expression);
+      compiledExpressions.put(expression, compiled);
+    }
+    Object value = compiled.evaluate(parameterObject);
+    if (value == CompiledExpression.UNSUPPORTED) {
+      return OgnlCache.getValue(expression, parameterObject);
+    }
+    return value;
+  }
+
+  /**
+   * Read-only List view over primitive array, elements are boxed on access only.
+   */
+  static class PrimitiveArrayList extends AbstractList<Object> implements RandomAccess {
+
+    private final Object array;
+    private final int size;
+
+    PrimitiveArrayList(Object array) {
+      this.array = array;
+      this.size = Array.getLength(array);
+    }
+
+    @Override
+    public Object get(int index) {
+      if (array instanceof int[]) {
+        return ((int[]) array)[index];
+      } else if (array instanceof long[]) {
+        return ((long[]) array)[index];
+      } else if (array instanceof double[]) {
+        return ((double[]) array)[index];
+      } else if (array instanceof float[]) {
+        return ((float[]) array)[index];
+      } else if (array instanceof short[]) {
+        return ((short[]) array)[index];
+      } else if (array instanceof byte[]) {
+        return ((byte[]) array)[index];
+      } else if (array instanceof char[]) {
+        return ((char[]) array)[index];
+      } else if (array instanceof boolean[]) {
+        return ((boolean[]) array)[index];
+      }
+      return Array.get(array, index);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+  }
+
+  /**
+   * Evaluator for the simple expressions which dominate dynamic SQL: property paths, null checks and
+   * comparisons with literals, optionally joined with and/or. Whenever a value is met that OGNL might
+   * treat differently (conversions, special properties, nulls inside a path), {@link #UNSUPPORTED} is
+   * returned and the caller falls back to OGNL.
+   */
+  abstract static class CompiledExpression {
+
+    static final Object UNSUPPORTED = new Object();
+
+    private static final CompiledExpression OGNL = new CompiledExpression() {
+      @Override
+      Object evaluate(Object root) {
+        return UNSUPPORTED;
+      }
+    };
+
+    abstract Object evaluate(Object root);
+
+    static CompiledExpression compile(String expression) {
+      try {
+        return new ExpressionParser(expression).parse();
+      } catch (IllegalArgumentException e) {
+        return OGNL;
+      }
+    }
+
+  }
+
+  private static class ExpressionParser {
+
+    private static final Set<String> KEYWORDS = new HashSet<String>(Arrays.asList(
+        "and", "or", "not", "eq", "neq", "lt", "gt", "lte", "gte", "in", "instanceof", "null", "true", "false", "new",
+        "shl", "shr", "ushr", "band", "bor", "xor"));
+    // names with special meaning for OGNL property accessors
+    private static final Set<String> SPECIAL_PROPERTIES = new HashSet<String>(Arrays.asList(
+        "size", "isEmpty", "keys", "keySet", "values", "class", "length", "iterator", "next", "hasNext"));
+
+    private final String expression;
+    private final List<String> tokens = new ArrayList<String>();
+    private int position;
+
+    ExpressionParser(String expression) {
+      this.expression = expression;
+    }
+
+    CompiledExpression parse() {
+      tokenize();
+      if (tokens.isEmpty()) {
+        throw new IllegalArgumentException();
+      }
+      // disjunction of conjunctions, as "and" binds tighter than "or"
+      List<List<CompiledExpression>> disjunction = new ArrayList<List<CompiledExpression>>();
+      List<CompiledExpression> conjunction = new ArrayList<CompiledExpression>();
+      int terms = 0;
+      boolean comparisons = true;
+      while (true) {
+        CompiledExpression operand = operand();
+        CompiledExpression term = operand;
+        if (position < tokens.size() && Comparison.isOperator(tokens.get(position))) {
+          String operator = tokens.get(position++);
+          term = new Comparison(operand, operator, operand());
+        } else {
+          comparisons = false;
+        }
+        conjunction.add(term);
+        terms++;
+        if (position == tokens.size()) {
+          break;
+        }
+        String token = tokens.get(position++);
+        if ("or".equals(token) || "||".equals(token)) {
+          disjunction.add(conjunction);
+          conjunction = new ArrayList<CompiledExpression>();
+        } else if (!"and".equals(token) && !"&&".equals(token)) {
+          throw new IllegalArgumentException();
+        }
+      }
+      disjunction.add(conjunction);
+      if (terms == 1) {
+        return conjunction.get(0);
+      }
+      // OGNL and/or return operand values rather than booleans, so only boolean terms are joined here
+      if (!comparisons) {
+        throw new IllegalArgumentException();
+      }
+      return new Logical(disjunction);
+    }
+
+    private CompiledExpression operand() {
+      if (position == tokens.size()) {
+        throw new IllegalArgumentException();
+      }
+      String token = tokens.get(position++);
+      char first = token.charAt(0);
+      if (first == '\'' || first == '"') {
+        String value = token.substring(1, token.length() - 1);
+        // single quoted single character is a Character literal for OGNL
+        if (first == '\'' && value.length() == 1) {
+          throw new IllegalArgumentException();
+        }
+        return new Literal(value);
+      }
+      if (Character.isDigit(first) || first == '-') {
+        return new Literal(number(token));
+      }
+      if ("null".equals(token)) {
+        return new Literal(null);
+      }
+      if ("true".equals(token) || "false".equals(token)) {
+        return new Literal(Boolean.valueOf(token));
+      }
+      String[] segments = token.split("\\.", -1);
+      for (String segment : segments) {
+        if (segment.isEmpty() || KEYWORDS.contains(segment) || SPECIAL_PROPERTIES.contains(segment)
+            || !Character.isJavaIdentifierStart(segment.charAt(0))) {
+          throw new IllegalArgumentException();
+        }
+        for (int i = 1; i < segment.length(); i++) {
+          if (!Character.isJavaIdentifierPart(segment.charAt(i))) {
+            throw new IllegalArgumentException();
+          }
+        }
+      }
+      return new Path(segments);
+    }
+
+    private static Object number(String token) {
+      // leading zero means octal or hex for OGNL
+      String digits = token.charAt(0) == '-' ? token.substring(1) : token;
+      if (digits.length() > 1 && digits.charAt(0) == '0' && (Character.isDigit(digits.charAt(1)) || digits.charAt(1) == 'x' || digits.charAt(1) == 'X')) {
+        throw new IllegalArgumentException();
+      }
+      if (token.endsWith("L") || token.endsWith("l")) {
+        return Long.valueOf(token.substring(0, token.length() - 1));
+      }
+      for (int i = 0; i < token.length(); i++) {
+        char c = token.charAt(i);
+        if (!Character.isDigit(c) && !(i == 0 && c == '-')) {
+          if (c == '.' || c == 'e' || c == 'E') {
+            return Double.valueOf(token);
+          }
+          throw new IllegalArgumentException();
+        }
+      }
+      return Integer.valueOf(token);
+    }
+
+    private void tokenize() {
+      int length = expression.length();
+      int i = 0;
+      while (i < length) {
+        char c = expression.charAt(i);
+        if (Character.isWhitespace(c)) {
+          i++;
+        } else if (c == '\'' || c == '"') {
+          int end = expression.indexOf(c, i + 1);
+          if (end < 0 || expression.lastIndexOf('\\', end) > i) {
+            // escapes are left to OGNL
+            throw new IllegalArgumentException();
+          }
+          tokens.add(expression.substring(i, end + 1));
+          i = end + 1;
+        } else if (c == '=' || c == '!' || c == '<' || c == '>') {
+          if (i + 1 < length && expression.charAt(i + 1) == '=') {
+            tokens.add(expression.substring(i, i + 2));
+            i += 2;
+          } else if (c == '<' || c == '>') {
+            tokens.add(String.valueOf(c));
+            i++;
+          } else {
+            throw new IllegalArgumentException();
+          }
+        } else if ((c == '&' || c == '|') && i + 1 < length && expression.charAt(i + 1) == c) {
+          tokens.add(expression.substring(i, i + 2));
+          i += 2;
+        } else if (Character.isJavaIdentifierPart(c) || c == '.' || (c == '-' && i + 1 < length && Character.isDigit(expression.charAt(i + 1)))) {
+          int start = i++;
+          while (i < length && (Character.isJavaIdentifierPart(expression.charAt(i)) || expression.charAt(i) == '.')) {
+            i++;
+          }
+          tokens.add(expression.substring(start, i));
+        } else {
+          throw new IllegalArgumentException();
+        }
+      }
+    }
+
+  }
+
+  private static class Literal extends CompiledExpression {
+
+    private final Object value;
+
+    Literal(Object value) {
+      this.value = value;
+    }
+
+    @Override
+    Object evaluate(Object root) {
+      return value;
+    }
+
+  }
+
+  private static class Path extends CompiledExpression {
+
+    private static final ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    private static final Object[] NO_ARGUMENTS = new Object[0];
+
+    private final String[] segments;
+    // getters resolved for the last seen class, per segment
+    private final Getter[] getters;
+
+    Path(String[] segments) {
+      this.segments = segments;
+      this.getters = new Getter[segments.length];
+    }
+
+    @Override
+    Object evaluate(Object root) {
+      Object current = root;
+      for (int i = 0; i < segments.length; i++) {
+        if (current == null || current instanceof Collection || current.getClass().isArray()) {
+          return UNSUPPORTED;
+        }
+        if (current instanceof Map) {
+          try {
+            current = ((Map<?, ?>) current).get(segments[i]);
+          } catch (RuntimeException e) {
+            // e.g. missing property of the parameter behind the bindings map, let OGNL report it
+            return UNSUPPORTED;
+          }
+          continue;
+        }
+        Getter getter = getters[i];
+        if (getter == null || getter.type != current.getClass()) {
+          Reflector reflector = reflectorFactory.findForClass(current.getClass());
+          if (!reflector.hasGetter(segments[i])) {
+            return UNSUPPORTED;
+          }
+          getter = new Getter(current.getClass(), reflector.getGetInvoker(segments[i]));
+          getters[i] = getter;
+        }
+        try {
+          current = getter.invoker.invoke(current, NO_ARGUMENTS);
+        } catch (Exception e) {
+          // let OGNL report it
+          return UNSUPPORTED;
+        }
+      }
+      return current;
+    }
+
+    private static class Getter {
+
+      private final Class<?> type;
+      private final Invoker invoker;
+
+      Getter(Class<?> type, Invoker invoker) {
+        this.type = type;
+        this.invoker = invoker;
+      }
+
+    }
+
+  }
+
+  private static class Comparison extends CompiledExpression {
+
+    private final CompiledExpression left;
+    private final CompiledExpression right;
+    private final String operator;
+
+    Comparison(CompiledExpression left, String operator, CompiledExpression right) {
+      this.left = left;
+      this.right = right;
+      this.operator = normalize(operator);
+    }
+
+    static boolean isOperator(String token) {
+      return normalize(token) != null;
+    }
+
+    private static String normalize(String operator) {
+      if ("==".equals(operator) || "eq".equals(operator)) {
+        return "==";
+      } else if ("!=".equals(operator) || "neq".equals(operator)) {
+        return "!=";
+      } else if ("<".equals(operator) || "lt".equals(operator)) {
+        return "<";
+      } else if (">".equals(operator) || "gt".equals(operator)) {
+        return ">";
+      } else if ("<=".equals(operator) || "lte".equals(operator)) {
+        return "<=";
+      } else if (">=".equals(operator) || "gte".equals(operator)) {
+        return ">=";
+      }
+      return null;
+    }
+
+    @Override
+    Object evaluate(Object root) {
+      Object leftValue = left.evaluate(root);
+      if (leftValue == UNSUPPORTED) {
+        return UNSUPPORTED;
+      }
+      Object rightValue = right.evaluate(root);
+      if (rightValue == UNSUPPORTED) {
+        return UNSUPPORTED;
+      }
+      boolean equality = operator.length() == 2 && operator.charAt(0) != '<' && operator.charAt(0) != '>';
+      int compared;
+      if (leftValue == null || rightValue == null) {
+        if (!equality) {
+          return UNSUPPORTED;
+        }
+        compared = leftValue == rightValue ? 0 : 1;
+      } else if (isSimpleNumber(leftValue) && isSimpleNumber(rightValue)) {
+        compared = compareNumbers((Number) leftValue, (Number) rightValue);
+      } else if (leftValue instanceof String && rightValue instanceof String) {
+        compared = ((String) leftValue).compareTo((String) rightValue);
+      } else if (equality && leftValue instanceof Boolean && rightValue instanceof Boolean) {
+        compared = leftValue.equals(rightValue) ? 0 : 1;
+      } else {
+        return UNSUPPORTED;
+      }
+      if ("==".equals(operator)) {
+        return compared == 0;
+      } else if ("!=".equals(operator)) {
+        return compared != 0;
+      } else if ("<".equals(operator)) {
+        return compared < 0;
+      } else if (">".equals(operator)) {
+        return compared > 0;
+      } else if ("<=".equals(operator)) {
+        return compared <= 0;
+      }
+      return compared >= 0;
+    }
+
+    private static boolean isIntegral(Object value) {
+      return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+    }
+
+    private static boolean isSimpleNumber(Object value) {
+      return isIntegral(value) || value instanceof Double || value instanceof Float;
+    }
+
+    private static int compareNumbers(Number left, Number right) {
+      if (isIntegral(left) && isIntegral(right)) {
+        long l = left.longValue();
+        long r = right.longValue();
+        return l == r ? 0 : (l < r ? -1 : 1);
+      }
+      // same as OGNL, which compares with == rather than Double.compare()
+      double l = left.doubleValue();
+      double r = right.doubleValue();
+      return l == r ? 0 : (l < r ? -1 : 1);
+    }
+
+  }
+
+  private static class Logical extends CompiledExpression {
+
+    private final List<List<CompiledExpression>> disjunction;
+
+    Logical(List<List<CompiledExpression>> disjunction) {
+      this.disjunction = disjunction;
+    }
+
+    @Override
+    Object evaluate(Object root) {
+      for (List<CompiledExpression> conjunction : disjunction) {
+        boolean result = true;
+        for (CompiledExpression term : conjunction) {
+          Object value = term.evaluate(root);
+          if (value == UNSUPPORTED) {
+            return UNSUPPORTED;
+          }
+          if (!(Boolean) value) {
+            result = false;
+            break;
+          }
+        }
+        if (result) {
+          return Boolean.TRUE;
+        }
+      }
+      return Boolean.FALSE;
+    }
+
+  }
+
 }
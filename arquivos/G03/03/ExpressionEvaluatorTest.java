@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.builder.xml.dynamic;
 
+import java.util.Collection;
 import java.util.HashMap;
 
 import org.apache.ibatis.domain.blog.Author;
@@ -36,6 +37,40 @@ public class ExpressionEvaluatorTest {
     assertEquals(false, value);
   }
 
+  @Test
+  public void shouldEvaluateCompiledExpressions() {
+    Author author = new Author(0, "cbegin", null, "cbegin@apache.org", "N/A", Section.NEWS);
+    assertEquals(true, evaluator.evaluateBoolean("id == 0", author));
+    assertEquals(true, evaluator.evaluateBoolean("username == 'cbegin'", author));
+    assertEquals(true, evaluator.evaluateBoolean("username != null and email != ''", author));
+    assertEquals(false, evaluator.evaluateBoolean("bio == null or id > 1", author));
+    assertEquals(true, evaluator.evaluateBoolean("id lt 10 && id gte -1", author));
+    assertEquals(false, evaluator.evaluateBoolean("password", author));
+    assertEquals(true, evaluator.evaluateBoolean("email", author));
+  }
+
+  @Test
+  public void shouldEvaluateCompiledExpressionsOverMap() {
+    final HashMap<String, Object> parameterObject = new HashMap<String, Object>() {{
+      put("author", new Author(1, "cbegin", null, "cbegin@apache.org", "N/A", Section.NEWS));
+      put("count", 0L);
+      put("ratio", 0.5);
+    }};
+    assertEquals(true, evaluator.evaluateBoolean("author.username == \"cbegin\"", parameterObject));
+    assertEquals(false, evaluator.evaluateBoolean("count", parameterObject));
+    assertEquals(true, evaluator.evaluateBoolean("count >= 0 and author.id == 1L", parameterObject));
+    assertEquals(true, evaluator.evaluateBoolean("ratio < 1", parameterObject));
+    assertEquals(false, evaluator.evaluateBoolean("missing != null", parameterObject));
+  }
+
+  @Test
+  public void shouldFallBackToOgnlForComplexExpressions() {
+    Author author = new Author(0, "cbegin", null, "cbegin@apache.org", "N/A", Section.NEWS);
+    assertEquals(true, evaluator.evaluateBoolean("username.length() > 3", author));
+    assertEquals(true, evaluator.evaluateBoolean("!(id > 0)", author));
+    assertEquals(true, evaluator.evaluateBoolean("id == 0 and (bio != null)", author));
+  }
+
   @Test
   public void shouldIterateOverIterable() {
     final HashMap<String, String[]> parameterObject = new HashMap<String, String[]>() {{
@@ -48,5 +83,20 @@ public class ExpressionEvaluatorTest {
     }
   }
 
+  @Test
+  public void shouldIterateOverPrimitiveArrayWithoutCopy() {
+    final HashMap<String, Object> parameterObject = new HashMap<String, Object>() {{
+      put("ids", new int[]{1, 2, 3});
+    }};
+    final Iterable<?> iterable = evaluator.evaluateIterable("ids", parameterObject);
+    assertEquals(3, ((Collection<?>) iterable).size());
+    int i = 0;
+    for (Object o : iterable) {
+      assertEquals(++i, o);
+    }
+
+    ((int[]) parameterObject.get("ids"))[0] = 10;
+    assertEquals(10, iterable.iterator().next());
+  }
 
 }
@@ -31,6 +31,7 @@ import org.deeplearning4j.exception.DL4JInvalidInputException;
 import org.deeplearning4j.models.embeddings.WeightLookupTable;
 import org.deeplearning4j.models.embeddings.inmemory.InMemoryLookupTable;
 import org.deeplearning4j.models.embeddings.learning.impl.elements.SkipGram;
+import org.deeplearning4j.models.embeddings.reader.ModelUtils;
 import org.deeplearning4j.models.embeddings.reader.impl.BasicModelUtils;
 import org.deeplearning4j.models.embeddings.wordvectors.WordVectors;
 import org.deeplearning4j.models.embeddings.wordvectors.WordVectorsImpl;
@@ -55,8 +56,10 @@ import org.deeplearning4j.text.tokenization.tokenizerfactory.TokenizerFactory;
 import org.deeplearning4j.util.OneTimeLogger;
 import org.nd4j.compression.impl.NoOp;
 import org.nd4j.linalg.api.ndarray.INDArray;
+import org.nd4j.linalg.compression.AbstractStorage;
 import org.nd4j.linalg.exception.ND4JIllegalStateException;
 import org.nd4j.linalg.factory.Nd4j;
+import org.nd4j.linalg.indexing.NDArrayIndex;
 import org.nd4j.linalg.ops.transforms.Transforms;
 import org.nd4j.linalg.primitives.Pair;
 import org.nd4j.shade.jackson.databind.DeserializationFeature;
@@ -68,12 +71,35 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -91,6 +117,16 @@ public class WordVectorSerializer {
     private static final boolean DEFAULT_LINEBREAKS = false;
     private static final boolean HAS_HEADER = true;
     private static final int MAX_SIZE = 50;
+    private static final int MAPPED_BLOCK_SIZE = 1024 * 1024;
+    private static final byte[] STATIC_MAGIC = {'D', 'L', '4', 'J', 'S', 'W', '2', 'V'};
+    private static final int STATIC_VERSION = 1;
+    private static final int ZIP_READER_THREADS = 4;
+    private static final int SNIFF_SIZE = 64 * 1024;
+    public static final int PROGRESS_FREQUENCY = 100000;
+    private static final String INDEX_ENTRY = "index.bin";
+    private static final long TEXT_CHUNK_SIZE = 64 * 1024 * 1024L;
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+                    1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
     private static final String whitespaceReplacement = "_Az92_";
     private static final Logger log = LoggerFactory.getLogger(WordVectorSerializer.class);
 
@@ -302,6 +338,108 @@ public class WordVectorSerializer {
 
     }
 
+    /**
+     * Loads the Google binary model by memory-mapping it, with vectors normalized.
+     *
+     * @param modelFile uncompressed binary model file
+     * @return a {@link Word2Vec} object
+     * @throws IOException
+     */
+    public static Word2Vec loadGoogleModelMapped(@NonNull File modelFile) throws IOException {
+        return loadGoogleModelMapped(modelFile, true);
+    }
+
+    /**
+     * Loads the Google binary model by memory-mapping it.
+     * Vectors are bulk-copied from the mapping into syn0 in blocks of rows, so there's no per-float or per-row allocation.
+     * Both linebreak-terminated and plain files are accepted.
+     *
+     * PLEASE NOTE: compressed files can't be mapped, please use readWord2VecModel() for them.
+     *
+     * @param modelFile uncompressed binary model file
+     * @param normalize if TRUE, each vector will be scaled to unit length
+     * @return a {@link Word2Vec} object
+     * @throws IOException
+     */
+    public static Word2Vec loadGoogleModelMapped(@NonNull File modelFile, boolean normalize) throws IOException {
+        if (GzipUtils.isCompressedFilename(modelFile.getName()))
+            throw new DL4JInvalidInputException("Compressed model [" + modelFile.getAbsolutePath()
+                            + "] can't be memory-mapped, please use readWord2VecModel() instead");
+
+        InMemoryLookupTable<VocabWord> lookupTable;
+        VocabCache<VocabWord> cache = new AbstractCache<>();
+        INDArray syn0;
+
+        try (MappedBinaryReader reader = new MappedBinaryReader(modelFile)) {
+            int words = Integer.parseInt(reader.readWord());
+            int size = Integer.parseInt(reader.readWord());
+            syn0 = Nd4j.create(words, size);
+
+            printOutProjectedMemoryUse(words, size, 1);
+
+            // rows are accumulated in this block, and copied into syn0 once it's full
+            int blockRows = Math.max(1, MAPPED_BLOCK_SIZE / size);
+            float[] block = new float[blockRows * size];
+            int blockStart = 0;
+
+            for (int i = 0; i < words; i++) {
+                int offset = (i - blockStart) * size;
+
+                String word = reader.readWord();
+                reader.readFloats(block, offset, size);
+
+                if (normalize)
+                    unitVec(block, offset, size);
+
+                VocabWord vw = new VocabWord(1.0, word);
+                vw.setIndex(cache.numWords());
+
+                cache.addToken(vw);
+                cache.addWordToIndex(vw.getIndex(), vw.getLabel());
+
+                cache.putVocabWord(word);
+
+                int rows = i - blockStart + 1;
+                if (rows == blockRows || i == words - 1) {
+                    INDArray src = Nd4j.create(rows == blockRows ? block : Arrays.copyOf(block, rows * size),
+                                    new int[] {rows, size});
+                    syn0.get(NDArrayIndex.interval(blockStart, blockStart + rows), NDArrayIndex.all()).assign(src);
+                    blockStart = i + 1;
+                }
+            }
+        }
+
+        lookupTable = (InMemoryLookupTable<VocabWord>) new InMemoryLookupTable.Builder<VocabWord>().cache(cache)
+                        .useHierarchicSoftmax(false).vectorLength(syn0.columns()).build();
+
+        lookupTable.setSyn0(syn0);
+
+        Word2Vec ret = new Word2Vec.Builder().useHierarchicSoftmax(false).resetModel(false).layerSize(syn0.columns())
+                        .allowParallelTokenization(true).elementsLearningAlgorithm(new SkipGram<VocabWord>())
+                        .learningRate(0.025).windowSize(5).workers(1).build();
+
+        ret.setVocab(cache);
+        ret.setLookupTable(lookupTable);
+
+        return ret;
+    }
+
+    /**
+     * This method scales given part of array to unit length, in place
+     */
+    private static void unitVec(float[] array, int offset, int length) {
+        double norm = 0.0;
+        for (int i = offset; i < offset + length; i++)
+            norm += array[i] * array[i];
+
+        if (norm == 0.0)
+            return;
+
+        float scale = (float) (1.0 / Math.sqrt(norm));
+        for (int i = offset; i < offset + length; i++)
+            array[i] *= scale;
+    }
+
     /**
      * Read a float from a data input stream Credit to:
      * https://github.com/NLPchina/Word2VEC_java/blob/master/src/com/ansj/vec/Word2VEC.java
@@ -487,6 +625,21 @@ public class WordVectorSerializer {
         writeParagraphVectors(vectors, new File(path));
     }
 
+    /**
+     * This method saves ParagraphVectors model into compressed zip file, along with nearest neighbours index
+     *
+     * @param file
+     * @param index index built for this model, or null
+     */
+    public static void writeParagraphVectors(ParagraphVectors vectors, File file, NearestNeighborsIndex index) {
+        try (FileOutputStream fos = new FileOutputStream(file);
+                        BufferedOutputStream stream = new BufferedOutputStream(fos)) {
+            writeParagraphVectors(vectors, stream, index);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     /**
      * This method saves Word2Vec model into compressed zip file and sends it to output stream
      * PLEASE NOTE: This method saves FULL model, including syn0 AND syn1
@@ -510,296 +663,530 @@ public class WordVectorSerializer {
         writeWord2VecModel(vectors, new File(path));
     }
 
+    /**
+     * This method saves Word2Vec model into compressed zip file, along with nearest neighbours index
+     * PLEASE NOTE: This method saves FULL model, including syn0 AND syn1
+     *
+     * @param index index built for this model, or null
+     */
+    public static void writeWord2VecModel(Word2Vec vectors, File file, NearestNeighborsIndex index) {
+        try (FileOutputStream fos = new FileOutputStream(file);
+                        BufferedOutputStream stream = new BufferedOutputStream(fos)) {
+            writeWord2VecModel(vectors, stream, index);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     /**
      * This method saves Word2Vec model into compressed zip file and sends it to output stream
      * PLEASE NOTE: This method saves FULL model, including syn0 AND syn1
      *
      */
     public static void writeWord2VecModel(Word2Vec vectors, OutputStream stream) throws IOException {
-        ZipOutputStream zipfile = new ZipOutputStream(new BufferedOutputStream(new CloseShieldOutputStream(stream)));
-
-        ZipEntry syn0 = new ZipEntry("syn0.txt");
-        zipfile.putNextEntry(syn0);
+        writeWord2VecModel(vectors, stream, (NearestNeighborsIndex) null);
+    }
 
-        // writing out syn0
-        File tempFileSyn0 = File.createTempFile("word2vec", "0");
-        tempFileSyn0.deleteOnExit();
+    /**
+     * This method saves Word2Vec model into compressed zip file and sends it to output stream
+     * PLEASE NOTE: This method saves FULL model, including syn0 AND syn1
+     *
+     * @param index index built for this model, or null. It'll be restored by readers, and used for wordsNearest() queries
+     */
+    public static void writeWord2VecModel(Word2Vec vectors, OutputStream stream, NearestNeighborsIndex index)
+                    throws IOException {
+        writeWord2VecModel(vectors, stream, new WriterOptions.Builder().index(index).build());
+    }
 
-        writeWordVectors(vectors.lookupTable(), tempFileSyn0);
+    /**
+     * This method saves Word2Vec model into zip file and sends it to output stream.
+     * Tables are serialized concurrently into separate buffers, and then copied into archive one by one.
+     * PLEASE NOTE: This method saves FULL model, including syn0 AND syn1
+     *
+     * @param options serialization options
+     * @return size and serialization time for each zip entry, in archive order
+     */
+    public static List<EntryStats> writeWord2VecModel(@NonNull final Word2Vec vectors, @NonNull OutputStream stream,
+                    @NonNull final WriterOptions options) throws IOException {
+        final InMemoryLookupTable<VocabWord> lookupTable = (InMemoryLookupTable<VocabWord>) vectors.getLookupTable();
+
+        List<TableTask> tasks = new ArrayList<>();
+        tasks.add(syn0Task(lookupTable, options));
+        tasks.add(matrixTask("syn1", lookupTable.getSyn1(), options));
+        tasks.add(matrixTask("syn1Neg", lookupTable.getSyn1Neg(), options));
+        tasks.add(codesTask(vectors.getVocab()));
+        tasks.add(huffmanTask(vectors.getVocab()));
+        tasks.add(frequenciesTask(vectors.getVocab()));
+        tasks.add(bytesTask("config.json", vectors.getConfiguration().toJson().getBytes()));
+        if (options.getIndex() != null)
+            tasks.add(indexTask(options.getIndex()));
+
+        return writeTables(tasks, stream, options);
+    }
 
-        BufferedInputStream fis = new BufferedInputStream(new FileInputStream(tempFileSyn0));
-        writeEntry(fis, zipfile);
-        fis.close();
+    /**
+     * This method saves ParagraphVectors model into compressed zip file and sends it to output stream
+     */
+    public static void writeParagraphVectors(ParagraphVectors vectors, OutputStream stream) throws IOException {
+        writeParagraphVectors(vectors, stream, (NearestNeighborsIndex) null);
+    }
 
-        // writing out syn1
-        File tempFileSyn1 = File.createTempFile("word2vec", "1");
-        tempFileSyn1.deleteOnExit();
+    /**
+     * This method saves ParagraphVectors model into compressed zip file and sends it to output stream
+     *
+     * @param index index built for this model, or null. It'll be restored by readers, and used for wordsNearest() queries
+     */
+    public static void writeParagraphVectors(ParagraphVectors vectors, OutputStream stream,
+                    NearestNeighborsIndex index) throws IOException {
+        writeParagraphVectors(vectors, stream, new WriterOptions.Builder().index(index).build());
+    }
 
-        INDArray syn1 = ((InMemoryLookupTable<VocabWord>) vectors.getLookupTable()).getSyn1();
+    /**
+     * This method saves ParagraphVectors model into zip file and sends it to output stream.
+     * Tables are serialized concurrently into separate buffers, and then copied into archive one by one.
+     *
+     * @param options serialization options
+     * @return size and serialization time for each zip entry, in archive order
+     */
+    public static List<EntryStats> writeParagraphVectors(@NonNull ParagraphVectors vectors,
+                    @NonNull OutputStream stream, @NonNull WriterOptions options) throws IOException {
+        InMemoryLookupTable<VocabWord> lookupTable = (InMemoryLookupTable<VocabWord>) vectors.getLookupTable();
 
-        if (syn1 != null)
-            try (PrintWriter writer = new PrintWriter(new FileWriter(tempFileSyn1))) {
-                for (int x = 0; x < syn1.rows(); x++) {
-                    INDArray row = syn1.getRow(x);
-                    StringBuilder builder = new StringBuilder();
-                    for (int i = 0; i < row.length(); i++) {
-                        builder.append(row.getDouble(i)).append(" ");
-                    }
-                    writer.println(builder.toString().trim());
-                }
-            }
+        StringBuilder labels = new StringBuilder();
+        for (VocabWord word : vectors.getVocab().tokens()) {
+            if (word.isLabel())
+                labels.append(encodeB64(word.getLabel())).append("\n");
+        }
 
-        ZipEntry zSyn1 = new ZipEntry("syn1.txt");
-        zipfile.putNextEntry(zSyn1);
+        List<TableTask> tasks = new ArrayList<>();
+        tasks.add(syn0Task(lookupTable, options));
+        tasks.add(matrixTask("syn1", lookupTable.getSyn1(), options));
+        tasks.add(codesTask(vectors.getVocab()));
+        tasks.add(huffmanTask(vectors.getVocab()));
+        tasks.add(bytesTask("config.json", vectors.getConfiguration().toJson().getBytes()));
+        tasks.add(bytesTask("labels.txt", labels.toString().trim().getBytes()));
+        tasks.add(frequenciesTask(vectors.getVocab()));
+        if (options.getIndex() != null)
+            tasks.add(indexTask(options.getIndex()));
+
+        return writeTables(tasks, stream, options);
+    }
 
-        fis = new BufferedInputStream(new FileInputStream(tempFileSyn1));
-        writeEntry(fis, zipfile);
-        fis.close();
+    /**
+     * This method runs given serialization tasks concurrently, and copies their output into zip archive in task order
+     */
+    private static List<EntryStats> writeTables(List<TableTask> tasks, OutputStream stream, WriterOptions options)
+                    throws IOException {
+        ZipOutputStream zipfile = new ZipOutputStream(new BufferedOutputStream(new CloseShieldOutputStream(stream)));
+        if (!options.isStored())
+            zipfile.setLevel(options.getCompressionLevel());
 
-        // writing out syn1
-        File tempFileSyn1Neg = File.createTempFile("word2vec", "n");
-        tempFileSyn1Neg.deleteOnExit();
+        List<EntryStats> stats = new ArrayList<>();
+        List<Future<SerializedTable>> futures = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(options.getWorkers(), tasks.size())));
+        try {
+            for (TableTask task : tasks)
+                futures.add(executor.submit(task));
 
-        INDArray syn1Neg = ((InMemoryLookupTable<VocabWord>) vectors.getLookupTable()).getSyn1Neg();
+            for (Future<SerializedTable> future : futures) {
+                SerializedTable table = await(future);
+                try {
+                    long time = System.currentTimeMillis();
+
+                    ZipEntry entry = new ZipEntry(table.name);
+                    if (options.isStored()) {
+                        entry.setMethod(ZipEntry.STORED);
+                        entry.setSize(table.bytes);
+                        entry.setCompressedSize(table.bytes);
+                        entry.setCrc(table.crc);
+                    }
+                    zipfile.putNextEntry(entry);
 
-        if (syn1Neg != null)
-            try (PrintWriter writer = new PrintWriter(new FileWriter(tempFileSyn1Neg))) {
-                for (int x = 0; x < syn1Neg.rows(); x++) {
-                    INDArray row = syn1Neg.getRow(x);
-                    StringBuilder builder = new StringBuilder();
-                    for (int i = 0; i < row.length(); i++) {
-                        builder.append(row.getDouble(i)).append(" ");
+                    try (BufferedInputStream fis = new BufferedInputStream(new FileInputStream(table.file))) {
+                        writeEntry(fis, zipfile);
                     }
-                    writer.println(builder.toString().trim());
+                    zipfile.closeEntry();
+
+                    EntryStats entryStats = new EntryStats(table.name, table.bytes, table.elapsed,
+                                    System.currentTimeMillis() - time);
+                    log.info("Entry [{}]: {} bytes, serialized in {} ms, archived in {} ms", entryStats.getName(),
+                                    entryStats.getBytes(), entryStats.getSerializationTime(),
+                                    entryStats.getArchivingTime());
+                    stats.add(entryStats);
+                } finally {
+                    table.file.delete();
                 }
             }
+        } finally {
+            executor.shutdownNow();
 
-        ZipEntry zSyn1Neg = new ZipEntry("syn1Neg.txt");
-        zipfile.putNextEntry(zSyn1Neg);
-
-        fis = new BufferedInputStream(new FileInputStream(tempFileSyn1Neg));
-        writeEntry(fis, zipfile);
-        fis.close();
-
+            // tables which weren't archived because of failure shouldn't be left behind
+            for (Future<SerializedTable> future : futures) {
+                try {
+                    if (future.isDone() && !future.isCancelled())
+                        future.get().file.delete();
+                } catch (Exception e) {
+                    //
+                }
+            }
+        }
 
-        File tempFileCodes = File.createTempFile("word2vec", "h");
-        tempFileCodes.deleteOnExit();
+        zipfile.flush();
+        zipfile.close();
 
-        ZipEntry hC = new ZipEntry("codes.txt");
-        zipfile.putNextEntry(hC);
+        return stats;
+    }
 
-        // writing out huffman tree
-        try (PrintWriter writer = new PrintWriter(new FileWriter(tempFileCodes))) {
-            for (int i = 0; i < vectors.getVocab().numWords(); i++) {
-                VocabWord word = vectors.getVocab().elementAtIndex(i);
-                StringBuilder builder = new StringBuilder(encodeB64(word.getLabel())).append(" ");
-                for (int code : word.getCodes()) {
-                    builder.append(code).append(" ");
+    private static TableTask syn0Task(final InMemoryLookupTable<VocabWord> lookupTable, WriterOptions options) {
+        if (options.isBinaryTables()) {
+            final long numDocs = lookupTable.getVocabCache().totalNumberOfDocs();
+            return new TableTask("syn0.bin") {
+                @Override
+                protected void write(OutputStream stream) throws IOException {
+                    writeBinaryMatrix(lookupTable.getSyn0(), numDocs, stream);
                 }
+            };
+        }
 
-                writer.println(builder.toString().trim());
+        return new TableTask("syn0.txt") {
+            @Override
+            protected void write(OutputStream stream) throws IOException {
+                writeWordVectors(lookupTable, new CloseShieldOutputStream(stream));
             }
-        }
+        };
+    }
 
-        fis = new BufferedInputStream(new FileInputStream(tempFileCodes));
-        writeEntry(fis, zipfile);
-        fis.close();
+    private static TableTask matrixTask(String name, final INDArray matrix, WriterOptions options) {
+        if (options.isBinaryTables()) {
+            return new TableTask(name + ".bin") {
+                @Override
+                protected void write(OutputStream stream) throws IOException {
+                    writeBinaryMatrix(matrix, 0, stream);
+                }
+            };
+        }
 
+        return new TableTask(name + ".txt") {
+            @Override
+            protected void write(OutputStream stream) throws IOException {
+                if (matrix == null)
+                    return;
 
-        File tempFileHuffman = File.createTempFile("word2vec", "h");
-        tempFileHuffman.deleteOnExit();
+                PrintWriter writer = new PrintWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+                for (int x = 0; x < matrix.rows(); x++) {
+                    INDArray row = matrix.getRow(x);
+                    StringBuilder builder = new StringBuilder();
+                    for (int i = 0; i < row.length(); i++) {
+                        builder.append(row.getDouble(i)).append(" ");
+                    }
+                    writer.println(builder.toString().trim());
+                }
+                writer.flush();
+            }
+        };
+    }
 
-        ZipEntry hP = new ZipEntry("huffman.txt");
-        zipfile.putNextEntry(hP);
+    private static TableTask codesTask(final VocabCache<VocabWord> vocab) {
+        return new TableTask("codes.txt") {
+            @Override
+            protected void write(OutputStream stream) throws IOException {
+                PrintWriter writer = new PrintWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+                for (int i = 0; i < vocab.numWords(); i++) {
+                    VocabWord word = vocab.elementAtIndex(i);
+                    StringBuilder builder = new StringBuilder(encodeB64(word.getLabel())).append(" ");
+                    for (int code : word.getCodes()) {
+                        builder.append(code).append(" ");
+                    }
 
-        // writing out huffman tree
-        try (PrintWriter writer = new PrintWriter(new FileWriter(tempFileHuffman))) {
-            for (int i = 0; i < vectors.getVocab().numWords(); i++) {
-                VocabWord word = vectors.getVocab().elementAtIndex(i);
-                StringBuilder builder = new StringBuilder(encodeB64(word.getLabel())).append(" ");
-                for (int point : word.getPoints()) {
-                    builder.append(point).append(" ");
+                    writer.println(builder.toString().trim());
                 }
-
-                writer.println(builder.toString().trim());
+                writer.flush();
             }
-        }
-
-        fis = new BufferedInputStream(new FileInputStream(tempFileHuffman));
-        writeEntry(fis, zipfile);
-        fis.close();
+        };
+    }
 
-        File tempFileFreqs = File.createTempFile("word2vec", "f");
-        tempFileFreqs.deleteOnExit();
+    private static TableTask huffmanTask(final VocabCache<VocabWord> vocab) {
+        return new TableTask("huffman.txt") {
+            @Override
+            protected void write(OutputStream stream) throws IOException {
+                PrintWriter writer = new PrintWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+                for (int i = 0; i < vocab.numWords(); i++) {
+                    VocabWord word = vocab.elementAtIndex(i);
+                    StringBuilder builder = new StringBuilder(encodeB64(word.getLabel())).append(" ");
+                    for (int point : word.getPoints()) {
+                        builder.append(point).append(" ");
+                    }
 
-        ZipEntry hF = new ZipEntry("frequencies.txt");
-        zipfile.putNextEntry(hF);
+                    writer.println(builder.toString().trim());
+                }
+                writer.flush();
+            }
+        };
+    }
 
-        // writing out word frequencies
-        try (PrintWriter writer = new PrintWriter(new FileWriter(tempFileFreqs))) {
-            for (int i = 0; i < vectors.getVocab().numWords(); i++) {
-                VocabWord word = vectors.getVocab().elementAtIndex(i);
-                StringBuilder builder = new StringBuilder(encodeB64(word.getLabel())).append(" ")
-                                .append(word.getElementFrequency()).append(" ")
-                                .append(vectors.getVocab().docAppearedIn(word.getLabel()));
+    private static TableTask frequenciesTask(final VocabCache<VocabWord> vocab) {
+        return new TableTask("frequencies.txt") {
+            @Override
+            protected void write(OutputStream stream) throws IOException {
+                PrintWriter writer = new PrintWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+                for (int i = 0; i < vocab.numWords(); i++) {
+                    VocabWord word = vocab.elementAtIndex(i);
+                    StringBuilder builder = new StringBuilder(encodeB64(word.getLabel())).append(" ")
+                                    .append(word.getElementFrequency()).append(" ")
+                                    .append(vocab.docAppearedIn(word.getLabel()));
 
-                writer.println(builder.toString().trim());
+                    writer.println(builder.toString().trim());
+                }
+                writer.flush();
             }
-        }
-
-        fis = new BufferedInputStream(new FileInputStream(tempFileFreqs));
-        writeEntry(fis, zipfile);
-        fis.close();
+        };
+    }
 
-        ZipEntry config = new ZipEntry("config.json");
-        zipfile.putNextEntry(config);
-        //log.info("Current config: {}", vectors.getConfiguration().toJson());
-        writeEntry(new ByteArrayInputStream(vectors.getConfiguration().toJson().getBytes()), zipfile);
+    private static TableTask bytesTask(String name, final byte[] bytes) {
+        return new TableTask(name) {
+            @Override
+            protected void write(OutputStream stream) throws IOException {
+                stream.write(bytes);
+            }
+        };
+    }
 
-        zipfile.flush();
-        zipfile.close();
+    private static TableTask indexTask(final NearestNeighborsIndex index) {
+        return new TableTask(INDEX_ENTRY) {
+            @Override
+            protected void write(OutputStream stream) throws IOException {
+                DataOutputStream dos = new DataOutputStream(stream);
+                index.write(dos);
+                dos.flush();
+            }
+        };
+    }
 
-        try {
-            tempFileCodes.delete();
-            tempFileFreqs.delete();
-            tempFileHuffman.delete();
-            tempFileSyn0.delete();
-            tempFileSyn1.delete();
-            tempFileSyn1Neg.delete();
-        } catch (Exception e) {
-            //
+    /**
+     * This method writes matrix as binary table: int rows, int columns, long number of documents, then big-endian float rows.
+     * Null matrix is written as empty table.
+     */
+    private static void writeBinaryMatrix(INDArray matrix, long numDocs, OutputStream stream) throws IOException {
+        DataOutputStream dos = new DataOutputStream(stream);
+        int rows = matrix == null ? 0 : matrix.rows();
+        int columns = matrix == null ? 0 : matrix.columns();
+
+        dos.writeInt(rows);
+        dos.writeInt(columns);
+        dos.writeLong(numDocs);
+
+        ByteBuffer buffer = ByteBuffer.allocate(columns * 4);
+        for (int x = 0; x < rows; x++) {
+            buffer.clear();
+            buffer.asFloatBuffer().put(matrix.getRow(x).dup().data().asFloat());
+            dos.write(buffer.array());
         }
+        dos.flush();
     }
 
     /**
-     * This method saves ParagraphVectors model into compressed zip file and sends it to output stream
+     * This method reads matrix previously written with writeBinaryMatrix().
+     *
+     * @return Pair of matrix (null for empty table) and number of documents
      */
-    public static void writeParagraphVectors(ParagraphVectors vectors, OutputStream stream) throws IOException {
-        ZipOutputStream zipfile = new ZipOutputStream(new BufferedOutputStream(new CloseShieldOutputStream(stream)));
-
-        ZipEntry syn0 = new ZipEntry("syn0.txt");
-        zipfile.putNextEntry(syn0);
-
-        // writing out syn0
-        File tempFileSyn0 = File.createTempFile("paravec", "0");
-        tempFileSyn0.deleteOnExit();
+    private static Pair<INDArray, Long> readBinaryMatrix(DataInputStream dis) throws IOException {
+        int rows = dis.readInt();
+        int columns = dis.readInt();
+        long numDocs = dis.readLong();
+        if (rows == 0 || columns == 0)
+            return Pair.makePair(null, numDocs);
+
+        INDArray matrix = Nd4j.create(rows, columns);
+        int blockRows = Math.max(1, Math.min(rows, MAPPED_BLOCK_SIZE / columns));
+        byte[] bytes = new byte[blockRows * columns * 4];
+        float[] block = new float[blockRows * columns];
+        for (int start = 0; start < rows; start += blockRows) {
+            int count = Math.min(blockRows, rows - start);
+            dis.readFully(bytes, 0, count * columns * 4);
+            ByteBuffer.wrap(bytes, 0, count * columns * 4).asFloatBuffer().get(block, 0, count * columns);
+
+            INDArray src = Nd4j.create(count == blockRows ? block : Arrays.copyOf(block, count * columns),
+                            new int[] {count, columns});
+            matrix.get(NDArrayIndex.interval(start, start + count), NDArrayIndex.all()).assign(src);
+        }
 
-        writeWordVectors(vectors.lookupTable(), tempFileSyn0);
+        return Pair.makePair(matrix, numDocs);
+    }
 
-        BufferedInputStream fis = new BufferedInputStream(new FileInputStream(tempFileSyn0));
-        writeEntry(fis, zipfile);
-        fis.close();
+    /**
+     * This method builds lookup table and vocab out of binary syn0 and labels taken from frequencies table
+     */
+    private static Pair<InMemoryLookupTable, VocabCache> fromBinaryMatrix(@NonNull Pair<INDArray, Long> syn0,
+                    @NonNull List<Pair<String, double[]>> frequencies) {
+        if (syn0.getFirst() == null || syn0.getFirst().rows() != frequencies.size())
+            throw new DL4JInvalidInputException("Binary syn0 doesn't match vocabulary");
+
+        AbstractCache<VocabWord> cache = new AbstractCache<>();
+        cache.incrementTotalDocCount(syn0.getSecond());
+        for (Pair<String, double[]> pair : frequencies) {
+            VocabWord word = new VocabWord(1.0, pair.getFirst());
+            word.setIndex(cache.numWords());
+
+            cache.addToken(word);
+            cache.addWordToIndex(word.getIndex(), word.getLabel());
+            cache.putVocabWord(word.getLabel());
+        }
 
-        // writing out syn1
-        File tempFileSyn1 = File.createTempFile("paravec", "1");
-        tempFileSyn1.deleteOnExit();
+        InMemoryLookupTable lookupTable = (InMemoryLookupTable) new InMemoryLookupTable.Builder()
+                        .vectorLength(syn0.getFirst().columns()).useAdaGrad(false).cache(cache)
+                        .useHierarchicSoftmax(false).build();
+        lookupTable.setSyn0(syn0.getFirst());
 
-        INDArray syn1 = ((InMemoryLookupTable<VocabWord>) vectors.getLookupTable()).getSyn1();
+        return new Pair<>(lookupTable, (VocabCache) cache);
+    }
 
-        if (syn1 != null)
-            try (PrintWriter writer = new PrintWriter(new FileWriter(tempFileSyn1))) {
-                for (int x = 0; x < syn1.rows(); x++) {
-                    INDArray row = syn1.getRow(x);
-                    StringBuilder builder = new StringBuilder();
-                    for (int i = 0; i < row.length(); i++) {
-                        builder.append(row.getDouble(i)).append(" ");
-                    }
-                    writer.println(builder.toString().trim());
-                }
-            }
+    /**
+     * Options for zip model writers
+     */
+    public static class WriterOptions {
+        private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+        private boolean stored = false;
+        private boolean binaryTables = false;
+        private int workers = Runtime.getRuntime().availableProcessors();
+        private NearestNeighborsIndex index;
+
+        public int getCompressionLevel() {
+            return compressionLevel;
+        }
 
-        ZipEntry zSyn1 = new ZipEntry("syn1.txt");
-        zipfile.putNextEntry(zSyn1);
+        public boolean isStored() {
+            return stored;
+        }
 
-        fis = new BufferedInputStream(new FileInputStream(tempFileSyn1));
-        writeEntry(fis, zipfile);
-        fis.close();
+        public boolean isBinaryTables() {
+            return binaryTables;
+        }
 
-        File tempFileCodes = File.createTempFile("paravec", "h");
-        tempFileCodes.deleteOnExit();
+        public int getWorkers() {
+            return workers;
+        }
 
-        ZipEntry hC = new ZipEntry("codes.txt");
-        zipfile.putNextEntry(hC);
+        public NearestNeighborsIndex getIndex() {
+            return index;
+        }
 
-        // writing out huffman tree
-        try (PrintWriter writer = new PrintWriter(new FileWriter(tempFileCodes))) {
-            for (int i = 0; i < vectors.getVocab().numWords(); i++) {
-                VocabWord word = vectors.getVocab().elementAtIndex(i);
-                StringBuilder builder = new StringBuilder(encodeB64(word.getLabel())).append(" ");
-                for (int code : word.getCodes()) {
-                    builder.append(code).append(" ");
-                }
+        public static class Builder {
+            private WriterOptions options = new WriterOptions();
 
-                writer.println(builder.toString().trim());
+            /**
+             * Deflate compression level, 0-9. Default is Deflater.DEFAULT_COMPRESSION
+             */
+            public Builder compressionLevel(int level) {
+                options.compressionLevel = level;
+                return this;
             }
-        }
-
-        fis = new BufferedInputStream(new FileInputStream(tempFileCodes));
-        writeEntry(fis, zipfile);
-        fis.close();
 
+            /**
+             * If TRUE, zip entries will be STORED without compression at all
+             */
+            public Builder stored(boolean reallyStored) {
+                options.stored = reallyStored;
+                return this;
+            }
 
-        File tempFileHuffman = File.createTempFile("paravec", "h");
-        tempFileHuffman.deleteOnExit();
+            /**
+             * If TRUE, syn0, syn1 and syn1Neg will be saved as binary float tables instead of decimal text
+             */
+            public Builder binaryTables(boolean reallyBinary) {
+                options.binaryTables = reallyBinary;
+                return this;
+            }
 
-        ZipEntry hP = new ZipEntry("huffman.txt");
-        zipfile.putNextEntry(hP);
+            /**
+             * Number of threads used for tables serialization
+             */
+            public Builder workers(int numWorkers) {
+                options.workers = numWorkers;
+                return this;
+            }
 
-        // writing out huffman tree
-        try (PrintWriter writer = new PrintWriter(new FileWriter(tempFileHuffman))) {
-            for (int i = 0; i < vectors.getVocab().numWords(); i++) {
-                VocabWord word = vectors.getVocab().elementAtIndex(i);
-                StringBuilder builder = new StringBuilder(encodeB64(word.getLabel())).append(" ");
-                for (int point : word.getPoints()) {
-                    builder.append(point).append(" ");
-                }
+            /**
+             * Nearest neighbours index to be saved along with the model
+             */
+            public Builder index(NearestNeighborsIndex index) {
+                options.index = index;
+                return this;
+            }
 
-                writer.println(builder.toString().trim());
+            public WriterOptions build() {
+                return options;
             }
         }
+    }
 
-        fis = new BufferedInputStream(new FileInputStream(tempFileHuffman));
-        writeEntry(fis, zipfile);
-        fis.close();
+    /**
+     * Size and timing information for single zip entry written by model writers
+     */
+    @Data
+    @AllArgsConstructor
+    public static class EntryStats {
+        private String name;
+        private long bytes;
+        private long serializationTime;
+        private long archivingTime;
+    }
 
-        ZipEntry config = new ZipEntry("config.json");
-        zipfile.putNextEntry(config);
-        writeEntry(new ByteArrayInputStream(vectors.getConfiguration().toJson().getBytes()), zipfile);
+    /**
+     * Serialized table, waiting to be copied into zip archive
+     */
+    private static class SerializedTable {
+        private String name;
+        private File file;
+        private long bytes;
+        private long crc;
+        private long elapsed;
+    }
 
+    /**
+     * This is utility task, serializing single table into its own temporary file
+     */
+    private abstract static class TableTask implements Callable<SerializedTable> {
+        private final String name;
 
-        ZipEntry labels = new ZipEntry("labels.txt");
-        zipfile.putNextEntry(labels);
-        StringBuilder builder = new StringBuilder();
-        for (VocabWord word : vectors.getVocab().tokens()) {
-            if (word.isLabel())
-                builder.append(encodeB64(word.getLabel())).append("\n");
+        private TableTask(String name) {
+            this.name = name;
         }
-        writeEntry(new ByteArrayInputStream(builder.toString().trim().getBytes()), zipfile);
 
-        ZipEntry hF = new ZipEntry("frequencies.txt");
-        zipfile.putNextEntry(hF);
+        @Override
+        public SerializedTable call() throws IOException {
+            SerializedTable table = new SerializedTable();
+            table.name = name;
+            table.file = File.createTempFile("word2vec", "t");
+            table.file.deleteOnExit();
+
+            long time = System.currentTimeMillis();
+            CRC32 crc = new CRC32();
+            try (CheckedOutputStream stream = new CheckedOutputStream(
+                            new BufferedOutputStream(new FileOutputStream(table.file)), crc)) {
+                write(stream);
+                stream.flush();
+            }
 
+            table.crc = crc.getValue();
+            table.bytes = table.file.length();
+            table.elapsed = System.currentTimeMillis() - time;
+            return table;
+        }
 
-        File tempFileFreqs = File.createTempFile("paravec", "h");
-        tempFileFreqs.deleteOnExit();
+        protected abstract void write(OutputStream stream) throws IOException;
+    }
 
-        // writing out word frequencies
-        try (PrintWriter writer = new PrintWriter(new FileWriter(tempFileFreqs))) {
-            for (int i = 0; i < vectors.getVocab().numWords(); i++) {
-                VocabWord word = vectors.getVocab().elementAtIndex(i);
-                builder = new StringBuilder(encodeB64(word.getLabel())).append(" ").append(word.getElementFrequency())
-                                .append(" ").append(vectors.getVocab().docAppearedIn(word.getLabel()));
+    /**
+     * This method restores nearest neighbours index saved along with the model, if any, and attaches it to the model
+     */
+    private static void restoreIndex(ZipFile zipFile, WordVectorsImpl<VocabWord> vectors) throws IOException {
+        ZipEntry entry = zipFile.getEntry(INDEX_ENTRY);
+        if (entry == null)
+            return;
 
-                writer.println(builder.toString().trim());
-            }
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(zipFile.getInputStream(entry)))) {
+            vectors.setModelUtils(new IndexedModelUtils<VocabWord>(NearestNeighborsIndex.read(dis)));
         }
-
-        fis = new BufferedInputStream(new FileInputStream(tempFileFreqs));
-        writeEntry(fis, zipfile);
-        fis.close();
-
-        zipfile.flush();
-        zipfile.close();
     }
 
 
@@ -819,29 +1206,26 @@ public class WordVectorSerializer {
      * @return
      */
     public static ParagraphVectors readParagraphVectors(File file) throws IOException {
-        File tmpFileL = File.createTempFile("paravec", "l");
-        tmpFileL.deleteOnExit();
-
         Word2Vec w2v = readWord2Vec(file);
 
         // and "convert" it to ParaVec model + optionally trying to restore labels information
         ParagraphVectors vectors = new ParagraphVectors.Builder(w2v.getConfiguration()).vocabCache(w2v.getVocab())
                         .lookupTable(w2v.getLookupTable()).resetModel(false).build();
 
-        ZipFile zipFile = new ZipFile(file);
-
-        // now we try to restore labels information
-        ZipEntry labels = zipFile.getEntry("labels.txt");
-        if (labels != null) {
-            InputStream stream = zipFile.getInputStream(labels);
+        try (ZipFile zipFile = new ZipFile(file)) {
+            restoreIndex(zipFile, vectors);
 
-            Files.copy(stream, Paths.get(tmpFileL.getAbsolutePath()), StandardCopyOption.REPLACE_EXISTING);
-            try (BufferedReader reader = new BufferedReader(new FileReader(tmpFileL))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    VocabWord word = vectors.getVocab().tokenFor(decodeB64(line.trim()));
-                    if (word != null) {
-                        word.markAsLabel(true);
+            // now we try to restore labels information
+            ZipEntry labels = zipFile.getEntry("labels.txt");
+            if (labels != null) {
+                try (BufferedReader reader = new BufferedReader(
+                                new InputStreamReader(zipFile.getInputStream(labels), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        VocabWord word = vectors.getVocab().tokenFor(decodeB64(line.trim()));
+                        if (word != null) {
+                            word.markAsLabel(true);
+                        }
                     }
                 }
             }
@@ -857,24 +1241,14 @@ public class WordVectorSerializer {
      *
      * PLEASE NOTE: This method loads FULL model, so don't use it if you're only going to use weights.
      *
+     * Zip entries are parsed directly from archive streams, concurrently, without extraction to temporary files.
+     *
      * @param file
      * @return
      * @throws IOException
      */
     @Deprecated
     public static Word2Vec readWord2Vec(File file) throws IOException {
-        File tmpFileSyn0 = File.createTempFile("word2vec", "0");
-        File tmpFileSyn1 = File.createTempFile("word2vec", "1");
-        File tmpFileC = File.createTempFile("word2vec", "c");
-        File tmpFileH = File.createTempFile("word2vec", "h");
-        File tmpFileF = File.createTempFile("word2vec", "f");
-
-        tmpFileSyn0.deleteOnExit();
-        tmpFileSyn1.deleteOnExit();
-        tmpFileH.deleteOnExit();
-        tmpFileC.deleteOnExit();
-        tmpFileF.deleteOnExit();
-
         int originalFreq = Nd4j.getMemoryManager().getOccasionalGcFrequency();
         boolean originalPeriodic = Nd4j.getMemoryManager().isPeriodicGcActive();
 
@@ -883,88 +1257,135 @@ public class WordVectorSerializer {
 
         Nd4j.getMemoryManager().setOccasionalGcFrequency(50000);
 
-        try {
-
-
-            ZipFile zipFile = new ZipFile(file);
-            ZipEntry syn0 = zipFile.getEntry("syn0.txt");
-            InputStream stream = zipFile.getInputStream(syn0);
-
-            Files.copy(stream, Paths.get(tmpFileSyn0.getAbsolutePath()), StandardCopyOption.REPLACE_EXISTING);
-
-            ZipEntry syn1 = zipFile.getEntry("syn1.txt");
-            stream = zipFile.getInputStream(syn1);
-
-            Files.copy(stream, Paths.get(tmpFileSyn1.getAbsolutePath()), StandardCopyOption.REPLACE_EXISTING);
-
-            ZipEntry codes = zipFile.getEntry("codes.txt");
-            stream = zipFile.getInputStream(codes);
+        ExecutorService executor = Executors.newFixedThreadPool(
+                        Math.max(1, Math.min(ZIP_READER_THREADS, Runtime.getRuntime().availableProcessors())));
+        try (ZipFile zipFile = new ZipFile(file)) {
+            final boolean binary = zipFile.getEntry("syn0.bin") != null;
+            if (!binary && zipFile.getEntry("syn0.txt") == null)
+                throw new DL4JInvalidInputException("File [" + file.getAbsolutePath() + "] has no syn0.txt entry");
+
+            Future<Pair<InMemoryLookupTable, VocabCache>> syn0 = null;
+            Future<Pair<INDArray, Long>> binarySyn0 = null;
+            Future<INDArray> syn1;
+            Future<INDArray> syn1Neg;
+            if (binary) {
+                binarySyn0 = executor.submit(new BinaryEntryTask<Pair<INDArray, Long>>(zipFile, "syn0.bin") {
+                    @Override
+                    protected Pair<INDArray, Long> parse(DataInputStream stream) throws IOException {
+                        return readBinaryMatrix(stream);
+                    }
+                });
 
-            Files.copy(stream, Paths.get(tmpFileC.getAbsolutePath()), StandardCopyOption.REPLACE_EXISTING);
+                syn1 = executor.submit(new BinaryEntryTask<INDArray>(zipFile, "syn1.bin") {
+                    @Override
+                    protected INDArray parse(DataInputStream stream) throws IOException {
+                        return readBinaryMatrix(stream).getFirst();
+                    }
+                });
 
-            ZipEntry huffman = zipFile.getEntry("huffman.txt");
-            stream = zipFile.getInputStream(huffman);
+                syn1Neg = executor.submit(new BinaryEntryTask<INDArray>(zipFile, "syn1Neg.bin") {
+                    @Override
+                    protected INDArray parse(DataInputStream stream) throws IOException {
+                        return readBinaryMatrix(stream).getFirst();
+                    }
+                });
+            } else {
+                syn0 = executor.submit(new ZipEntryTask<Pair<InMemoryLookupTable, VocabCache>>(zipFile, "syn0.txt") {
+                    @Override
+                    protected Pair<InMemoryLookupTable, VocabCache> parse(BufferedReader reader) {
+                        return loadTxt(reader);
+                    }
+                });
 
-            Files.copy(stream, Paths.get(tmpFileH.getAbsolutePath()), StandardCopyOption.REPLACE_EXISTING);
+                syn1 = executor.submit(new ZipEntryTask<INDArray>(zipFile, "syn1.txt") {
+                    @Override
+                    protected INDArray parse(BufferedReader reader) throws IOException {
+                        return readMatrix(reader);
+                    }
+                });
 
-            ZipEntry config = zipFile.getEntry("config.json");
-            stream = zipFile.getInputStream(config);
-            StringBuilder builder = new StringBuilder();
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    builder.append(line);
-                }
+                syn1Neg = executor.submit(new ZipEntryTask<INDArray>(zipFile, "syn1Neg.txt") {
+                    @Override
+                    protected INDArray parse(BufferedReader reader) throws IOException {
+                        return readMatrix(reader);
+                    }
+                });
             }
 
-            VectorsConfiguration configuration = VectorsConfiguration.fromJson(builder.toString().trim());
-
-            // we read first 4 files as w2v model
-            Word2Vec w2v = readWord2VecFromText(tmpFileSyn0, tmpFileSyn1, tmpFileC, tmpFileH, configuration);
-
-            // we read frequencies from frequencies.txt, however it's possible that we might not have this file
-            ZipEntry frequencies = zipFile.getEntry("frequencies.txt");
-            if (frequencies != null) {
-                stream = zipFile.getInputStream(frequencies);
-                try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream))) {
+            Future<List<Pair<String, List<Byte>>>> codes =
+                            executor.submit(new ZipEntryTask<List<Pair<String, List<Byte>>>>(zipFile, "codes.txt") {
+                                @Override
+                                protected List<Pair<String, List<Byte>>> parse(BufferedReader reader)
+                                                throws IOException {
+                                    return readCodes(reader);
+                                }
+                            });
+
+            Future<List<Pair<String, List<Integer>>>> points =
+                            executor.submit(new ZipEntryTask<List<Pair<String, List<Integer>>>>(zipFile, "huffman.txt") {
+                                @Override
+                                protected List<Pair<String, List<Integer>>> parse(BufferedReader reader)
+                                                throws IOException {
+                                    return readPoints(reader);
+                                }
+                            });
+
+            Future<List<Pair<String, double[]>>> frequencies =
+                            executor.submit(new ZipEntryTask<List<Pair<String, double[]>>>(zipFile, "frequencies.txt") {
+                                @Override
+                                protected List<Pair<String, double[]>> parse(BufferedReader reader) throws IOException {
+                                    return readFrequencies(reader);
+                                }
+                            });
+
+            Future<String> config = executor.submit(new ZipEntryTask<String>(zipFile, "config.json") {
+                @Override
+                protected String parse(BufferedReader reader) throws IOException {
+                    StringBuilder builder = new StringBuilder();
                     String line;
                     while ((line = reader.readLine()) != null) {
-                        String[] split = line.split(" ");
-                        VocabWord word = w2v.getVocab().tokenFor(decodeB64(split[0]));
-                        word.setElementFrequency((long) Double.parseDouble(split[1]));
-                        word.setSequencesCount((long) Double.parseDouble(split[2]));
+                        builder.append(line);
                     }
+                    return builder.toString().trim();
                 }
-            }
+            });
 
+            VectorsConfiguration configuration = VectorsConfiguration.fromJson(await(config));
 
-            ZipEntry zsyn1Neg = zipFile.getEntry("syn1Neg.txt");
-            if (zsyn1Neg != null) {
-                stream = zipFile.getInputStream(zsyn1Neg);
+            // we read frequencies from frequencies.txt, however it's possible that we might not have this file
+            List<Pair<String, double[]>> freqs = await(frequencies);
 
-                try (InputStreamReader isr = new InputStreamReader(stream);
-                                BufferedReader reader = new BufferedReader(isr)) {
-                    String line = null;
-                    List<INDArray> rows = new ArrayList<>();
-                    while ((line = reader.readLine()) != null) {
-                        String[] split = line.split(" ");
-                        double array[] = new double[split.length];
-                        for (int i = 0; i < split.length; i++) {
-                            array[i] = Double.parseDouble(split[i]);
-                        }
-                        rows.add(Nd4j.create(array));
-                    }
+            // binary syn0 has no labels, so vocabulary comes from frequencies table
+            Pair<InMemoryLookupTable, VocabCache> pair;
+            if (binary) {
+                if (freqs == null)
+                    throw new DL4JInvalidInputException("File [" + file.getAbsolutePath() + "] has no frequencies.txt entry");
 
-                    // it's possible to have full model without syn1Neg
-                    if (rows.size() > 0) {
-                        INDArray syn1Neg = Nd4j.vstack(rows);
-                        ((InMemoryLookupTable) w2v.getLookupTable()).setSyn1Neg(syn1Neg);
-                    }
+                pair = fromBinaryMatrix(await(binarySyn0), freqs);
+            } else
+                pair = await(syn0);
+
+            Word2Vec w2v = buildWord2Vec(pair, await(syn1), await(codes), await(points), configuration);
+
+            if (freqs != null) {
+                for (Pair<String, double[]> freq : freqs) {
+                    VocabWord word = w2v.getVocab().tokenFor(freq.getFirst());
+                    word.setElementFrequency((long) freq.getSecond()[0]);
+                    word.setSequencesCount((long) freq.getSecond()[1]);
                 }
             }
 
+            // it's possible to have full model without syn1Neg
+            INDArray negative = await(syn1Neg);
+            if (negative != null)
+                ((InMemoryLookupTable) w2v.getLookupTable()).setSyn1Neg(negative);
+
+            restoreIndex(zipFile, w2v);
+
             return w2v;
         } finally {
+            executor.shutdownNow();
+
             if (originalPeriodic)
                 Nd4j.getMemoryManager().togglePeriodicGc(true);
 
@@ -972,6 +1393,79 @@ public class WordVectorSerializer {
         }
     }
 
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * This is utility task, parsing single zip entry straight from archive stream.
+     * If entry is absent, null is returned.
+     */
+    private abstract static class ZipEntryTask<T> implements Callable<T> {
+        private final ZipFile zipFile;
+        private final String name;
+
+        private ZipEntryTask(ZipFile zipFile, String name) {
+            this.zipFile = zipFile;
+            this.name = name;
+        }
+
+        @Override
+        public T call() throws IOException {
+            ZipEntry entry = zipFile.getEntry(name);
+            if (entry == null)
+                return null;
+
+            try (BufferedReader reader = new BufferedReader(
+                            new InputStreamReader(zipFile.getInputStream(entry), StandardCharsets.UTF_8))) {
+                return parse(reader);
+            }
+        }
+
+        protected abstract T parse(BufferedReader reader) throws IOException;
+    }
+
+    /**
+     * This is utility task, parsing single binary zip entry straight from archive stream.
+     * If entry is absent, null is returned.
+     */
+    private abstract static class BinaryEntryTask<T> implements Callable<T> {
+        private final ZipFile zipFile;
+        private final String name;
+
+        private BinaryEntryTask(ZipFile zipFile, String name) {
+            this.zipFile = zipFile;
+            this.name = name;
+        }
+
+        @Override
+        public T call() throws IOException {
+            ZipEntry entry = zipFile.getEntry(name);
+            if (entry == null)
+                return null;
+
+            try (DataInputStream stream = new DataInputStream(
+                            new BufferedInputStream(zipFile.getInputStream(entry)))) {
+                return parse(stream);
+            }
+        }
+
+        protected abstract T parse(DataInputStream stream) throws IOException;
+    }
+
     /**
      * This method restores ParagraphVectors model previously saved with writeParagraphVectors()
      *
@@ -1005,14 +1499,73 @@ public class WordVectorSerializer {
                     @NonNull File h_points, @NonNull VectorsConfiguration configuration) throws IOException {
         // first we load syn0
         Pair<InMemoryLookupTable, VocabCache> pair = loadTxt(vectors);
+
+        // now we load syn1
+        INDArray syn1;
+        try (BufferedReader reader = new BufferedReader(new FileReader(hs))) {
+            syn1 = readMatrix(reader);
+        }
+
+        List<Pair<String, List<Integer>>> points;
+        try (BufferedReader reader = new BufferedReader(new FileReader(h_points))) {
+            points = readPoints(reader);
+        }
+
+        List<Pair<String, List<Byte>>> codes;
+        try (BufferedReader reader = new BufferedReader(new FileReader(h_codes))) {
+            codes = readCodes(reader);
+        }
+
+        return buildWord2Vec(pair, syn1, codes, points, configuration);
+    }
+
+    /**
+     * This method assembles Word2Vec model out of previously parsed syn0, syn1 and huffman tree
+     */
+    private static Word2Vec buildWord2Vec(@NonNull Pair<InMemoryLookupTable, VocabCache> pair, INDArray syn1,
+                    List<Pair<String, List<Byte>>> codes, List<Pair<String, List<Integer>>> points,
+                    @NonNull VectorsConfiguration configuration) {
         InMemoryLookupTable lookupTable = pair.getFirst();
         lookupTable.setNegative(configuration.getNegative());
         if (configuration.getNegative() > 0)
             lookupTable.initNegative();
         VocabCache<VocabWord> vocab = (VocabCache<VocabWord>) pair.getSecond();
 
-        // now we load syn1
-        BufferedReader reader = new BufferedReader(new FileReader(hs));
+        // it's possible to have full model without syn1
+        if (syn1 != null)
+            lookupTable.setSyn1(syn1);
+
+        // now we transform mappings into huffman tree points
+        if (points != null)
+            for (Pair<String, List<Integer>> point : points) {
+                vocab.wordFor(point.getFirst()).setPoints(point.getSecond());
+            }
+
+        // now we transform mappings into huffman tree codes
+        if (codes != null)
+            for (Pair<String, List<Byte>> code : codes) {
+                VocabWord word = vocab.wordFor(code.getFirst());
+                word.setCodes(code.getSecond());
+                word.setCodeLength((short) code.getSecond().size());
+            }
+
+        Word2Vec.Builder builder = new Word2Vec.Builder(configuration).vocabCache(vocab).lookupTable(lookupTable)
+                        .resetModel(false);
+
+        TokenizerFactory factory = getTokenizerFactory(configuration);
+
+        if (factory != null)
+            builder.tokenizerFactory(factory);
+
+        Word2Vec w2v = builder.build();
+
+        return w2v;
+    }
+
+    /**
+     * This method reads space-separated matrix, one row per line. Returns null if there's no rows
+     */
+    private static INDArray readMatrix(BufferedReader reader) throws IOException {
         String line = null;
         List<INDArray> rows = new ArrayList<>();
         while ((line = reader.readLine()) != null) {
@@ -1023,53 +1576,47 @@ public class WordVectorSerializer {
             }
             rows.add(Nd4j.create(array));
         }
-        reader.close();
 
-        // it's possible to have full model without syn1
-        if (rows.size() > 0) {
-            INDArray syn1 = Nd4j.vstack(rows);
-            lookupTable.setSyn1(syn1);
-        }
+        return rows.isEmpty() ? null : Nd4j.vstack(rows);
+    }
 
-        // now we transform mappings into huffman tree points
-        reader = new BufferedReader(new FileReader(h_points));
+    private static List<Pair<String, List<Byte>>> readCodes(BufferedReader reader) throws IOException {
+        String line = null;
+        List<Pair<String, List<Byte>>> result = new ArrayList<>();
         while ((line = reader.readLine()) != null) {
             String[] split = line.split(" ");
-            VocabWord word = vocab.wordFor(decodeB64(split[0]));
-            List<Integer> points = new ArrayList<>();
+            List<Byte> codes = new ArrayList<>();
             for (int i = 1; i < split.length; i++) {
-                points.add(Integer.parseInt(split[i]));
+                codes.add(Byte.parseByte(split[i]));
             }
-            word.setPoints(points);
+            result.add(Pair.makePair(decodeB64(split[0]), codes));
         }
-        reader.close();
-
+        return result;
+    }
 
-        // now we transform mappings into huffman tree codes
-        reader = new BufferedReader(new FileReader(h_codes));
+    private static List<Pair<String, List<Integer>>> readPoints(BufferedReader reader) throws IOException {
+        String line = null;
+        List<Pair<String, List<Integer>>> result = new ArrayList<>();
         while ((line = reader.readLine()) != null) {
             String[] split = line.split(" ");
-            VocabWord word = vocab.wordFor(decodeB64(split[0]));
-            List<Byte> codes = new ArrayList<>();
+            List<Integer> points = new ArrayList<>();
             for (int i = 1; i < split.length; i++) {
-                codes.add(Byte.parseByte(split[i]));
+                points.add(Integer.parseInt(split[i]));
             }
-            word.setCodes(codes);
-            word.setCodeLength((short) codes.size());
+            result.add(Pair.makePair(decodeB64(split[0]), points));
         }
-        reader.close();
-
-        Word2Vec.Builder builder = new Word2Vec.Builder(configuration).vocabCache(vocab).lookupTable(lookupTable)
-                        .resetModel(false);
-
-        TokenizerFactory factory = getTokenizerFactory(configuration);
-
-        if (factory != null)
-            builder.tokenizerFactory(factory);
-
-        Word2Vec w2v = builder.build();
+        return result;
+    }
 
-        return w2v;
+    private static List<Pair<String, double[]>> readFrequencies(BufferedReader reader) throws IOException {
+        String line = null;
+        List<Pair<String, double[]>> result = new ArrayList<>();
+        while ((line = reader.readLine()) != null) {
+            String[] split = line.split(" ");
+            result.add(Pair.makePair(decodeB64(split[0]),
+                            new double[] {Double.parseDouble(split[1]), Double.parseDouble(split[2])}));
+        }
+        return result;
     }
 
 
@@ -1722,6 +2269,23 @@ public class WordVectorSerializer {
     public static Pair<InMemoryLookupTable, VocabCache> loadTxt(File vectorsFile)
                     throws FileNotFoundException, UnsupportedEncodingException {
         BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(vectorsFile), "UTF-8"));
+        try {
+            return loadTxt(reader);
+        } finally {
+            try {
+                reader.close();
+            } catch (Exception e) {
+            }
+        }
+    }
+
+    /**
+     * Loads an in memory cache from the given reader (sets syn0 and the vocab)
+     *
+     * @param reader reader positioned at the beginning of text model
+     * @return a Pair holding the lookup table and the vocab cache.
+     */
+    private static Pair<InMemoryLookupTable, VocabCache> loadTxt(BufferedReader reader) {
         AbstractCache cache = new AbstractCache<>();
 
         LineIterator iter = IOUtils.lineIterator(reader);
@@ -1741,8 +2305,6 @@ public class WordVectorSerializer {
                     for (int x = 0; x < split.length; x++) {
                         header[x] = Long.parseLong(split[x]);
                     }
-                    if (split.length < 4)
-                        hasHeader = true;
                     // now we know, if that's all ints - it's just a header
                     // [0] - number of words
                     // [1] - vectorSize
@@ -1753,11 +2315,6 @@ public class WordVectorSerializer {
                     printOutProjectedMemoryUse(header[0], (int) header[1], 1);
 
                     hasHeader = true;
-
-                    try {
-                        reader.close();
-                    } catch (Exception ex) {
-                    }
                 } catch (Exception e) {
                     // if any conversion exception hits - that'll be considered header
                     hasHeader = false;
@@ -1767,18 +2324,13 @@ public class WordVectorSerializer {
 
         }
 
-        //reposition buffer to be one line ahead
-        if (hasHeader) {
-            line = "";
-            iter.close();
-            reader = new BufferedReader(new FileReader(vectorsFile));
-            iter = IOUtils.lineIterator(reader);
-            iter.nextLine();
-        }
+        // if first line wasn't a header, it holds first vector
+        if (hasHeader)
+            line = null;
 
         List<INDArray> arrays = new ArrayList<>();
-        while (iter.hasNext()) {
-            if (line.isEmpty())
+        while (line != null || iter.hasNext()) {
+            if (line == null)
                 line = iter.nextLine();
             String[] split = line.split(" ");
             String word = decodeB64(split[0]); //split[0].replaceAll(whitespaceReplacement, " ");
@@ -1802,8 +2354,7 @@ public class WordVectorSerializer {
 
             arrays.add(row);
 
-            // workaround for skipped first row
-            line = "";
+            line = null;
         }
 
         INDArray syn = Nd4j.vstack(arrays);
@@ -1816,119 +2367,459 @@ public class WordVectorSerializer {
 
         lookupTable.setSyn0(syn);
 
-        iter.close();
-
-        try {
-            reader.close();
-        } catch (Exception e) {
-        }
-
         return new Pair<>(lookupTable, (VocabCache) cache);
     }
 
     /**
-     * This method can be used to load previously saved model from InputStream (like a HDFS-stream)
+     * Loads an in memory cache from the given path (sets syn0 and the vocab), using given number of worker threads.
      *
-     * Deprecation note: Please, consider using readWord2VecModel() or loadStaticModel() method instead
+     * File is split into line-aligned byte ranges, each range is parsed independently, and rows are placed into
+     * preallocated syn0 in file order, so vocab indices are the same as with single-threaded loadTxt().
      *
-     * @param stream InputStream that contains previously serialized model
-     * @param skipFirstLine Set this TRUE if first line contains csv header, FALSE otherwise
-     * @return
+     * PLEASE NOTE: compressed files can't be split, so they're loaded with loadTxt() instead.
+     *
+     * @param vectorsFile the path of the file to load
+     * @param numWorkers number of parser threads
+     * @return a Pair holding the lookup table and the vocab cache.
      * @throws IOException
      */
-    @Deprecated
-    public static WordVectors loadTxtVectors(@NonNull InputStream stream, boolean skipFirstLine) throws IOException {
-        AbstractCache<VocabWord> cache = new AbstractCache.Builder<VocabWord>().build();
+    public static Pair<InMemoryLookupTable, VocabCache> loadTxt(@NonNull File vectorsFile, int numWorkers)
+                    throws IOException {
+        if (numWorkers < 2 || GzipUtils.isCompressedFilename(vectorsFile.getName()))
+            return loadTxt(vectorsFile);
+
+        AbstractCache<VocabWord> cache = new AbstractCache<>();
+        List<TextChunk> chunks = new ArrayList<>();
+        INDArray syn;
+        int vectorLength;
+
+        ExecutorService executor = Executors.newFixedThreadPool(numWorkers);
+        try (FileChannel channel = FileChannel.open(vectorsFile.toPath(), StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long dataStart = 0;
+
+            // header detection follows loadTxt() rules
+            long firstLineEnd = lineEnd(channel, 0);
+            String[] split = readLine(channel, 0, firstLineEnd).split(" ");
+            try {
+                long[] header = new long[split.length];
+                for (int x = 0; x < split.length; x++) {
+                    header[x] = Long.parseLong(split[x]);
+                }
 
-        BufferedReader reader = new BufferedReader(new InputStreamReader(stream));
-        String line = "";
-        List<INDArray> arrays = new ArrayList<>();
+                // [0] - number of words
+                // [1] - vectorSize
+                // [2] - number of documents <-- DL4j-only value
+                if (split.length == 3)
+                    cache.incrementTotalDocCount(header[2]);
 
-        if (skipFirstLine)
-            reader.readLine();
+                if (split.length > 1)
+                    printOutProjectedMemoryUse(header[0], (int) header[1], 1);
 
-        while ((line = reader.readLine()) != null) {
-            String[] split = line.split(" ");
-            String word = split[0].replaceAll(whitespaceReplacement, " ");
-            VocabWord word1 = new VocabWord(1.0, word);
+                dataStart = firstLineEnd;
+            } catch (NumberFormatException e) {
+                // that's not a header, just a first row
+                if (split.length == 1)
+                    dataStart = firstLineEnd;
+            }
 
-            word1.setIndex(cache.numWords());
+            if (dataStart >= fileSize)
+                throw new DL4JInvalidInputException("File [" + vectorsFile.getAbsolutePath() + "] has no vectors");
 
-            cache.addToken(word1);
+            vectorLength = readLine(channel, dataStart, lineEnd(channel, dataStart)).trim().split(" +").length - 1;
 
-            cache.addWordToIndex(word1.getIndex(), word);
+            // splitting file into line-aligned chunks
+            int numChunks = (int) Math.max(numWorkers, (fileSize - dataStart) / TEXT_CHUNK_SIZE + 1);
+            long chunkSize = (fileSize - dataStart) / numChunks + 1;
+            long start = dataStart;
+            while (start < fileSize) {
+                long end = lineEnd(channel, Math.min(fileSize, start + chunkSize) - 1);
+                chunks.add(new TextChunk(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start)));
+                start = end;
+            }
 
-            cache.putVocabWord(word);
+            // first pass: counting rows in each chunk, so each chunk knows its first row index
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (final TextChunk chunk : chunks) {
+                tasks.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        chunk.countRows();
+                        return null;
+                    }
+                });
+            }
+            invokeAll(executor, tasks);
 
-            float[] vector = new float[split.length - 1];
+            int numRows = 0;
+            for (TextChunk chunk : chunks) {
+                chunk.firstRow = numRows;
+                numRows += chunk.numRows;
+            }
 
-            for (int i = 1; i < split.length; i++) {
-                vector[i - 1] = Float.parseFloat(split[i]);
+            // second pass: parsing rows straight into syn0
+            syn = Nd4j.create(numRows, vectorLength);
+            tasks.clear();
+            for (final TextChunk chunk : chunks) {
+                final INDArray target = syn;
+                final int length = vectorLength;
+                tasks.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        chunk.parseRows(target, length);
+                        return null;
+                    }
+                });
             }
+            invokeAll(executor, tasks);
+        } finally {
+            executor.shutdownNow();
+        }
 
-            INDArray row = Nd4j.create(vector);
+        for (TextChunk chunk : chunks) {
+            for (String word : chunk.words) {
+                VocabWord word1 = new VocabWord(1.0, word);
+                word1.setIndex(cache.numWords());
 
-            arrays.add(row);
+                cache.addToken(word1);
+                cache.addWordToIndex(word1.getIndex(), word);
+                cache.putVocabWord(word);
+            }
         }
 
-        InMemoryLookupTable<VocabWord> lookupTable =
-                        (InMemoryLookupTable<VocabWord>) new InMemoryLookupTable.Builder<VocabWord>()
-                                        .vectorLength(arrays.get(0).columns()).cache(cache).build();
-
-        INDArray syn = Nd4j.vstack(arrays);
+        InMemoryLookupTable lookupTable =
+                        (InMemoryLookupTable) new InMemoryLookupTable.Builder().vectorLength(vectorLength)
+                                        .useAdaGrad(false).cache(cache).useHierarchicSoftmax(false).build();
+        if (Nd4j.ENFORCE_NUMERICAL_STABILITY)
+            Nd4j.clearNans(syn);
 
-        Nd4j.clearNans(syn);
         lookupTable.setSyn0(syn);
 
-        return fromPair(Pair.makePair((InMemoryLookupTable) lookupTable, (VocabCache) cache));
+        return new Pair<>(lookupTable, (VocabCache) cache);
+    }
+
+    private static void invokeAll(ExecutorService executor, List<Callable<Void>> tasks) {
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks))
+                future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
     }
 
     /**
-     * Write the tsne format
-     *
-     * @param vec
-     *            the word vectors to use for labeling
-     * @param tsne
-     *            the tsne array to write
-     * @param csv
-     *            the file to use
-     * @throws Exception
+     * This method returns position right after the first linebreak found at or after given position, or end of file
      */
-    public static void writeTsneFormat(Glove vec, INDArray tsne, File csv) throws Exception {
-        BufferedWriter write = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(csv), "UTF-8"));
-        int words = 0;
-        InMemoryLookupCache l = (InMemoryLookupCache) vec.vocab();
-        for (String word : vec.vocab().words()) {
-            if (word == null) {
-                continue;
-            }
-            StringBuilder sb = new StringBuilder();
-            INDArray wordVector = tsne.getRow(l.wordFor(word).getIndex());
-            for (int j = 0; j < wordVector.length(); j++) {
-                sb.append(wordVector.getDouble(j));
-                if (j < wordVector.length() - 1) {
-                    sb.append(",");
-                }
+    private static long lineEnd(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long offset = position;
+        while (offset < channel.size()) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == 10)
+                    return offset + i + 1;
             }
-            sb.append(",");
-            sb.append(word.replaceAll(" ", whitespaceReplacement));
-            sb.append(" ");
-
-            sb.append("\n");
-            write.write(sb.toString());
-
+            offset += read;
         }
+        return channel.size();
+    }
 
-        log.info("Wrote " + words + " with size of " + vec.lookupTable().layerSize());
-        write.flush();
-        write.close();
+    private static String readLine(FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) > 0);
 
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8).trim();
     }
 
     /**
-     * Write the tsne format
+     * This method parses decimal float from bytes [from, to) of given buffer, without allocating anything.
+     * Values that aren't plain decimal numbers (i.e. NaN or Infinity) are handed over to Float.parseFloat().
      *
-     * @param vec
+     * PLEASE NOTE: mantissa is capped at 18 significant digits, so result might differ from Float.parseFloat() in last ulp in rare cases.
+     */
+    protected static float parseFloat(ByteBuffer buffer, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean hasDigits = false;
+
+        for (; i < to && buffer.get(i) >= '0' && buffer.get(i) <= '9'; i++) {
+            hasDigits = true;
+            if (digits < 18) {
+                mantissa = mantissa * 10 + (buffer.get(i) - '0');
+                if (mantissa != 0)
+                    digits++;
+            } else
+                exponent++;
+        }
+
+        if (i < to && buffer.get(i) == '.') {
+            for (i++; i < to && buffer.get(i) >= '0' && buffer.get(i) <= '9'; i++) {
+                hasDigits = true;
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (buffer.get(i) - '0');
+                    if (mantissa != 0)
+                        digits++;
+                    exponent--;
+                }
+            }
+        }
+
+        if (hasDigits && i < to && (buffer.get(i) == 'e' || buffer.get(i) == 'E')) {
+            i++;
+            boolean negativeExp = false;
+            if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+                negativeExp = buffer.get(i) == '-';
+                i++;
+            }
+
+            int exp = 0;
+            int start = i;
+            for (; i < to && buffer.get(i) >= '0' && buffer.get(i) <= '9' && exp < 1000; i++)
+                exp = exp * 10 + (buffer.get(i) - '0');
+
+            if (i == start)
+                hasDigits = false;
+
+            exponent += negativeExp ? -exp : exp;
+        }
+
+        if (!hasDigits || i != to || Math.abs(exponent) >= POWERS_OF_TEN.length) {
+            byte[] bytes = new byte[to - from];
+            for (int j = 0; j < bytes.length; j++)
+                bytes[j] = buffer.get(from + j);
+
+            return Float.parseFloat(new String(bytes, StandardCharsets.UTF_8));
+        }
+
+        double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+        return (float) (negative ? -value : value);
+    }
+
+    /**
+     * This is utility holder class for one line-aligned part of text model, used by parallel loadTxt()
+     */
+    private static class TextChunk {
+        private final MappedByteBuffer buffer;
+        private int firstRow;
+        private int numRows;
+        private String[] words;
+
+        private TextChunk(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private void countRows() {
+            int position = 0;
+            int limit = buffer.limit();
+            while (position < limit) {
+                int eol = lineEnd(position);
+                if (contentEnd(position, eol) > position)
+                    numRows++;
+                position = eol + 1;
+            }
+        }
+
+        private void parseRows(INDArray syn0, int vectorLength) {
+            words = new String[numRows];
+
+            int blockRows = Math.max(1, Math.min(numRows, MAPPED_BLOCK_SIZE / Math.max(1, vectorLength)));
+            float[] block = new float[blockRows * vectorLength];
+            byte[] scratch = new byte[MAX_SIZE];
+            int blockStart = 0;
+            int row = 0;
+
+            int position = 0;
+            int limit = buffer.limit();
+            while (position < limit) {
+                int eol = lineEnd(position);
+                int end = contentEnd(position, eol);
+                if (end > position) {
+                    int wordEnd = position;
+                    while (wordEnd < end && buffer.get(wordEnd) != ' ')
+                        wordEnd++;
+
+                    if (scratch.length < wordEnd - position)
+                        scratch = new byte[wordEnd - position];
+                    for (int i = position; i < wordEnd; i++)
+                        scratch[i - position] = buffer.get(i);
+
+                    words[row] = decodeB64(new String(scratch, 0, wordEnd - position, StandardCharsets.UTF_8));
+
+                    int offset = (row - blockStart) * vectorLength;
+                    int column = 0;
+                    int tokenStart = wordEnd;
+                    while (tokenStart < end) {
+                        if (buffer.get(tokenStart) == ' ') {
+                            tokenStart++;
+                            continue;
+                        }
+
+                        int tokenEnd = tokenStart;
+                        while (tokenEnd < end && buffer.get(tokenEnd) != ' ')
+                            tokenEnd++;
+
+                        if (column == vectorLength)
+                            throw new DL4JInvalidInputException("Row [" + (firstRow + row) + "] has more than "
+                                            + vectorLength + " values");
+
+                        block[offset + column++] = parseFloat(buffer, tokenStart, tokenEnd);
+                        tokenStart = tokenEnd;
+                    }
+
+                    if (column != vectorLength)
+                        throw new DL4JInvalidInputException("Row [" + (firstRow + row) + "] has " + column
+                                        + " values, " + vectorLength + " expected");
+
+                    row++;
+                    if (row - blockStart == blockRows || row == numRows) {
+                        int rows = row - blockStart;
+                        INDArray src = Nd4j.create(rows == blockRows ? block : Arrays.copyOf(block, rows * vectorLength),
+                                        new int[] {rows, vectorLength});
+                        syn0.get(NDArrayIndex.interval(firstRow + blockStart, firstRow + row), NDArrayIndex.all())
+                                        .assign(src);
+                        blockStart = row;
+                    }
+                }
+                position = eol + 1;
+            }
+        }
+
+        private int lineEnd(int position) {
+            int limit = buffer.limit();
+            while (position < limit && buffer.get(position) != 10)
+                position++;
+            return position;
+        }
+
+        /**
+         * Returns end of line content, ignoring trailing carriage return and spaces
+         */
+        private int contentEnd(int start, int eol) {
+            int end = eol;
+            while (end > start && (buffer.get(end - 1) == 13 || buffer.get(end - 1) == 32))
+                end--;
+            return end;
+        }
+    }
+
+    /**
+     * This method can be used to load previously saved model from InputStream (like a HDFS-stream)
+     *
+     * Deprecation note: Please, consider using readWord2VecModel() or loadStaticModel() method instead
+     *
+     * @param stream InputStream that contains previously serialized model
+     * @param skipFirstLine Set this TRUE if first line contains csv header, FALSE otherwise
+     * @return
+     * @throws IOException
+     */
+    @Deprecated
+    public static WordVectors loadTxtVectors(@NonNull InputStream stream, boolean skipFirstLine) throws IOException {
+        AbstractCache<VocabWord> cache = new AbstractCache.Builder<VocabWord>().build();
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(stream));
+        String line = "";
+        List<INDArray> arrays = new ArrayList<>();
+
+        if (skipFirstLine)
+            reader.readLine();
+
+        while ((line = reader.readLine()) != null) {
+            String[] split = line.split(" ");
+            String word = split[0].replaceAll(whitespaceReplacement, " ");
+            VocabWord word1 = new VocabWord(1.0, word);
+
+            word1.setIndex(cache.numWords());
+
+            cache.addToken(word1);
+
+            cache.addWordToIndex(word1.getIndex(), word);
+
+            cache.putVocabWord(word);
+
+            float[] vector = new float[split.length - 1];
+
+            for (int i = 1; i < split.length; i++) {
+                vector[i - 1] = Float.parseFloat(split[i]);
+            }
+
+            INDArray row = Nd4j.create(vector);
+
+            arrays.add(row);
+        }
+
+        InMemoryLookupTable<VocabWord> lookupTable =
+                        (InMemoryLookupTable<VocabWord>) new InMemoryLookupTable.Builder<VocabWord>()
+                                        .vectorLength(arrays.get(0).columns()).cache(cache).build();
+
+        INDArray syn = Nd4j.vstack(arrays);
+
+        Nd4j.clearNans(syn);
+        lookupTable.setSyn0(syn);
+
+        return fromPair(Pair.makePair((InMemoryLookupTable) lookupTable, (VocabCache) cache));
+    }
+
+    /**
+     * Write the tsne format
+     *
+     * @param vec
+     *            the word vectors to use for labeling
+     * @param tsne
+     *            the tsne array to write
+     * @param csv
+     *            the file to use
+     * @throws Exception
+     */
+    public static void writeTsneFormat(Glove vec, INDArray tsne, File csv) throws Exception {
+        BufferedWriter write = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(csv), "UTF-8"));
+        int words = 0;
+        InMemoryLookupCache l = (InMemoryLookupCache) vec.vocab();
+        for (String word : vec.vocab().words()) {
+            if (word == null) {
+                continue;
+            }
+            StringBuilder sb = new StringBuilder();
+            INDArray wordVector = tsne.getRow(l.wordFor(word).getIndex());
+            for (int j = 0; j < wordVector.length(); j++) {
+                sb.append(wordVector.getDouble(j));
+                if (j < wordVector.length() - 1) {
+                    sb.append(",");
+                }
+            }
+            sb.append(",");
+            sb.append(word.replaceAll(" ", whitespaceReplacement));
+            sb.append(" ");
+
+            sb.append("\n");
+            write.write(sb.toString());
+
+        }
+
+        log.info("Wrote " + words + " with size of " + vec.lookupTable().layerSize());
+        write.flush();
+        write.close();
+
+    }
+
+    /**
+     * Write the tsne format
+     *
+     * @param vec
      *            the word vectors to use for labeling
      * @param tsne
      *            the tsne array to write
@@ -2208,463 +3099,2415 @@ public class WordVectorSerializer {
     }
 
     /**
-     * This is utility holder class
-     */
-    @Data
-    @NoArgsConstructor
-    @AllArgsConstructor
-    private static class ElementPair {
-        private String object;
-        private double[] vector;
-
-        /**
-         * This utility method serializes ElementPair into JSON + packs it into Base64-encoded string
-         *
-         * @return
-         */
-        protected String toEncodedJson() {
-            ObjectMapper mapper = SequenceElement.mapper();
-            Base64 base64 = new Base64(Integer.MAX_VALUE);
-            try {
-                String json = mapper.writeValueAsString(this);
-                String output = base64.encodeAsString(json.getBytes("UTF-8"));
-                return output;
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-        }
-
-        /**
-         * This utility method returns ElementPair from Base64-encoded string
-         *
-         * @param encoded
-         * @return
-         */
-        protected static ElementPair fromEncodedJson(String encoded) {
-            ObjectMapper mapper = SequenceElement.mapper();
-            try {
-                String decoded = new String(Base64.decodeBase64(encoded), "UTF-8");
-                return mapper.readValue(decoded, ElementPair.class);
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        }
-    }
-
-    /**
-     * This method
-     * 1) Binary model, either compressed or not. Like well-known Google Model
-     * 2) Popular CSV word2vec text format
-     * 3) DL4j compressed format
-     *
-     * Please note: Only weights will be loaded by this method.
+     * This method reads vocab cache from provided file.
+     * Please note: it reads only vocab content, so it's suitable mostly for BagOfWords/TF-IDF vectorizers
      *
      * @param file
+     * @param lazy if TRUE, read-only MappedVocabCache will be returned, materializing VocabWords on demand only
      * @return
+     * @throws IOException
      */
-    public static Word2Vec readWord2VecModel(@NonNull File file) {
-        return readWord2VecModel(file, false);
+    public static VocabCache<VocabWord> readVocabCache(@NonNull File file, boolean lazy) throws IOException {
+        try (InputStream stream = new BufferedInputStream(new FileInputStream(file))) {
+            return readVocabCache(stream, lazy);
+        }
     }
 
-
     /**
-     * This method
-     * 1) Binary model, either compressed or not. Like well-known Google Model
-     * 2) Popular CSV word2vec text format
-     * 3) DL4j compressed format
+     * This method reads vocab cache from provided InputStream.
+     * Please note: it reads only vocab content, so it's suitable mostly for BagOfWords/TF-IDF vectorizers
      *
-     * Please note: Only weights will be loaded by this method.
+     * PLEASE NOTE: lazy vocab cache is read-only. Labels are kept in memory-mapped temporary file,
+     * and VocabWord objects are created on each tokenFor()/wordFor() call, so changes made to them aren't reflected in cache.
      *
-     * @param path
+     * @param stream
+     * @param lazy if TRUE, read-only MappedVocabCache will be returned, materializing VocabWords on demand only
      * @return
+     * @throws IOException
      */
-    public static Word2Vec readWord2VecModel(String path) {
-        return readWord2VecModel(new File(path));
-    }
+    public static VocabCache<VocabWord> readVocabCache(@NonNull InputStream stream, boolean lazy)
+                    throws IOException {
+        if (!lazy)
+            return readVocabCache(stream);
 
-    /**
-     * This method
-     * 1) Binary model, either compressed or not. Like well-known Google Model
-     * 2) Popular CSV word2vec text format
-     * 3) DL4j compressed format
-     *
-     * Please note: if extended data isn't available, only weights will be loaded instead.
-     *
-     * @param path
-     * @param extendedModel if TRUE, we'll try to load HS states & Huffman tree info, if FALSE, only weights will be loaded
-     * @return
-     */
-    public static Word2Vec readWord2VecModel(String path, boolean extendedModel) {
-        return readWord2VecModel(new File(path), extendedModel);
+        return new MappedVocabCache(stream);
     }
 
     /**
-     * This method
-     * 1) Binary model, either compressed or not. Like well-known Google Model
-     * 2) Popular CSV word2vec text format
-     * 3) DL4j compressed format
-     *
-     * Please note: if extended data isn't available, only weights will be loaded instead.
-     *
-     * @param file
-     * @param extendedModel if TRUE, we'll try to load HS states & Huffman tree info, if FALSE, only weights will be loaded
-     * @return
+     * Read-only VocabCache implementation, backed by memory-mapped labels table and primitive arrays.
+     * Labels are looked up with binary search over sorted permutation, and VocabWord objects are built on demand only.
      */
-    public static Word2Vec readWord2VecModel(@NonNull File file, boolean extendedModel) {
-        InMemoryLookupTable<VocabWord> lookupTable = new InMemoryLookupTable<>();
-        AbstractCache<VocabWord> vocabCache = new AbstractCache<>();
-        Word2Vec vec;
-        INDArray syn0 = null;
-        VectorsConfiguration configuration = new VectorsConfiguration();
-
-        if (!file.exists() || !file.isFile())
-            throw new ND4JIllegalStateException("File [" + file.getAbsolutePath() + "] doesn't exist");
+    public static class MappedVocabCache implements VocabCache<VocabWord> {
+        private static final byte FLAG_LABEL = 1;
+        private static final byte FLAG_SPECIAL = 2;
+
+        private final transient MappedByteBuffer labels;
+        private final int numWords;
+        private final int[] offsets;
+        private final double[] frequencies;
+        private final long[] sequences;
+        private final int[] indices;
+        private final byte[] flags;
+
+        // positions sorted by label bytes
+        private final int[] sorted;
+        // storage ids sorted, along with their positions
+        private final long[] ids;
+        private final int[] idPositions;
+        // word index -> position
+        private final int[] positions;
+
+        private final long totalWordOccurrences;
+
+        protected MappedVocabCache(@NonNull InputStream stream) throws IOException {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+            VocabWordFactory factory = new VocabWordFactory();
+
+            File tmp = File.createTempFile("vocab", "labels");
+
+            int count = 0;
+            int[] offsets = new int[1024];
+            double[] frequencies = new double[1024];
+            long[] sequences = new long[1024];
+            int[] indices = new int[1024];
+            long[] ids = new long[1024];
+            byte[] flags = new byte[1024];
+            long total = 0;
+            long position = 0;
+            int maxIndex = -1;
 
-        int originalFreq = Nd4j.getMemoryManager().getOccasionalGcFrequency();
-        boolean originalPeriodic = Nd4j.getMemoryManager().isPeriodicGcActive();
+            try {
+                try (OutputStream os = new BufferedOutputStream(new FileOutputStream(tmp))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (line.isEmpty())
+                            continue;
+
+                        // full VocabWord is decoded here, though only label, counters, index and flags are kept
+                        VocabWord word = factory.deserialize(line);
+                        byte[] bytes = word.getLabel().getBytes(StandardCharsets.UTF_8);
+                        if (position + bytes.length > Integer.MAX_VALUE)
+                            throw new DL4JInvalidInputException(
+                                            "Vocabulary labels exceed 2GB, lazy vocab can't be used");
+
+                        if (count + 1 >= offsets.length) {
+                            int capacity = offsets.length * 2;
+                            offsets = Arrays.copyOf(offsets, capacity);
+                            frequencies = Arrays.copyOf(frequencies, capacity);
+                            sequences = Arrays.copyOf(sequences, capacity);
+                            indices = Arrays.copyOf(indices, capacity);
+                            ids = Arrays.copyOf(ids, capacity);
+                            flags = Arrays.copyOf(flags, capacity);
+                        }
+
+                        os.write(bytes);
+                        offsets[count] = (int) position;
+                        frequencies[count] = word.getElementFrequency();
+                        sequences[count] = word.getSequencesCount();
+                        indices[count] = word.getIndex();
+                        ids[count] = word.getStorageId();
+                        flags[count] = (byte) ((word.isLabel() ? FLAG_LABEL : 0)
+                                        | (word.isSpecial() ? FLAG_SPECIAL : 0));
+
+                        position += bytes.length;
+                        total += (long) word.getElementFrequency();
+                        maxIndex = Math.max(maxIndex, word.getIndex());
+                        count++;
+                    }
+                    offsets[count] = (int) position;
+                }
+
+                try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.READ)) {
+                    this.labels = channel.map(FileChannel.MapMode.READ_ONLY, 0, position);
+                }
+            } finally {
+                // mapping stays valid once file is unlinked, so spool file is dropped right away where OS allows it
+                if (!tmp.delete())
+                    tmp.deleteOnExit();
+            }
+
+            this.numWords = count;
+            this.offsets = Arrays.copyOf(offsets, count + 1);
+            this.frequencies = Arrays.copyOf(frequencies, count);
+            this.sequences = Arrays.copyOf(sequences, count);
+            this.indices = Arrays.copyOf(indices, count);
+            this.flags = Arrays.copyOf(flags, count);
+            this.totalWordOccurrences = total;
+
+            this.positions = new int[maxIndex + 1];
+            Arrays.fill(this.positions, -1);
+            for (int i = 0; i < count; i++) {
+                if (this.indices[i] >= 0)
+                    this.positions[this.indices[i]] = i;
+            }
+
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++)
+                order[i] = i;
+
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer o1, Integer o2) {
+                    return compareLabels(o1, o2);
+                }
+            });
+            this.sorted = new int[count];
+            for (int i = 0; i < count; i++)
+                this.sorted[i] = order[i];
+
+            final long[] storageIds = ids;
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer o1, Integer o2) {
+                    return Long.compare(storageIds[o1], storageIds[o2]);
+                }
+            });
+            this.ids = new long[count];
+            this.idPositions = new int[count];
+            for (int i = 0; i < count; i++) {
+                this.idPositions[i] = order[i];
+                this.ids[i] = storageIds[order[i]];
+            }
+        }
+
+        private int compareLabels(int first, int second) {
+            int start1 = offsets[first];
+            int length1 = offsets[first + 1] - start1;
+            int start2 = offsets[second];
+            int length2 = offsets[second + 1] - start2;
+            int common = Math.min(length1, length2);
+            for (int i = 0; i < common; i++) {
+                int cmp = (labels.get(start1 + i) & 0xff) - (labels.get(start2 + i) & 0xff);
+                if (cmp != 0)
+                    return cmp;
+            }
+            return length1 - length2;
+        }
+
+        private int compareLabel(int position, byte[] key) {
+            int start = offsets[position];
+            int length = offsets[position + 1] - start;
+            int common = Math.min(length, key.length);
+            for (int i = 0; i < common; i++) {
+                int cmp = (labels.get(start + i) & 0xff) - (key[i] & 0xff);
+                if (cmp != 0)
+                    return cmp;
+            }
+            return length - key.length;
+        }
+
+        /**
+         * This method returns position of given label using binary search, or -1 if label is absent
+         */
+        private int positionOf(String label) {
+            if (label == null)
+                return -1;
+
+            byte[] key = label.getBytes(StandardCharsets.UTF_8);
+            int low = 0;
+            int high = numWords - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compareLabel(sorted[mid], key);
+                if (cmp < 0)
+                    low = mid + 1;
+                else if (cmp > 0)
+                    high = mid - 1;
+                else
+                    return sorted[mid];
+            }
+            return -1;
+        }
+
+        private int positionOf(long id) {
+            int idx = Arrays.binarySearch(ids, id);
+            return idx < 0 ? -1 : idPositions[idx];
+        }
+
+        private String labelAt(int position) {
+            int start = offsets[position];
+            byte[] bytes = new byte[offsets[position + 1] - start];
+            for (int i = 0; i < bytes.length; i++)
+                bytes[i] = labels.get(start + i);
+
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private VocabWord wordAt(int position) {
+            if (position < 0)
+                return null;
+
+            VocabWord word = new VocabWord(frequencies[position], labelAt(position));
+            word.setIndex(indices[position]);
+            word.setSequencesCount(sequences[position]);
+            word.markAsLabel((flags[position] & FLAG_LABEL) != 0);
+            word.setSpecial((flags[position] & FLAG_SPECIAL) != 0);
+            return word;
+        }
+
+        private int positionAtIndex(int index) {
+            return index < 0 || index >= positions.length ? -1 : positions[index];
+        }
+
+        @Override
+        public Collection<String> words() {
+            return new AbstractList<String>() {
+                @Override
+                public String get(int index) {
+                    return labelAt(index);
+                }
+
+                @Override
+                public int size() {
+                    return numWords;
+                }
+            };
+        }
+
+        @Override
+        public int wordFrequency(String word) {
+            int position = positionOf(word);
+            return position < 0 ? 0 : (int) frequencies[position];
+        }
+
+        @Override
+        public boolean containsWord(String word) {
+            return positionOf(word) >= 0;
+        }
+
+        @Override
+        public String wordAtIndex(int index) {
+            int position = positionAtIndex(index);
+            return position < 0 ? null : labelAt(position);
+        }
+
+        @Override
+        public VocabWord elementAtIndex(int index) {
+            return wordAt(positionAtIndex(index));
+        }
+
+        @Override
+        public int indexOf(String word) {
+            int position = positionOf(word);
+            return position < 0 ? -1 : indices[position];
+        }
+
+        @Override
+        public Collection<VocabWord> vocabWords() {
+            return tokens();
+        }
+
+        @Override
+        public long totalWordOccurrences() {
+            return totalWordOccurrences;
+        }
+
+        @Override
+        public VocabWord wordFor(String word) {
+            return tokenFor(word);
+        }
+
+        @Override
+        public VocabWord wordFor(long id) {
+            return tokenFor(id);
+        }
+
+        @Override
+        public int numWords() {
+            return numWords;
+        }
+
+        @Override
+        public int docAppearedIn(String word) {
+            int position = positionOf(word);
+            return position < 0 ? -1 : (int) sequences[position];
+        }
+
+        @Override
+        public long totalNumberOfDocs() {
+            return 0;
+        }
+
+        @Override
+        public Collection<VocabWord> tokens() {
+            return new AbstractList<VocabWord>() {
+                @Override
+                public VocabWord get(int index) {
+                    return wordAt(index);
+                }
+
+                @Override
+                public int size() {
+                    return numWords;
+                }
+            };
+        }
+
+        @Override
+        public VocabWord tokenFor(String label) {
+            return wordAt(positionOf(label));
+        }
+
+        @Override
+        public VocabWord tokenFor(long id) {
+            return wordAt(positionOf(id));
+        }
+
+        @Override
+        public boolean hasToken(String token) {
+            return containsWord(token);
+        }
+
+        @Override
+        public boolean vocabExists() {
+            return numWords > 0;
+        }
+
+        @Override
+        public void loadVocab() {
+            // no-op
+        }
+
+        @Override
+        public void saveVocab() {
+            throw new UnsupportedOperationException("MappedVocabCache is read-only");
+        }
+
+        @Override
+        public void incrementWordCount(String word) {
+            throw new UnsupportedOperationException("MappedVocabCache is read-only");
+        }
+
+        @Override
+        public void incrementWordCount(String word, int increment) {
+            throw new UnsupportedOperationException("MappedVocabCache is read-only");
+        }
+
+        @Override
+        public void addWordToIndex(int index, String word) {
+            throw new UnsupportedOperationException("MappedVocabCache is read-only");
+        }
+
+        @Override
+        public void addWordToIndex(int index, long elementId) {
+            throw new UnsupportedOperationException("MappedVocabCache is read-only");
+        }
+
+        @Override
+        public void putVocabWord(String word) {
+            throw new UnsupportedOperationException("MappedVocabCache is read-only");
+        }
+
+        @Override
+        public void incrementDocCount(String word, long howMuch) {
+            throw new UnsupportedOperationException("MappedVocabCache is read-only");
+        }
+
+        @Override
+        public void setCountForDoc(String word, long count) {
+            throw new UnsupportedOperationException("MappedVocabCache is read-only");
+        }
+
+        @Override
+        public void incrementTotalDocCount() {
+            throw new UnsupportedOperationException("MappedVocabCache is read-only");
+        }
+
+        @Override
+        public void incrementTotalDocCount(long by) {
+            throw new UnsupportedOperationException("MappedVocabCache is read-only");
+        }
+
+        @Override
+        public boolean addToken(VocabWord element) {
+            throw new UnsupportedOperationException("MappedVocabCache is read-only");
+        }
+
+        @Override
+        public void importVocabulary(VocabCache<VocabWord> vocabCache) {
+            throw new UnsupportedOperationException("MappedVocabCache is read-only");
+        }
+
+        @Override
+        public void updateWordsOccurrences() {
+            // no-op, occurrences are calculated on load
+        }
+
+        @Override
+        public void removeElement(String label) {
+            throw new UnsupportedOperationException("MappedVocabCache is read-only");
+        }
+
+        @Override
+        public void removeElement(VocabWord element) {
+            throw new UnsupportedOperationException("MappedVocabCache is read-only");
+        }
+    }
+
+    /**
+     * This is utility holder class
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    private static class ElementPair {
+        private String object;
+        private double[] vector;
+
+        /**
+         * This utility method serializes ElementPair into JSON + packs it into Base64-encoded string
+         *
+         * @return
+         */
+        protected String toEncodedJson() {
+            ObjectMapper mapper = SequenceElement.mapper();
+            Base64 base64 = new Base64(Integer.MAX_VALUE);
+            try {
+                String json = mapper.writeValueAsString(this);
+                String output = base64.encodeAsString(json.getBytes("UTF-8"));
+                return output;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        /**
+         * This utility method returns ElementPair from Base64-encoded string
+         *
+         * @param encoded
+         * @return
+         */
+        protected static ElementPair fromEncodedJson(String encoded) {
+            ObjectMapper mapper = SequenceElement.mapper();
+            try {
+                String decoded = new String(Base64.decodeBase64(encoded), "UTF-8");
+                return mapper.readValue(decoded, ElementPair.class);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * This method
+     * 1) Binary model, either compressed or not. Like well-known Google Model
+     * 2) Popular CSV word2vec text format
+     * 3) DL4j compressed format
+     *
+     * Please note: Only weights will be loaded by this method.
+     *
+     * @param file
+     * @return
+     */
+    public static Word2Vec readWord2VecModel(@NonNull File file) {
+        return readWord2VecModel(file, false);
+    }
+
+
+    /**
+     * This method
+     * 1) Binary model, either compressed or not. Like well-known Google Model
+     * 2) Popular CSV word2vec text format
+     * 3) DL4j compressed format
+     *
+     * Please note: Only weights will be loaded by this method.
+     *
+     * @param path
+     * @return
+     */
+    public static Word2Vec readWord2VecModel(String path) {
+        return readWord2VecModel(new File(path));
+    }
+
+    /**
+     * This method
+     * 1) Binary model, either compressed or not. Like well-known Google Model
+     * 2) Popular CSV word2vec text format
+     * 3) DL4j compressed format
+     *
+     * Please note: if extended data isn't available, only weights will be loaded instead.
+     *
+     * @param path
+     * @param extendedModel if TRUE, we'll try to load HS states & Huffman tree info, if FALSE, only weights will be loaded
+     * @return
+     */
+    public static Word2Vec readWord2VecModel(String path, boolean extendedModel) {
+        return readWord2VecModel(new File(path), extendedModel);
+    }
+
+    /**
+     * This method
+     * 1) Binary model, either compressed or not. Like well-known Google Model
+     * 2) Popular CSV word2vec text format
+     * 3) DL4j compressed format
+     *
+     * Please note: if extended data isn't available, only weights will be loaded instead.
+     *
+     * @param file
+     * @param extendedModel if TRUE, we'll try to load HS states & Huffman tree info, if FALSE, only weights will be loaded
+     * @return
+     */
+    public static Word2Vec readWord2VecModel(@NonNull File file, boolean extendedModel) {
+        InMemoryLookupTable<VocabWord> lookupTable = new InMemoryLookupTable<>();
+        AbstractCache<VocabWord> vocabCache = new AbstractCache<>();
+        Word2Vec vec;
+        INDArray syn0 = null;
+        NearestNeighborsIndex index = null;
+        VectorsConfiguration configuration = new VectorsConfiguration();
+
+        if (!file.exists() || !file.isFile())
+            throw new ND4JIllegalStateException("File [" + file.getAbsolutePath() + "] doesn't exist");
+
+        int originalFreq = Nd4j.getMemoryManager().getOccasionalGcFrequency();
+        boolean originalPeriodic = Nd4j.getMemoryManager().isPeriodicGcActive();
+
+        if (originalPeriodic)
+            Nd4j.getMemoryManager().togglePeriodicGc(false);
+
+        Nd4j.getMemoryManager().setOccasionalGcFrequency(50000);
+
+        // try to load zip format
+        try {
+            if (extendedModel) {
+                log.debug("Trying full model restoration...");
+                // this method just loads full compressed model
+
+                if (originalPeriodic)
+                    Nd4j.getMemoryManager().togglePeriodicGc(true);
+
+                Nd4j.getMemoryManager().setOccasionalGcFrequency(originalFreq);
+
+                return readWord2Vec(file);
+            } else {
+                log.debug("Trying simplified model restoration...");
+
+                // we don't need full model, so we go directly to syn0 entry, reading it straight from archive
+
+                ZipFile zipFile = new ZipFile(file);
+                ZipEntry syn = zipFile.getEntry("syn0.txt");
+                InputStream stream;
+
+
+                // now we're restoring configuration saved earlier
+                ZipEntry config = zipFile.getEntry("config.json");
+                if (config != null) {
+                    stream = zipFile.getInputStream(config);
+
+                    StringBuilder builder = new StringBuilder();
+                    try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream))) {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            builder.append(line);
+                        }
+                    }
+
+                    configuration = VectorsConfiguration.fromJson(builder.toString().trim());
+                }
+
+                ZipEntry indexEntry = zipFile.getEntry(INDEX_ENTRY);
+                if (indexEntry != null) {
+                    try (DataInputStream dis = new DataInputStream(
+                                    new BufferedInputStream(zipFile.getInputStream(indexEntry)))) {
+                        index = NearestNeighborsIndex.read(dis);
+                    }
+                }
+
+                ZipEntry ve = zipFile.getEntry("frequencies.txt");
+                if (ve != null) {
+                    stream = zipFile.getInputStream(ve);
+                    AtomicInteger cnt = new AtomicInteger(0);
+                    try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream))) {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            String[] split = line.split(" ");
+                            VocabWord word = new VocabWord(Double.valueOf(split[1]), decodeB64(split[0]));
+                            word.setIndex(cnt.getAndIncrement());
+                            word.incrementSequencesCount(Long.valueOf(split[2]));
+
+                            vocabCache.addToken(word);
+                            vocabCache.addWordToIndex(word.getIndex(), word.getLabel());
+
+                            Nd4j.getMemoryManager().invokeGcOccasionally();
+                        }
+                    }
+                }
+
+                List<INDArray> rows = new ArrayList<>();
+                ZipEntry binarySyn = zipFile.getEntry("syn0.bin");
+                try {
+                    if (syn == null && binarySyn != null) {
+                        // binary syn0 has no labels, so vocabulary comes from frequencies table
+                        if (ve == null)
+                            throw new DL4JInvalidInputException("Binary syn0 requires frequencies.txt entry");
+
+                        try (DataInputStream dis = new DataInputStream(
+                                        new BufferedInputStream(zipFile.getInputStream(binarySyn)))) {
+                            syn0 = readBinaryMatrix(dis).getFirst();
+                        }
+                    } else {
+                        // basically read up everything, call vstacl and then return model
+                        try (Reader reader = new CSVReader(zipFile.getInputStream(syn))) {
+                            AtomicInteger cnt = new AtomicInteger(0);
+                            while (reader.hasNext()) {
+                                Pair<VocabWord, float[]> pair = reader.next();
+                                VocabWord word = pair.getFirst();
+                                INDArray vector = Nd4j.create(pair.getSecond());
+
+                                if (ve != null) {
+                                    if (syn0 == null)
+                                        syn0 = Nd4j.create(vocabCache.numWords(), vector.length());
+
+                                    syn0.getRow(cnt.getAndIncrement()).assign(vector);
+                                } else {
+                                    rows.add(vector);
+
+                                    vocabCache.addToken(word);
+                                    vocabCache.addWordToIndex(word.getIndex(), word.getLabel());
+                                }
+
+                                Nd4j.getMemoryManager().invokeGcOccasionally();
+                            }
+                        }
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    if (originalPeriodic)
+                        Nd4j.getMemoryManager().togglePeriodicGc(true);
+
+                    Nd4j.getMemoryManager().setOccasionalGcFrequency(originalFreq);
+
+                    try {
+                        zipFile.close();
+                    } catch (Exception e) {
+                        //
+                    }
+                }
+
+                if (syn0 == null && vocabCache.numWords() > 0)
+                    syn0 = Nd4j.vstack(rows);
+
+                if (syn0 == null) {
+                    log.error("Can't build syn0 table");
+                    throw new DL4JInvalidInputException("Can't build syn0 table");
+                }
+
+
+
+                lookupTable = new InMemoryLookupTable.Builder<VocabWord>().cache(vocabCache)
+                                .vectorLength(syn0.columns()).useHierarchicSoftmax(false).useAdaGrad(false).build();
+
+                lookupTable.setSyn0(syn0);
+            }
+        } catch (Exception e) {
+            // let's try to load this file as csv file
+            try {
+                log.debug("Trying CSV model restoration...");
+
+                Pair<InMemoryLookupTable, VocabCache> pair = loadTxt(file);
+                lookupTable = pair.getFirst();
+                vocabCache = (AbstractCache<VocabWord>) pair.getSecond();
+            } catch (Exception ex) {
+                // we fallback to trying binary model instead
+                try {
+                    log.debug("Trying binary model restoration...");
+
+                    if (originalPeriodic)
+                        Nd4j.getMemoryManager().togglePeriodicGc(true);
+
+                    Nd4j.getMemoryManager().setOccasionalGcFrequency(originalFreq);
+
+                    vec = loadGoogleModel(file, true, true);
+                    return vec;
+                } catch (Exception ey) {
+                    // try to load without linebreaks
+                    try {
+                        if (originalPeriodic)
+                            Nd4j.getMemoryManager().togglePeriodicGc(true);
+
+                        Nd4j.getMemoryManager().setOccasionalGcFrequency(originalFreq);
+
+                        vec = loadGoogleModel(file, true, false);
+                        return vec;
+                    } catch (Exception ez) {
+                        throw new RuntimeException(
+                                        "Unable to guess input file format. Please use corresponding loader directly");
+                    }
+                }
+            }
+        }
+
+        Word2Vec.Builder builder = new Word2Vec.Builder(configuration).lookupTable(lookupTable).useAdaGrad(false)
+                        .vocabCache(vocabCache).layerSize(lookupTable.layerSize())
+
+                        // we don't use hs here, because model is incomplete
+                        .useHierarchicSoftmax(false).resetModel(false);
+
+        /*
+            Trying to restore TokenizerFactory & TokenPreProcessor
+         */
+
+        TokenizerFactory factory = getTokenizerFactory(configuration);
+        if (factory != null)
+            builder.tokenizerFactory(factory);
+
+        vec = builder.build();
+
+        if (index != null)
+            vec.setModelUtils(new IndexedModelUtils<VocabWord>(index));
+
+        return vec;
+    }
+
+    /**
+     * This method restores weights of previously saved w2v model, and keeps them in given storage mode.
+     * See readWord2VecModel(File) for supported formats.
+     *
+     * PLEASE NOTE: for HALF and INT8 modes you get QuantizedWord2Vec model, suitable for lookups only.
+     * Rows are quantized one by one while file is parsed, so full-precision syn0 is never materialized.
+     *
+     * @param file
+     * @param mode storage mode for vectors: FLOAT, HALF or INT8
+     * @return
+     */
+    public static WordVectors readWord2VecModel(@NonNull File file, @NonNull StorageMode mode) {
+        if (mode == StorageMode.FLOAT)
+            return readWord2VecModel(file, false);
+
+        return loadStaticModel(file, mode);
+    }
+
+    protected static TokenizerFactory getTokenizerFactory(VectorsConfiguration configuration) {
+        if (configuration == null)
+            return null;
+
+        if (configuration != null && configuration.getTokenizerFactory() != null
+                        && !configuration.getTokenizerFactory().isEmpty()) {
+            try {
+                TokenizerFactory factory =
+                                (TokenizerFactory) Class.forName(configuration.getTokenizerFactory()).newInstance();
+
+                if (configuration.getTokenPreProcessor() != null && !configuration.getTokenPreProcessor().isEmpty()) {
+                    TokenPreProcess preProcessor =
+                                    (TokenPreProcess) Class.forName(configuration.getTokenPreProcessor()).newInstance();
+                    factory.setTokenPreProcessor(preProcessor);
+                }
+
+                return factory;
+
+            } catch (Exception e) {
+                log.error("Can't instantiate saved TokenizerFactory: {}", configuration.getTokenizerFactory());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * This method restores previously saved w2v model. File can be in one of the following formats:
+     * 1) Binary model, either compressed or not. Like well-known Google Model
+     * 2) Popular CSV word2vec text format
+     * 3) DL4j compressed format
+     * 4) Indexed static format, saved with writeStaticModel()
+     *
+     * In return you get StaticWord2Vec model, which might be used as lookup table only in multi-gpu environment.
+     *
+     * @param file File should point to previously saved w2v model
+     * @return
+     */
+    // TODO: this method needs better name :)
+    public static WordVectors loadStaticModel(File file) {
+        return loadStaticModel(file, StorageMode.FLOAT);
+    }
+
+    /**
+     * This method restores previously saved w2v model, keeping vectors in given storage mode.
+     * See loadStaticModel(File) for supported formats.
+     *
+     * For HALF and INT8 modes you get QuantizedWord2Vec model, with search performed on quantized rows.
+     *
+     * PLEASE NOTE: indexed static format is memory-mapped as is, so storage mode is ignored for it.
+     *
+     * @param file File should point to previously saved w2v model
+     * @param mode storage mode for vectors: FLOAT, HALF or INT8
+     * @return
+     */
+    public static WordVectors loadStaticModel(@NonNull File file, @NonNull StorageMode mode) {
+        return loadStaticModel(file, mode, null);
+    }
+
+    /**
+     * This method restores previously saved w2v model, keeping vectors in given storage mode.
+     * File format is detected upfront with detectFormat(), so file is parsed only once, with the matching reader.
+     * See loadStaticModel(File) for supported formats.
+     *
+     * @param file File should point to previously saved w2v model
+     * @param mode storage mode for vectors: FLOAT, HALF or INT8
+     * @param listener optional listener, notified about detected format and loading progress. Might be null
+     * @return
+     */
+    public static WordVectors loadStaticModel(@NonNull File file, @NonNull StorageMode mode,
+                    LoadingListener listener) {
+        if (!file.exists() || file.isDirectory())
+            throw new RuntimeException(
+                            new FileNotFoundException("File [" + file.getAbsolutePath() + "] was not found"));
+
+        long time = System.currentTimeMillis();
+
+        ModelFormat format;
+        try {
+            format = detectFormat(file);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        log.debug("Detected model format: {}", format);
+        if (listener != null)
+            listener.formatDetected(format);
+
+        if (format == ModelFormat.STATIC) {
+            try {
+                StaticModelWord2Vec vectors = readStaticModel(file);
+                if (listener != null)
+                    listener.finished(vectors.vocabSize(), System.currentTimeMillis() - time);
+
+                return vectors;
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        int originalFreq = Nd4j.getMemoryManager().getOccasionalGcFrequency();
+        boolean originalPeriodic = Nd4j.getMemoryManager().isPeriodicGcActive();
+
+        if (originalPeriodic)
+            Nd4j.getMemoryManager().togglePeriodicGc(false);
+
+        Nd4j.getMemoryManager().setOccasionalGcFrequency(50000);
+
+        AbstractStorage<Integer> storage = mode == StorageMode.FLOAT
+                        ? new CompressedRamStorage.Builder<Integer>().useInplaceCompression(false)
+                                        .setCompressor(new NoOp()).emulateIsAbsent(false).build()
+                        : new QuantizedStorage(mode);
+
+        VocabCache<VocabWord> vocabCache = new AbstractCache.Builder<VocabWord>().build();
+
+        ZipFile zipFile = null;
+        Reader reader = null;
+        try {
+            switch (format) {
+                case DL4J:
+                    zipFile = new ZipFile(file);
+                    reader = openZipReader(zipFile);
+                    break;
+                case TEXT:
+                    reader = new CSVReader(openModelStream(file));
+                    break;
+                default:
+                    reader = new BinaryReader(openModelStream(file));
+            }
+
+            long count = 0;
+            while (reader.hasNext()) {
+                Pair<VocabWord, float[]> pair = reader.next();
+                VocabWord word = pair.getFirst();
+                storage.store(word.getIndex(), pair.getSecond());
+
+                vocabCache.addToken(word);
+                vocabCache.addWordToIndex(word.getIndex(), word.getLabel());
+
+                count++;
+                if (listener != null && count % PROGRESS_FREQUENCY == 0)
+                    listener.progress(count);
+
+                Nd4j.getMemoryManager().invokeGcOccasionally();
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Unable to load " + format + " model from [" + file.getAbsolutePath() + "]",
+                            e);
+        } finally {
+            if (originalPeriodic)
+                Nd4j.getMemoryManager().togglePeriodicGc(true);
+
+            Nd4j.getMemoryManager().setOccasionalGcFrequency(originalFreq);
+
+            try {
+                if (reader != null)
+                    reader.close();
+
+                if (zipFile != null)
+                    zipFile.close();
+            } catch (Exception e) {
+                //
+            }
+        }
+
+        if (listener != null)
+            listener.finished(vocabCache.numWords(), System.currentTimeMillis() - time);
+
+        if (storage instanceof QuantizedStorage)
+            return new QuantizedWord2Vec((QuantizedStorage) storage, vocabCache);
+
+        StaticWord2Vec word2Vec = new StaticWord2Vec.Builder(storage, vocabCache).build();
+
+        return word2Vec;
+    }
+
+    /**
+     * This method detects format of the saved model, without parsing it:
+     * static format and zip archives are recognized by magic bytes, gzip compression is detected and unwrapped,
+     * and text vs binary Google format is told apart by validation of the header line and the first record after it.
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static ModelFormat detectFormat(@NonNull File file) throws IOException {
+        if (isStaticModel(file))
+            return ModelFormat.STATIC;
+
+        byte[] sample = new byte[SNIFF_SIZE];
+        int length;
+        try (InputStream stream = new BufferedInputStream(new FileInputStream(file))) {
+            length = IOUtils.read(stream, sample, 0, 4);
+            if (length == 4 && sample[0] == 'P' && sample[1] == 'K' && sample[2] == 3 && sample[3] == 4)
+                return ModelFormat.DL4J;
+        }
+
+        try (InputStream stream = openModelStream(file)) {
+            length = IOUtils.read(stream, sample);
+        }
+
+        int lineEnd = 0;
+        while (lineEnd < length && sample[lineEnd] != '\n')
+            lineEnd++;
+
+        // only binary format needs header line, and it's always "NUM_WORDS VECTOR_LENGTH"
+        String[] header = new String(sample, 0, lineEnd, StandardCharsets.UTF_8).trim().split(" ");
+        if (header.length != 2 || !header[0].matches("\\d+") || !header[1].matches("\\d+"))
+            return ModelFormat.TEXT;
+
+        int vectorLength;
+        try {
+            Integer.parseInt(header[0]);
+            vectorLength = Integer.parseInt(header[1]);
+        } catch (NumberFormatException e) {
+            return ModelFormat.TEXT;
+        }
+
+        if (vectorLength == 0)
+            return ModelFormat.TEXT;
+
+        // skipping label of the first word
+        int position = lineEnd + 1;
+        while (position < length && sample[position] != ' ')
+            position++;
+        position++;
+
+        if (position >= length)
+            return ModelFormat.TEXT;
+
+        /*
+            text row contains only numbers up to the line break, while raw floats of binary row may contain any byte,
+            line break included. So row is considered text only if it holds exactly VECTOR_LENGTH numbers.
+         */
+        int rowEnd = position;
+        while (rowEnd < length && sample[rowEnd] != '\n') {
+            byte b = sample[rowEnd++];
+            if (!((b >= '0' && b <= '9') || b == '.' || b == '-' || b == '+' || b == 'e' || b == 'E' || b == ' '
+                            || b == '\t' || b == '\r'))
+                return ModelFormat.BINARY;
+        }
+
+        // row didn't fit into sample, and everything we've seen looks like text
+        if (rowEnd == length)
+            return ModelFormat.TEXT;
+
+        String[] values = new String(sample, position, rowEnd - position, StandardCharsets.US_ASCII).trim()
+                        .split("\\s+");
+        if (values.length != vectorLength)
+            return ModelFormat.BINARY;
+
+        for (String value : values) {
+            try {
+                Float.parseFloat(value);
+            } catch (NumberFormatException e) {
+                return ModelFormat.BINARY;
+            }
+        }
+
+        return ModelFormat.TEXT;
+    }
+
+    /**
+     * This method opens stream for given model file, unwrapping gzip compression if it's detected by magic bytes
+     */
+    private static InputStream openModelStream(File file) throws IOException {
+        InputStream stream = new BufferedInputStream(new FileInputStream(file));
+        stream.mark(2);
+        int b1 = stream.read();
+        int b2 = stream.read();
+        stream.reset();
+
+        return b1 == 0x1f && b2 == 0x8b ? new GZIPInputStream(stream) : stream;
+    }
+
+    /**
+     * This method returns reader for syn0 table of DL4J zip model, either text or binary
+     */
+    private static Reader openZipReader(ZipFile zipFile) throws IOException {
+        ZipEntry syn0 = zipFile.getEntry("syn0.txt");
+        if (syn0 != null)
+            return new CSVReader(zipFile.getInputStream(syn0));
+
+        ZipEntry binary = zipFile.getEntry("syn0.bin");
+        ZipEntry frequencies = zipFile.getEntry("frequencies.txt");
+        if (binary == null || frequencies == null)
+            throw new DL4JInvalidInputException("Zip file [" + zipFile.getName() + "] has no syn0 table");
+
+        List<Pair<String, double[]>> labels;
+        try (BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(zipFile.getInputStream(frequencies), StandardCharsets.UTF_8))) {
+            labels = readFrequencies(reader);
+        }
+
+        return new BinaryTableReader(zipFile.getInputStream(binary), labels);
+    }
+
+    /**
+     * Formats recognized by detectFormat()
+     */
+    public enum ModelFormat {
+        /**
+         * Indexed static format, saved with writeStaticModel()
+         */
+        STATIC,
+        /**
+         * DL4J zip format
+         */
+        DL4J,
+        /**
+         * CSV word2vec text format, optionally gzipped
+         */
+        TEXT,
+        /**
+         * Google binary format, optionally gzipped
+         */
+        BINARY
+    }
+
+    /**
+     * Listener for loadStaticModel(), notified about detected format and loading progress
+     */
+    public interface LoadingListener {
+        void formatDetected(ModelFormat format);
+
+        /**
+         * Called every PROGRESS_FREQUENCY words loaded
+         */
+        void progress(long wordsLoaded);
+
+        void finished(long numWords, long elapsedTime);
+    }
+
+
+    /**
+     * This method saves word vectors in indexed static format, suitable for instant restoration via readStaticModel() or loadStaticModel().
+     *
+     * Format layout (big-endian):
+     * 1) header: magic, version, number of words, vector length, data type, vectors offset
+     * 2) string offsets table, numWords + 1 ints, relative to string block
+     * 3) word indices sorted by UTF-8 label bytes, numWords ints
+     * 4) string block with UTF-8 labels, in index order
+     * 5) vectors block with fixed-stride rows, in index order
+     *
+     * @param vectors model to be saved
+     * @param file destination file
+     * @param halfPrecision if TRUE, vectors will be stored as IEEE 754 half-precision floats
+     * @throws IOException
+     */
+    public static void writeStaticModel(@NonNull WordVectors vectors, @NonNull File file, boolean halfPrecision)
+                    throws IOException {
+        VocabCache<VocabWord> vocab = vectors.vocab();
+        int numWords = vocab.numWords();
+        int vectorLength = numWords == 0 ? 0 : vectors.getWordVector(vocab.wordAtIndex(0)).length;
+
+        final byte[][] labels = new byte[numWords][];
+        Integer[] sorted = new Integer[numWords];
+        long blobLength = 0;
+        for (int i = 0; i < numWords; i++) {
+            labels[i] = vocab.wordAtIndex(i).getBytes(StandardCharsets.UTF_8);
+            sorted[i] = i;
+            blobLength += labels[i].length;
+        }
+
+        if (blobLength > Integer.MAX_VALUE)
+            throw new DL4JInvalidInputException("Vocabulary is too large for static format");
+
+        Arrays.sort(sorted, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return compareBytes(labels[o1], labels[o2]);
+            }
+        });
+
+        long vectorsOffset = 32 + 4L * (numWords + 1) + 4L * numWords + blobLength;
+
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            dos.write(STATIC_MAGIC);
+            dos.writeInt(STATIC_VERSION);
+            dos.writeInt(numWords);
+            dos.writeInt(vectorLength);
+            dos.writeInt(halfPrecision ? 1 : 0);
+            dos.writeLong(vectorsOffset);
+
+            int offset = 0;
+            for (int i = 0; i < numWords; i++) {
+                dos.writeInt(offset);
+                offset += labels[i].length;
+            }
+            dos.writeInt(offset);
+
+            for (int i = 0; i < numWords; i++)
+                dos.writeInt(sorted[i]);
+
+            for (int i = 0; i < numWords; i++)
+                dos.write(labels[i]);
+
+            for (int i = 0; i < numWords; i++) {
+                double[] vector = vectors.getWordVector(vocab.wordAtIndex(i));
+                for (double value : vector) {
+                    if (halfPrecision)
+                        dos.writeShort(toHalf((float) value));
+                    else
+                        dos.writeFloat((float) value);
+                }
+            }
+        }
+    }
+
+    /**
+     * This method checks if given file starts with static format magic bytes
+     *
+     * @param file
+     * @return
+     */
+    public static boolean isStaticModel(@NonNull File file) {
+        byte[] magic = new byte[STATIC_MAGIC.length];
+        try (DataInputStream dis = new DataInputStream(new FileInputStream(file))) {
+            dis.readFully(magic);
+            return Arrays.equals(magic, STATIC_MAGIC);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * This method opens model previously saved with writeStaticModel().
+     * File is memory-mapped: words are resolved via binary search over sorted labels, and vectors are fetched
+     * directly from mapping on each lookup, so nothing is decoded upfront.
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static StaticModelWord2Vec readStaticModel(@NonNull File file) throws IOException {
+        return new StaticModelWord2Vec(new StaticModelStorage(file));
+    }
+
+    private static int compareBytes(byte[] a, byte[] b) {
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            int cmp = (a[i] & 0xff) - (b[i] & 0xff);
+            if (cmp != 0)
+                return cmp;
+        }
+        return a.length - b.length;
+    }
+
+    /**
+     * This method converts float to IEEE 754 half-precision value
+     */
+    protected static short toHalf(float value) {
+        int bits = Float.floatToIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int val = (bits & 0x7fffffff) + 0x1000;
+
+        if (val >= 0x47800000) {
+            if ((bits & 0x7fffffff) >= 0x47800000) {
+                if (val < 0x7f800000)
+                    return (short) (sign | 0x7c00);
+                return (short) (sign | 0x7c00 | ((bits & 0x007fffff) >>> 13));
+            }
+            return (short) (sign | 0x7bff);
+        }
+
+        if (val >= 0x38800000)
+            return (short) (sign | ((val - 0x38000000) >>> 13));
+
+        if (val < 0x33000000)
+            return (short) sign;
+
+        val = (bits & 0x7fffffff) >>> 23;
+        return (short) (sign | ((((bits & 0x7fffff) | 0x800000) + (0x800000 >>> (val - 102))) >>> (126 - val)));
+    }
+
+    /**
+     * This method converts IEEE 754 half-precision value to float
+     */
+    protected static float fromHalf(short half) {
+        int h = half & 0xffff;
+        int sign = (h & 0x8000) << 16;
+        int exponent = (h >>> 10) & 0x1f;
+        int mantissa = h & 0x3ff;
+
+        if (exponent == 0x1f)
+            return Float.intBitsToFloat(sign | 0x7f800000 | (mantissa << 13));
+
+        if (exponent == 0) {
+            // zero or subnormal value
+            float value = mantissa * 5.9604645E-8f;
+            return sign != 0 ? -value : value;
+        }
+
+        return Float.intBitsToFloat(sign | ((exponent + 112) << 23) | (mantissa << 13));
+    }
+
+    /**
+     * Read-only view of stored word vectors, used by lookup-only models for vectors, similarity and search
+     */
+    protected interface VectorLookup extends AbstractStorage<Integer> {
+        /**
+         * This method returns length of stored vectors
+         */
+        int getVectorLength();
+
+        /**
+         * This method copies vector at given index into provided array
+         */
+        void vectorAt(int index, float[] target);
+
+        /**
+         * This method returns cosine similarity of two stored vectors
+         */
+        double similarity(int first, int second);
+
+        /**
+         * This method returns indices of top stored vectors by cosine similarity to given query, best first
+         */
+        int[] nearest(float[] query, int top);
+    }
+
+    /**
+     * Bounded selection of top scored indices, kept sorted best first
+     */
+    protected static class TopK {
+        private final int[] indices;
+        private final double[] scores;
+        private int found;
+
+        protected TopK(int k) {
+            indices = new int[Math.max(0, k)];
+            scores = new double[indices.length];
+        }
+
+        /**
+         * This method keeps given index if its score is among top k offered so far
+         */
+        protected void offer(int index, double score) {
+            int k = indices.length;
+            if (k == 0 || (found == k && score <= scores[k - 1]))
+                return;
+
+            // insertion into sorted top-k arrays
+            int position = found < k ? found++ : k - 1;
+            while (position > 0 && scores[position - 1] < score) {
+                scores[position] = scores[position - 1];
+                indices[position] = indices[position - 1];
+                position--;
+            }
+            scores[position] = score;
+            indices[position] = index;
+        }
+
+        /**
+         * This method returns kept indices, best first
+         */
+        protected int[] indices() {
+            return found < indices.length ? Arrays.copyOf(indices, found) : indices;
+        }
+    }
+
+    /**
+     * Read-only storage backed by memory-mapped static model file.
+     * Both vocabulary and vectors blocks are mapped in segments, so files larger than 2GB are supported.
+     */
+    protected static class StaticModelStorage implements VectorLookup {
+        // multiple of 4, so aligned table entries never cross segment boundary
+        private static final long VOCAB_SEGMENT = 1L << 30;
+
+        private final MappedByteBuffer[] vocab;
+        private final MappedByteBuffer[] segments;
+        private final int numWords;
+        private final int vectorLength;
+        private final boolean halfPrecision;
+        private final int rowBytes;
+        private final int rowsPerSegment;
+        private final long sortedOffset;
+        private final long blobOffset;
+
+        protected StaticModelStorage(@NonNull File file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, 32);
+                byte[] magic = new byte[STATIC_MAGIC.length];
+                header.get(magic);
+                if (!Arrays.equals(magic, STATIC_MAGIC))
+                    throw new DL4JInvalidInputException("File [" + file.getAbsolutePath() + "] isn't a static model");
+
+                int version = header.getInt();
+                if (version != STATIC_VERSION)
+                    throw new DL4JInvalidInputException("Unsupported static model version: " + version);
+
+                numWords = header.getInt();
+                vectorLength = header.getInt();
+                halfPrecision = header.getInt() == 1;
+                long vectorsOffset = header.getLong();
+
+                sortedOffset = 32 + 4L * (numWords + 1);
+                blobOffset = sortedOffset + 4L * numWords;
+
+                vocab = new MappedByteBuffer[(int) ((vectorsOffset + VOCAB_SEGMENT - 1) / VOCAB_SEGMENT)];
+                for (int i = 0; i < vocab.length; i++) {
+                    long position = i * VOCAB_SEGMENT;
+                    vocab[i] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                                    Math.min(VOCAB_SEGMENT, vectorsOffset - position));
+                }
+
+                rowBytes = vectorLength * (halfPrecision ? 2 : 4);
+                rowsPerSegment = rowBytes == 0 ? 1 : Math.max(1, Integer.MAX_VALUE / rowBytes);
+                segments = new MappedByteBuffer[numWords == 0 ? 0 : (numWords - 1) / rowsPerSegment + 1];
+                for (int i = 0; i < segments.length; i++) {
+                    long rows = Math.min(rowsPerSegment, numWords - (long) i * rowsPerSegment);
+                    segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                                    vectorsOffset + (long) i * rowsPerSegment * rowBytes, rows * rowBytes);
+                }
+            }
+        }
+
+        public int numWords() {
+            return numWords;
+        }
+
+        @Override
+        public int getVectorLength() {
+            return vectorLength;
+        }
+
+        /**
+         * This method returns label of the word at given index
+         */
+        public String wordAt(int index) {
+            int start = intAt(32 + 4L * index);
+            int end = intAt(32 + 4L * (index + 1));
+            byte[] bytes = new byte[end - start];
+            for (int i = 0; i < bytes.length; i++)
+                bytes[i] = byteAt(blobOffset + start + i);
+
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * This method returns index of given word using binary search over sorted labels, or -1 if word is absent
+         */
+        public int indexOf(@NonNull String word) {
+            byte[] key = word.getBytes(StandardCharsets.UTF_8);
+            int low = 0;
+            int high = numWords - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int index = intAt(sortedOffset + 4L * mid);
+                int cmp = compareLabel(index, key);
+                if (cmp < 0)
+                    low = mid + 1;
+                else if (cmp > 0)
+                    high = mid - 1;
+                else
+                    return index;
+            }
+            return -1;
+        }
+
+        private int compareLabel(int index, byte[] key) {
+            long start = blobOffset + intAt(32 + 4L * index);
+            int length = intAt(32 + 4L * (index + 1)) - intAt(32 + 4L * index);
+            int common = Math.min(length, key.length);
+            for (int i = 0; i < common; i++) {
+                int cmp = (byteAt(start + i) & 0xff) - (key[i] & 0xff);
+                if (cmp != 0)
+                    return cmp;
+            }
+            return length - key.length;
+        }
+
+        private int intAt(long position) {
+            return vocab[(int) (position / VOCAB_SEGMENT)].getInt((int) (position % VOCAB_SEGMENT));
+        }
+
+        private byte byteAt(long position) {
+            return vocab[(int) (position / VOCAB_SEGMENT)].get((int) (position % VOCAB_SEGMENT));
+        }
+
+        /**
+         * This method copies vector at given index into provided array
+         */
+        public void vectorAt(int index, float[] target) {
+            ByteBuffer segment = segments[index / rowsPerSegment];
+            int position = (index % rowsPerSegment) * rowBytes;
+            if (halfPrecision) {
+                for (int i = 0; i < vectorLength; i++)
+                    target[i] = fromHalf(segment.getShort(position + 2 * i));
+            } else {
+                ByteBuffer row = segment.duplicate();
+                row.position(position);
+                row.asFloatBuffer().get(target, 0, vectorLength);
+            }
+        }
 
-        if (originalPeriodic)
-            Nd4j.getMemoryManager().togglePeriodicGc(false);
+        /**
+         * This method returns cosine similarity of two stored vectors
+         */
+        public double similarity(int first, int second) {
+            float[] a = new float[vectorLength];
+            float[] b = new float[vectorLength];
+            vectorAt(first, a);
+            vectorAt(second, b);
+
+            double dot = 0.0, normA = 0.0, normB = 0.0;
+            for (int i = 0; i < vectorLength; i++) {
+                dot += a[i] * b[i];
+                normA += a[i] * a[i];
+                normB += b[i] * b[i];
+            }
+            double norms = Math.sqrt(normA * normB);
+            return norms == 0.0 ? 0.0 : dot / norms;
+        }
 
-        Nd4j.getMemoryManager().setOccasionalGcFrequency(50000);
+        /**
+         * This method returns indices of top stored vectors by cosine similarity to given query, best first.
+         * Rows are read from mapping one by one, so the whole table is never materialized.
+         *
+         * @param query query vector
+         * @param top number of indices to return
+         * @return
+         */
+        public int[] nearest(@NonNull float[] query, int top) {
+            if (top <= 0 || numWords == 0)
+                return new int[0];
 
-        // try to load zip format
-        try {
-            if (extendedModel) {
-                log.debug("Trying full model restoration...");
-                // this method just loads full compressed model
+            double queryNorm = 0.0;
+            for (float value : query)
+                queryNorm += value * value;
+            queryNorm = Math.sqrt(queryNorm);
 
-                if (originalPeriodic)
-                    Nd4j.getMemoryManager().togglePeriodicGc(true);
+            TopK best = new TopK(Math.min(top, numWords));
 
-                Nd4j.getMemoryManager().setOccasionalGcFrequency(originalFreq);
+            float[] row = new float[vectorLength];
+            for (int index = 0; index < numWords; index++) {
+                vectorAt(index, row);
+                double dot = 0.0, norm = 0.0;
+                for (int i = 0; i < vectorLength; i++) {
+                    dot += row[i] * query[i];
+                    norm += row[i] * row[i];
+                }
+                norm = Math.sqrt(norm) * queryNorm;
 
-                return readWord2Vec(file);
-            } else {
-                log.debug("Trying simplified model restoration...");
+                best.offer(index, norm == 0.0 ? 0.0 : dot / norm);
+            }
 
-                File tmpFileSyn0 = File.createTempFile("word2vec", "syn");
-                tmpFileSyn0.deleteOnExit();
-                File tmpFileConfig = File.createTempFile("word2vec", "config");
-                tmpFileConfig.deleteOnExit();
-                // we don't need full model, so we go directly to syn0 file
+            return best.indices();
+        }
 
-                ZipFile zipFile = new ZipFile(file);
-                ZipEntry syn = zipFile.getEntry("syn0.txt");
-                InputStream stream = zipFile.getInputStream(syn);
+        @Override
+        public INDArray get(Integer key) {
+            if (!containsKey(key))
+                return null;
 
-                Files.copy(stream, Paths.get(tmpFileSyn0.getAbsolutePath()), StandardCopyOption.REPLACE_EXISTING);
+            float[] vector = new float[vectorLength];
+            vectorAt(key, vector);
+            return Nd4j.create(vector);
+        }
 
+        @Override
+        public boolean containsKey(Integer key) {
+            return key != null && key >= 0 && key < numWords;
+        }
 
-                // now we're restoring configuration saved earlier
-                ZipEntry config = zipFile.getEntry("config.json");
-                if (config != null) {
-                    stream = zipFile.getInputStream(config);
+        @Override
+        public long size() {
+            return numWords;
+        }
 
-                    StringBuilder builder = new StringBuilder();
-                    try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream))) {
-                        String line;
-                        while ((line = reader.readLine()) != null) {
-                            builder.append(line);
-                        }
-                    }
+        @Override
+        public void store(Integer key, INDArray object) {
+            throw new UnsupportedOperationException("Static model storage is read-only");
+        }
 
-                    configuration = VectorsConfiguration.fromJson(builder.toString().trim());
-                }
+        @Override
+        public void store(Integer key, float[] array) {
+            throw new UnsupportedOperationException("Static model storage is read-only");
+        }
 
-                ZipEntry ve = zipFile.getEntry("frequencies.txt");
-                if (ve != null) {
-                    stream = zipFile.getInputStream(ve);
-                    AtomicInteger cnt = new AtomicInteger(0);
-                    try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream))) {
-                        String line;
-                        while ((line = reader.readLine()) != null) {
-                            String[] split = line.split(" ");
-                            VocabWord word = new VocabWord(Double.valueOf(split[1]), decodeB64(split[0]));
-                            word.setIndex(cnt.getAndIncrement());
-                            word.incrementSequencesCount(Long.valueOf(split[2]));
+        @Override
+        public void store(Integer key, double[] array) {
+            throw new UnsupportedOperationException("Static model storage is read-only");
+        }
 
-                            vocabCache.addToken(word);
-                            vocabCache.addWordToIndex(word.getIndex(), word.getLabel());
+        @Override
+        public boolean storeIfAbsent(Integer key, INDArray object) {
+            throw new UnsupportedOperationException("Static model storage is read-only");
+        }
 
-                            Nd4j.getMemoryManager().invokeGcOccasionally();
-                        }
-                    }
-                }
+        @Override
+        public void clear() {
+            throw new UnsupportedOperationException("Static model storage is read-only");
+        }
 
-                List<INDArray> rows = new ArrayList<>();
-                // basically read up everything, call vstacl and then return model
-                try (Reader reader = new CSVReader(tmpFileSyn0)) {
-                    AtomicInteger cnt = new AtomicInteger(0);
-                    while (reader.hasNext()) {
-                        Pair<VocabWord, float[]> pair = reader.next();
-                        VocabWord word = pair.getFirst();
-                        INDArray vector = Nd4j.create(pair.getSecond());
+        @Override
+        public void drop(Integer key) {
+            throw new UnsupportedOperationException("Static model storage is read-only");
+        }
+    }
 
-                        if (ve != null) {
-                            if (syn0 == null)
-                                syn0 = Nd4j.create(vocabCache.numWords(), vector.length());
+    /**
+     * Storage modes for loaded word vectors
+     */
+    public enum StorageMode {
+        /**
+         * Full-precision float32 vectors
+         */
+        FLOAT,
+        /**
+         * IEEE 754 half-precision vectors, 2 bytes per value
+         */
+        HALF,
+        /**
+         * int8 vectors with per-row scale, 1 byte per value
+         */
+        INT8
+    }
 
-                            syn0.getRow(cnt.getAndIncrement()).assign(vector);
-                        } else {
-                            rows.add(vector);
+    /**
+     * Storage keeping word vectors in half-precision or per-row-scaled int8 form.
+     * Rows are kept in fixed-size primitive blocks, and dequantized on get() only.
+     * Similarity and nearest neighbours search work on quantized values directly.
+     *
+     * PLEASE NOTE: this storage isn't thread-safe for writes.
+     */
+    public static class QuantizedStorage implements VectorLookup {
+        private static final int BLOCK_ROWS = 65536;
+
+        private final StorageMode mode;
+        private final List<short[]> halfBlocks = new ArrayList<>();
+        private final List<byte[]> byteBlocks = new ArrayList<>();
+        private final List<float[]> scaleBlocks = new ArrayList<>();
+        private final List<float[]> normBlocks = new ArrayList<>();
+        private int vectorLength = -1;
+        private int size;
+
+        public QuantizedStorage(@NonNull StorageMode mode) {
+            if (mode == StorageMode.FLOAT)
+                throw new ND4JIllegalStateException("QuantizedStorage supports HALF and INT8 modes only");
+
+            this.mode = mode;
+        }
 
-                            vocabCache.addToken(word);
-                            vocabCache.addWordToIndex(word.getIndex(), word.getLabel());
-                        }
+        public StorageMode getMode() {
+            return mode;
+        }
 
-                        Nd4j.getMemoryManager().invokeGcOccasionally();
-                    }
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                } finally {
-                    if (originalPeriodic)
-                        Nd4j.getMemoryManager().togglePeriodicGc(true);
+        /**
+         * This method returns length of stored vectors, or -1 if nothing was stored yet
+         */
+        public int getVectorLength() {
+            return vectorLength;
+        }
 
-                    Nd4j.getMemoryManager().setOccasionalGcFrequency(originalFreq);
+        @Override
+        public void store(Integer key, float[] array) {
+            if (vectorLength < 0)
+                vectorLength = array.length;
+            else if (array.length != vectorLength)
+                throw new ND4JIllegalStateException("Vector length should be " + vectorLength + ", but got "
+                                + array.length + " instead");
+
+            int block = key / BLOCK_ROWS;
+            int row = key % BLOCK_ROWS;
+            while (normBlocks.size() <= block) {
+                if (mode == StorageMode.HALF) {
+                    halfBlocks.add(new short[BLOCK_ROWS * vectorLength]);
+                } else {
+                    byteBlocks.add(new byte[BLOCK_ROWS * vectorLength]);
+                    scaleBlocks.add(new float[BLOCK_ROWS]);
                 }
+                normBlocks.add(new float[BLOCK_ROWS]);
+            }
 
-                if (syn0 == null && vocabCache.numWords() > 0)
-                    syn0 = Nd4j.vstack(rows);
+            int offset = row * vectorLength;
+            double norm = 0.0;
+            if (mode == StorageMode.HALF) {
+                short[] values = halfBlocks.get(block);
+                for (int i = 0; i < vectorLength; i++) {
+                    values[offset + i] = toHalf(array[i]);
+                    float restored = fromHalf(values[offset + i]);
+                    norm += restored * restored;
+                }
+            } else {
+                float max = 0.0f;
+                for (float value : array)
+                    max = Math.max(max, Math.abs(value));
 
-                if (syn0 == null) {
-                    log.error("Can't build syn0 table");
-                    throw new DL4JInvalidInputException("Can't build syn0 table");
+                float scale = max / 127.0f;
+                byte[] values = byteBlocks.get(block);
+                for (int i = 0; i < vectorLength; i++) {
+                    values[offset + i] = scale == 0.0f ? 0 : (byte) Math.round(array[i] / scale);
+                    float restored = values[offset + i] * scale;
+                    norm += restored * restored;
                 }
+                scaleBlocks.get(block)[row] = scale;
+            }
+            normBlocks.get(block)[row] = (float) Math.sqrt(norm);
 
+            size = Math.max(size, key + 1);
+        }
 
+        @Override
+        public void store(Integer key, double[] array) {
+            float[] values = new float[array.length];
+            for (int i = 0; i < array.length; i++)
+                values[i] = (float) array[i];
 
-                lookupTable = new InMemoryLookupTable.Builder<VocabWord>().cache(vocabCache)
-                                .vectorLength(syn0.columns()).useHierarchicSoftmax(false).useAdaGrad(false).build();
+            store(key, values);
+        }
 
-                lookupTable.setSyn0(syn0);
+        @Override
+        public void store(Integer key, INDArray object) {
+            store(key, object.dup().data().asFloat());
+        }
 
-                try {
-                    tmpFileSyn0.delete();
-                    tmpFileConfig.delete();
-                } catch (Exception e) {
-                    //
+        @Override
+        public boolean storeIfAbsent(Integer key, INDArray object) {
+            if (containsKey(key))
+                return false;
+
+            store(key, object);
+            return true;
+        }
+
+        @Override
+        public INDArray get(Integer key) {
+            if (!containsKey(key))
+                return null;
+
+            float[] vector = new float[vectorLength];
+            vectorAt(key, vector);
+            return Nd4j.create(vector);
+        }
+
+        /**
+         * This method copies dequantized vector at given index into provided array
+         */
+        public void vectorAt(int index, float[] target) {
+            int block = index / BLOCK_ROWS;
+            int offset = (index % BLOCK_ROWS) * vectorLength;
+            if (mode == StorageMode.HALF) {
+                short[] values = halfBlocks.get(block);
+                for (int i = 0; i < vectorLength; i++)
+                    target[i] = fromHalf(values[offset + i]);
+            } else {
+                byte[] values = byteBlocks.get(block);
+                float scale = scaleBlocks.get(block)[index % BLOCK_ROWS];
+                for (int i = 0; i < vectorLength; i++)
+                    target[i] = values[offset + i] * scale;
+            }
+        }
+
+        /**
+         * This method returns cosine similarity of two stored vectors, computed on quantized values
+         */
+        public double similarity(int first, int second) {
+            double norms = norm(first) * norm(second);
+            if (norms == 0.0)
+                return 0.0;
+
+            int firstOffset = (first % BLOCK_ROWS) * vectorLength;
+            int secondOffset = (second % BLOCK_ROWS) * vectorLength;
+            if (mode == StorageMode.HALF) {
+                short[] a = halfBlocks.get(first / BLOCK_ROWS);
+                short[] b = halfBlocks.get(second / BLOCK_ROWS);
+                double dot = 0.0;
+                for (int i = 0; i < vectorLength; i++)
+                    dot += fromHalf(a[firstOffset + i]) * fromHalf(b[secondOffset + i]);
+                return dot / norms;
+            } else {
+                byte[] a = byteBlocks.get(first / BLOCK_ROWS);
+                byte[] b = byteBlocks.get(second / BLOCK_ROWS);
+                long dot = 0;
+                for (int i = 0; i < vectorLength; i++)
+                    dot += a[firstOffset + i] * b[secondOffset + i];
+                return dot * (double) scaleBlocks.get(first / BLOCK_ROWS)[first % BLOCK_ROWS]
+                                * scaleBlocks.get(second / BLOCK_ROWS)[second % BLOCK_ROWS] / norms;
+            }
+        }
+
+        /**
+         * This method returns indices of top stored vectors by cosine similarity to given query, best first.
+         * Scan is performed on quantized values, without dequantizing rows.
+         *
+         * @param query query vector
+         * @param top number of indices to return
+         * @return
+         */
+        public int[] nearest(@NonNull float[] query, int top) {
+            if (top <= 0 || size == 0)
+                return new int[0];
+
+            double queryNorm = 0.0;
+            for (float value : query)
+                queryNorm += value * value;
+            queryNorm = Math.sqrt(queryNorm);
+
+            TopK best = new TopK(Math.min(top, size));
+
+            for (int index = 0; index < size; index++) {
+                int block = index / BLOCK_ROWS;
+                int row = index % BLOCK_ROWS;
+                int offset = row * vectorLength;
+                double norm = normBlocks.get(block)[row] * queryNorm;
+
+                double dot = 0.0;
+                if (mode == StorageMode.HALF) {
+                    short[] values = halfBlocks.get(block);
+                    for (int i = 0; i < vectorLength; i++)
+                        dot += fromHalf(values[offset + i]) * query[i];
+                } else {
+                    byte[] values = byteBlocks.get(block);
+                    for (int i = 0; i < vectorLength; i++)
+                        dot += values[offset + i] * query[i];
+                    dot *= scaleBlocks.get(block)[row];
                 }
+
+                best.offer(index, norm == 0.0 ? 0.0 : dot / norm);
             }
-        } catch (Exception e) {
-            // let's try to load this file as csv file
-            try {
-                log.debug("Trying CSV model restoration...");
 
-                Pair<InMemoryLookupTable, VocabCache> pair = loadTxt(file);
-                lookupTable = pair.getFirst();
-                vocabCache = (AbstractCache<VocabWord>) pair.getSecond();
-            } catch (Exception ex) {
-                // we fallback to trying binary model instead
-                try {
-                    log.debug("Trying binary model restoration...");
+            return best.indices();
+        }
+
+        private float norm(int index) {
+            return normBlocks.get(index / BLOCK_ROWS)[index % BLOCK_ROWS];
+        }
+
+        @Override
+        public boolean containsKey(Integer key) {
+            return key != null && key >= 0 && key < size;
+        }
+
+        @Override
+        public void clear() {
+            halfBlocks.clear();
+            byteBlocks.clear();
+            scaleBlocks.clear();
+            normBlocks.clear();
+            vectorLength = -1;
+            size = 0;
+        }
+
+        @Override
+        public void drop(Integer key) {
+            throw new UnsupportedOperationException("QuantizedStorage doesn't support removal");
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+    }
+
+    /**
+     * Base for lookup-only word vectors models over read-only VectorLookup storage.
+     * Unlike StaticWord2Vec, vectors, similarity and nearest neighbours search are delegated to the storage,
+     * so they run on stored rows directly, without building the whole table in memory.
+     * Subclasses only define how words are mapped to storage indices and back.
+     *
+     * PLEASE NOTE: there's no WeightLookupTable behind these models, so lookupTable() returns null.
+     */
+    public static abstract class LookupWord2Vec<S extends VectorLookup> implements WordVectors {
+        protected final S storage;
+        private String unk = "UNK";
+
+        protected LookupWord2Vec(@NonNull S storage) {
+            this.storage = storage;
+        }
+
+        public S getStorage() {
+            return storage;
+        }
+
+        /**
+         * This method returns label of the word at given storage index, or null if there's no such word
+         */
+        protected abstract String wordAt(int index);
+
+        public abstract long vocabSize();
+
+        @Override
+        public String getUNK() {
+            return unk;
+        }
+
+        @Override
+        public void setUNK(String newUNK) {
+            this.unk = newUNK;
+        }
+
+        @Override
+        public boolean hasWord(String word) {
+            return indexOf(word) >= 0;
+        }
+
+        @Override
+        public double[] getWordVector(String word) {
+            float[] vector = vectorOf(word);
+            if (vector == null)
+                return null;
+
+            double[] result = new double[vector.length];
+            for (int i = 0; i < vector.length; i++)
+                result[i] = vector[i];
+            return result;
+        }
+
+        @Override
+        public INDArray getWordVectorMatrix(String word) {
+            float[] vector = vectorOf(word);
+            return vector == null ? null : Nd4j.create(vector);
+        }
+
+        @Override
+        public INDArray getWordVectorMatrixNormalized(String word) {
+            INDArray vector = getWordVectorMatrix(word);
+            return vector == null ? null : Transforms.unitVec(vector);
+        }
+
+        @Override
+        public INDArray getWordVectors(@NonNull Collection<String> labels) {
+            List<INDArray> rows = new ArrayList<>();
+            for (String label : labels) {
+                INDArray vector = getWordVectorMatrix(label);
+                if (vector != null)
+                    rows.add(vector);
+            }
+
+            return rows.isEmpty() ? null : Nd4j.vstack(rows);
+        }
+
+        @Override
+        public INDArray getWordVectorsMean(Collection<String> labels) {
+            INDArray matrix = getWordVectors(labels);
+            return matrix == null ? null : matrix.mean(0);
+        }
+
+        @Override
+        public double similarity(String word, String word2) {
+            int first = storageIndexOf(word);
+            int second = storageIndexOf(word2);
+            if (first < 0 || second < 0)
+                return Double.NaN;
+
+            return storage.similarity(first, second);
+        }
+
+        @Override
+        public Collection<String> wordsNearest(String word, int n) {
+            float[] query = vectorOf(word);
+            if (query == null)
+                return Collections.emptyList();
+
+            return labelsOf(storage.nearest(query, n + 1), Collections.singleton(word), n);
+        }
+
+        @Override
+        public Collection<String> wordsNearest(@NonNull INDArray words, int top) {
+            INDArray query = words.isMatrix() && words.rows() > 1 ? words.sum(0) : words;
+            return labelsOf(storage.nearest(query.dup().data().asFloat(), top), Collections.<String>emptySet(),
+                            top);
+        }
+
+        @Override
+        public Collection<String> wordsNearest(INDArray positive, INDArray negative, int top) {
+            INDArray query = positive.dup();
+            if (negative != null)
+                query.subi(negative);
+
+            return wordsNearest(query, top);
+        }
+
+        @Override
+        public Collection<String> wordsNearest(Collection<String> positive, Collection<String> negative, int top) {
+            float[] query = combine(positive, negative);
+            if (query == null)
+                return Collections.emptyList();
+
+            Set<String> excluded = new HashSet<>(positive);
+            if (negative != null)
+                excluded.addAll(negative);
+
+            return labelsOf(storage.nearest(query, top + excluded.size()), excluded, top);
+        }
+
+        @Override
+        public Collection<String> wordsNearestSum(String word, int n) {
+            return wordsNearest(word, n);
+        }
+
+        @Override
+        public Collection<String> wordsNearestSum(INDArray words, int top) {
+            return wordsNearest(words, top);
+        }
+
+        @Override
+        public Collection<String> wordsNearestSum(Collection<String> positive, Collection<String> negative,
+                        int top) {
+            return wordsNearest(positive, negative, top);
+        }
+
+        @Override
+        public Map<String, Double> accuracy(List<String> questions) {
+            throw new UnsupportedOperationException("Method isn't implemented for lookup-only models");
+        }
+
+        @Override
+        public List<String> similarWordsInVocabTo(String word, double accuracy) {
+            throw new UnsupportedOperationException("Method isn't implemented for lookup-only models");
+        }
+
+        @Override
+        public WeightLookupTable lookupTable() {
+            return null;
+        }
+
+        @Override
+        public void setModelUtils(ModelUtils utils) {
+            // no-op, search is always performed by storage
+        }
+
+        public void loadWeightsInto(INDArray array) {
+            float[] vector = new float[storage.getVectorLength()];
+            for (int i = 0; i < storage.size(); i++) {
+                storage.vectorAt(i, vector);
+                array.putRow(i, Nd4j.create(vector));
+            }
+        }
 
-                    if (originalPeriodic)
-                        Nd4j.getMemoryManager().togglePeriodicGc(true);
+        public int vectorSize() {
+            return storage.getVectorLength();
+        }
 
-                    Nd4j.getMemoryManager().setOccasionalGcFrequency(originalFreq);
+        public boolean jsonSerialize() {
+            return false;
+        }
 
-                    vec = loadGoogleModel(file, true, true);
-                    return vec;
-                } catch (Exception ey) {
-                    // try to load without linebreaks
-                    try {
-                        if (originalPeriodic)
-                            Nd4j.getMemoryManager().togglePeriodicGc(true);
+        public boolean outOfVocabularySupported() {
+            return false;
+        }
 
-                        Nd4j.getMemoryManager().setOccasionalGcFrequency(originalFreq);
+        private int storageIndexOf(String word) {
+            int index = indexOf(word);
+            return index >= 0 && storage.containsKey(index) ? index : -1;
+        }
 
-                        vec = loadGoogleModel(file, true, false);
-                        return vec;
-                    } catch (Exception ez) {
-                        throw new RuntimeException(
-                                        "Unable to guess input file format. Please use corresponding loader directly");
-                    }
+        private float[] vectorOf(String word) {
+            int index = storageIndexOf(word);
+            if (index < 0)
+                return null;
+
+            float[] vector = new float[storage.getVectorLength()];
+            storage.vectorAt(index, vector);
+            return vector;
+        }
+
+        private float[] combine(Collection<String> positive, Collection<String> negative) {
+            float[] query = null;
+            float[] vector = new float[storage.getVectorLength()];
+            for (int pass = 0; pass < 2; pass++) {
+                Collection<String> words = pass == 0 ? positive : negative;
+                if (words == null)
+                    continue;
+
+                for (String word : words) {
+                    int index = storageIndexOf(word);
+                    if (index < 0)
+                        continue;
+
+                    storage.vectorAt(index, vector);
+                    double norm = 0.0;
+                    for (float value : vector)
+                        norm += value * value;
+                    if (norm == 0.0)
+                        continue;
+
+                    if (query == null)
+                        query = new float[vector.length];
+
+                    float factor = (float) ((pass == 0 ? 1.0 : -1.0) / Math.sqrt(norm));
+                    for (int i = 0; i < vector.length; i++)
+                        query[i] += vector[i] * factor;
                 }
             }
+            return query;
         }
 
-        Word2Vec.Builder builder = new Word2Vec.Builder(configuration).lookupTable(lookupTable).useAdaGrad(false)
-                        .vocabCache(vocabCache).layerSize(lookupTable.layerSize())
+        private List<String> labelsOf(int[] indices, Set<String> excluded, int top) {
+            List<String> result = new ArrayList<>(top);
+            for (int index : indices) {
+                if (result.size() >= top)
+                    break;
 
-                        // we don't use hs here, because model is incomplete
-                        .useHierarchicSoftmax(false).resetModel(false);
+                String label = wordAt(index);
+                if (label != null && !excluded.contains(label))
+                    result.add(label);
+            }
+            return result;
+        }
+    }
 
-        /*
-            Trying to restore TokenizerFactory & TokenPreProcessor
-         */
+    /**
+     * Lookup-only word vectors model, backed by QuantizedStorage and in-memory VocabCache.
+     * Similarity and nearest neighbours search run on quantized rows directly, without dequantizing the whole table.
+     */
+    public static class QuantizedWord2Vec extends LookupWord2Vec<QuantizedStorage> {
+        private final VocabCache<VocabWord> vocabCache;
 
-        TokenizerFactory factory = getTokenizerFactory(configuration);
-        if (factory != null)
-            builder.tokenizerFactory(factory);
+        public QuantizedWord2Vec(@NonNull QuantizedStorage storage, @NonNull VocabCache<VocabWord> vocabCache) {
+            super(storage);
+            this.vocabCache = vocabCache;
+        }
 
-        vec = builder.build();
+        @Override
+        public int indexOf(String word) {
+            return vocabCache.indexOf(word);
+        }
 
-        return vec;
+        @Override
+        protected String wordAt(int index) {
+            return vocabCache.wordAtIndex(index);
+        }
+
+        @Override
+        public VocabCache vocab() {
+            return vocabCache;
+        }
+
+        public long vocabSize() {
+            return vocabCache.numWords();
+        }
     }
 
-    protected static TokenizerFactory getTokenizerFactory(VectorsConfiguration configuration) {
-        if (configuration == null)
-            return null;
+    /**
+     * Lookup-only word vectors model, backed by StaticModelStorage.
+     * Words are resolved with binary search over sorted labels stored in the file, and labels are decoded only
+     * for returned results, so opening the model costs nothing beyond mapping the file.
+     *
+     * PLEASE NOTE: vocab() materializes in-memory VocabCache on first call.
+     */
+    public static class StaticModelWord2Vec extends LookupWord2Vec<StaticModelStorage> {
+        private volatile VocabCache<VocabWord> vocabCache;
 
-        if (configuration != null && configuration.getTokenizerFactory() != null
-                        && !configuration.getTokenizerFactory().isEmpty()) {
-            try {
-                TokenizerFactory factory =
-                                (TokenizerFactory) Class.forName(configuration.getTokenizerFactory()).newInstance();
+        public StaticModelWord2Vec(@NonNull StaticModelStorage storage) {
+            super(storage);
+        }
 
-                if (configuration.getTokenPreProcessor() != null && !configuration.getTokenPreProcessor().isEmpty()) {
-                    TokenPreProcess preProcessor =
-                                    (TokenPreProcess) Class.forName(configuration.getTokenPreProcessor()).newInstance();
-                    factory.setTokenPreProcessor(preProcessor);
-                }
+        @Override
+        public int indexOf(String word) {
+            return word == null ? -1 : storage.indexOf(word);
+        }
 
-                return factory;
+        @Override
+        protected String wordAt(int index) {
+            return storage.wordAt(index);
+        }
 
-            } catch (Exception e) {
-                log.error("Can't instantiate saved TokenizerFactory: {}", configuration.getTokenizerFactory());
+        @Override
+        public VocabCache vocab() {
+            if (vocabCache == null) {
+                synchronized (this) {
+                    if (vocabCache == null) {
+                        VocabCache<VocabWord> cache = new AbstractCache.Builder<VocabWord>().build();
+                        for (int i = 0; i < storage.numWords(); i++) {
+                            VocabWord word = new VocabWord(1.0, storage.wordAt(i));
+                            word.setIndex(i);
+
+                            cache.addToken(word);
+                            cache.addWordToIndex(word.getIndex(), word.getLabel());
+                        }
+                        vocabCache = cache;
+                    }
+                }
             }
+            return vocabCache;
+        }
+
+        public long vocabSize() {
+            return storage.numWords();
         }
-        return null;
     }
 
     /**
-     * This method restores previously saved w2v model. File can be in one of the following formats:
-     * 1) Binary model, either compressed or not. Like well-known Google Model
-     * 2) Popular CSV word2vec text format
-     * 3) DL4j compressed format
-     *
-     * In return you get StaticWord2Vec model, which might be used as lookup table only in multi-gpu environment.
+     * Approximate nearest neighbours index over word vectors, using inverted file (IVF) layout:
+     * vectors are clustered with spherical k-means, and each query scans only clusters closest to it.
      *
-     * @param file File should point to previously saved w2v model
-     * @return
+     * Index keeps centroids and cluster membership only, vectors themselves are taken from attached lookup table.
      */
-    // TODO: this method needs better name :)
-    public static WordVectors loadStaticModel(File file) {
-        if (!file.exists() || file.isDirectory())
-            throw new RuntimeException(
-                            new FileNotFoundException("File [" + file.getAbsolutePath() + "] was not found"));
+    public static class NearestNeighborsIndex {
+        private static final int VERSION = 1;
+        private static final int BATCH_SIZE = 4096;
+
+        private final INDArray centroids;
+        private final int[][] lists;
+        private int numProbes;
+
+        private INDArray syn0;
+        private float[] norms;
+        private VocabCache<? extends SequenceElement> vocabCache;
+
+        protected NearestNeighborsIndex(@NonNull INDArray centroids, @NonNull int[][] lists, int numProbes) {
+            this.centroids = centroids;
+            this.lists = lists;
+            this.numProbes = Math.max(1, Math.min(numProbes, lists.length));
+        }
 
-        int originalFreq = Nd4j.getMemoryManager().getOccasionalGcFrequency();
-        boolean originalPeriodic = Nd4j.getMemoryManager().isPeriodicGcActive();
+        /**
+         * This method builds index with sqrt(N) clusters for given lookup table
+         */
+        public static NearestNeighborsIndex build(@NonNull WeightLookupTable<?> lookupTable) {
+            int rows = lookupTable.getWeights().rows();
+            int numLists = (int) Math.max(1, Math.sqrt(rows));
+            return build(lookupTable, numLists, Math.max(1, numLists / 16), 10, 119L);
+        }
 
-        if (originalPeriodic)
-            Nd4j.getMemoryManager().togglePeriodicGc(false);
+        /**
+         * This method builds index for given lookup table
+         *
+         * @param lookupTable lookup table with syn0 to be indexed
+         * @param numLists number of clusters
+         * @param numProbes number of clusters scanned per query
+         * @param iterations number of k-means iterations
+         * @param seed random seed used for sampling
+         * @return
+         */
+        public static NearestNeighborsIndex build(@NonNull WeightLookupTable<?> lookupTable, int numLists,
+                        int numProbes, int iterations, long seed) {
+            INDArray syn0 = lookupTable.getWeights();
+            int rows = syn0.rows();
+            numLists = Math.max(1, Math.min(numLists, rows));
+
+            // k-means is trained on random sample of rows
+            Random random = new Random(seed);
+            int[] ids = new int[rows];
+            for (int i = 0; i < rows; i++)
+                ids[i] = i;
+
+            int sampleSize = Math.min(rows, numLists * 64);
+            for (int i = 0; i < sampleSize; i++) {
+                int j = i + random.nextInt(rows - i);
+                int tmp = ids[i];
+                ids[i] = ids[j];
+                ids[j] = tmp;
+            }
 
-        Nd4j.getMemoryManager().setOccasionalGcFrequency(50000);
+            INDArray sample = syn0.getRows(Arrays.copyOf(ids, sampleSize));
+            sample.diviColumnVector(sample.norm2(1).addi(1e-12));
+
+            INDArray centroids = sample.get(NDArrayIndex.interval(0, numLists), NDArrayIndex.all()).dup();
+            for (int iteration = 0; iteration < iterations; iteration++) {
+                INDArray assignments = Nd4j.argMax(sample.mmul(centroids.transpose()), 1);
+                INDArray sums = Nd4j.zeros(numLists, syn0.columns());
+                for (int i = 0; i < sampleSize; i++)
+                    sums.getRow(assignments.getInt(i)).addi(sample.getRow(i));
+
+                for (int c = 0; c < numLists; c++) {
+                    double norm = sums.getRow(c).norm2Number().doubleValue();
+                    // empty clusters keep their previous centroids
+                    if (norm > 0)
+                        centroids.putRow(c, sums.getRow(c).divi(norm));
+                }
+            }
 
-        CompressedRamStorage<Integer> storage = new CompressedRamStorage.Builder<Integer>().useInplaceCompression(false)
-                        .setCompressor(new NoOp()).emulateIsAbsent(false).build();
+            // now all rows are assigned to their nearest centroids, batch by batch
+            int[] assignments = new int[rows];
+            int[] counts = new int[numLists];
+            for (int start = 0; start < rows; start += BATCH_SIZE) {
+                int end = Math.min(rows, start + BATCH_SIZE);
+                INDArray batch = syn0.get(NDArrayIndex.interval(start, end), NDArrayIndex.all());
+                INDArray nearest = Nd4j.argMax(batch.mmul(centroids.transpose()), 1);
+                for (int i = start; i < end; i++) {
+                    assignments[i] = nearest.getInt(i - start);
+                    counts[assignments[i]]++;
+                }
+            }
 
-        VocabCache<VocabWord> vocabCache = new AbstractCache.Builder<VocabWord>().build();
+            int[][] lists = new int[numLists][];
+            for (int c = 0; c < numLists; c++)
+                lists[c] = new int[counts[c]];
 
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < rows; i++)
+                lists[assignments[i]][counts[assignments[i]]++] = i;
 
-        // now we need to define which file format we have here
-        // if zip - that's dl4j format
-        try {
-            log.debug("Trying DL4j format...");
-            File tmpFileSyn0 = File.createTempFile("word2vec", "syn");
-            tmpFileSyn0.deleteOnExit();
+            NearestNeighborsIndex index = new NearestNeighborsIndex(centroids, lists, numProbes);
+            index.attach(lookupTable);
+            return index;
+        }
+
+        /**
+         * This method attaches index to lookup table it was built for
+         */
+        public void attach(@NonNull WeightLookupTable<?> lookupTable) {
+            INDArray weights = lookupTable.getWeights();
+            if (weights.columns() != centroids.columns())
+                throw new ND4JIllegalStateException("Index was built for vectors of length " + centroids.columns()
+                                + ", but lookup table has " + weights.columns());
+
+            this.syn0 = weights;
+            this.norms = weights.norm2(1).data().asFloat();
+            this.vocabCache = lookupTable.getVocabCache();
+        }
 
-            ZipFile zipFile = new ZipFile(file);
-            ZipEntry syn0 = zipFile.getEntry("syn0.txt");
-            InputStream stream = zipFile.getInputStream(syn0);
+        public int getNumProbes() {
+            return numProbes;
+        }
 
-            Files.copy(stream, Paths.get(tmpFileSyn0.getAbsolutePath()), StandardCopyOption.REPLACE_EXISTING);
-            storage.clear();
+        /**
+         * This method sets number of clusters scanned per query. More probes mean better recall and slower queries.
+         */
+        public void setNumProbes(int numProbes) {
+            this.numProbes = Math.max(1, Math.min(numProbes, lists.length));
+        }
 
-            try (Reader reader = new CSVReader(tmpFileSyn0)) {
-                while (reader.hasNext()) {
-                    Pair<VocabWord, float[]> pair = reader.next();
-                    VocabWord word = pair.getFirst();
-                    storage.store(word.getIndex(), pair.getSecond());
+        /**
+         * This method returns labels of approximately nearest vectors to given one, by cosine similarity, best first
+         *
+         * @param words query vector
+         * @param top number of labels to return
+         * @return
+         */
+        public List<String> wordsNearest(@NonNull INDArray words, int top) {
+            if (syn0 == null)
+                throw new ND4JIllegalStateException("Index isn't attached to lookup table");
 
-                    vocabCache.addToken(word);
-                    vocabCache.addWordToIndex(word.getIndex(), word.getLabel());
+            INDArray query = words.reshape(centroids.columns(), 1);
+            int[] probes = topIndices(centroids.mmul(query).data().asDouble(), numProbes);
 
-                    Nd4j.getMemoryManager().invokeGcOccasionally();
-                }
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            } finally {
-                if (originalPeriodic)
-                    Nd4j.getMemoryManager().togglePeriodicGc(true);
+            int total = 0;
+            for (int probe : probes)
+                total += lists[probe].length;
 
-                Nd4j.getMemoryManager().setOccasionalGcFrequency(originalFreq);
+            if (total == 0 || top <= 0)
+                return Collections.emptyList();
 
-                try {
-                    tmpFileSyn0.delete();
-                } catch (Exception e) {
-                    //
-                }
+            int[] candidates = new int[total];
+            int position = 0;
+            for (int probe : probes) {
+                System.arraycopy(lists[probe], 0, candidates, position, lists[probe].length);
+                position += lists[probe].length;
             }
-        } catch (Exception e) {
-            //
-            try {
-                // try to load file as text csv
-                vocabCache = new AbstractCache.Builder<VocabWord>().build();
-                storage.clear();
-                log.debug("Trying CSVReader...");
-                try (Reader reader = new CSVReader(file)) {
-                    while (reader.hasNext()) {
-                        Pair<VocabWord, float[]> pair = reader.next();
-                        VocabWord word = pair.getFirst();
-                        storage.store(word.getIndex(), pair.getSecond());
-
-                        vocabCache.addToken(word);
-                        vocabCache.addWordToIndex(word.getIndex(), word.getLabel());
-
-                        Nd4j.getMemoryManager().invokeGcOccasionally();
-                    }
-                } catch (Exception ef) {
-                    // we throw away this exception, and trying to load data as binary model
-                    throw new RuntimeException(ef);
-                } finally {
-                    if (originalPeriodic)
-                        Nd4j.getMemoryManager().togglePeriodicGc(true);
 
-                    Nd4j.getMemoryManager().setOccasionalGcFrequency(originalFreq);
-                }
-            } catch (Exception ex) {
-                // otherwise it's probably google model. which might be compressed or not
-                log.debug("Trying BinaryReader...");
-                vocabCache = new AbstractCache.Builder<VocabWord>().build();
-                storage.clear();
-                try (Reader reader = new BinaryReader(file)) {
-                    while (reader.hasNext()) {
-                        Pair<VocabWord, float[]> pair = reader.next();
-                        VocabWord word = pair.getFirst();
+            double[] dots = syn0.getRows(candidates).mmul(query).data().asDouble();
+            double queryNorm = query.norm2Number().doubleValue();
+            for (int i = 0; i < total; i++) {
+                double norm = norms[candidates[i]] * queryNorm;
+                dots[i] = norm == 0.0 ? 0.0 : dots[i] / norm;
+            }
 
-                        storage.store(word.getIndex(), pair.getSecond());
+            List<String> result = new ArrayList<>();
+            for (int best : topIndices(dots, top))
+                result.add(vocabCache.wordAtIndex(candidates[best]));
 
-                        vocabCache.addToken(word);
-                        vocabCache.addWordToIndex(word.getIndex(), word.getLabel());
+            return result;
+        }
 
-                        Nd4j.getMemoryManager().invokeGcOccasionally();
-                    }
-                } catch (Exception ez) {
-                    throw new RuntimeException("Unable to guess input file format");
-                } finally {
-                    if (originalPeriodic)
-                        Nd4j.getMemoryManager().togglePeriodicGc(true);
+        /**
+         * This method returns positions of top values in given array, best first
+         */
+        private static int[] topIndices(double[] scores, int top) {
+            TopK best = new TopK(Math.min(top, scores.length));
+            for (int i = 0; i < scores.length; i++)
+                best.offer(i, scores[i]);
+            return best.indices();
+        }
 
-                    Nd4j.getMemoryManager().setOccasionalGcFrequency(originalFreq);
-                }
-            } finally {
-                if (originalPeriodic)
-                    Nd4j.getMemoryManager().togglePeriodicGc(true);
+        protected void write(@NonNull DataOutputStream dos) throws IOException {
+            dos.writeInt(VERSION);
+            dos.writeInt(lists.length);
+            dos.writeInt(centroids.columns());
+            dos.writeInt(numProbes);
 
-                Nd4j.getMemoryManager().setOccasionalGcFrequency(originalFreq);
+            for (int c = 0; c < lists.length; c++) {
+                for (int i = 0; i < centroids.columns(); i++)
+                    dos.writeFloat(centroids.getFloat(c, i));
+            }
+
+            for (int[] list : lists) {
+                dos.writeInt(list.length);
+                for (int id : list)
+                    dos.writeInt(id);
             }
         }
 
+        protected static NearestNeighborsIndex read(@NonNull DataInputStream dis) throws IOException {
+            int version = dis.readInt();
+            if (version != VERSION)
+                throw new DL4JInvalidInputException("Unsupported index version: " + version);
 
+            int numLists = dis.readInt();
+            int vectorLength = dis.readInt();
+            int numProbes = dis.readInt();
 
-        StaticWord2Vec word2Vec = new StaticWord2Vec.Builder(storage, vocabCache).build();
+            float[] centroids = new float[numLists * vectorLength];
+            for (int i = 0; i < centroids.length; i++)
+                centroids[i] = dis.readFloat();
 
-        return word2Vec;
+            int[][] lists = new int[numLists][];
+            for (int c = 0; c < numLists; c++) {
+                lists[c] = new int[dis.readInt()];
+                for (int i = 0; i < lists[c].length; i++)
+                    lists[c][i] = dis.readInt();
+            }
+
+            return new NearestNeighborsIndex(Nd4j.create(centroids, new int[] {numLists, vectorLength}), lists,
+                            numProbes);
+        }
     }
 
+    /**
+     * ModelUtils implementation, answering wordsNearest() queries via NearestNeighborsIndex instead of full scan
+     */
+    public static class IndexedModelUtils<T extends SequenceElement> extends BasicModelUtils<T> {
+        private final NearestNeighborsIndex index;
+
+        public IndexedModelUtils(@NonNull NearestNeighborsIndex index) {
+            this.index = index;
+        }
+
+        @Override
+        public void init(@NonNull WeightLookupTable<T> lookupTable) {
+            super.init(lookupTable);
+            index.attach(lookupTable);
+        }
+
+        @Override
+        public Collection<String> wordsNearest(@NonNull INDArray words, int top) {
+            return index.wordsNearest(words, top);
+        }
+    }
 
     protected interface Reader extends AutoCloseable {
         boolean hasNext();
@@ -2682,17 +5525,29 @@ public class WordVectorSerializer {
         protected AtomicInteger idxCounter = new AtomicInteger(0);
 
         protected BinaryReader(@NonNull File file) {
+            this(openStream(file));
+        }
+
+        protected BinaryReader(@NonNull InputStream stream) {
             try {
-                stream = new DataInputStream(new BufferedInputStream(GzipUtils.isCompressedFilename(file.getName())
-                                ? new GZIPInputStream(new FileInputStream(file)) : new FileInputStream(file)));
+                this.stream = new DataInputStream(new BufferedInputStream(stream));
 
-                numWords = Integer.parseInt(readString(stream));
-                vectorLength = Integer.parseInt(readString(stream));
+                numWords = Integer.parseInt(readString(this.stream));
+                vectorLength = Integer.parseInt(readString(this.stream));
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
         }
 
+        private static InputStream openStream(File file) {
+            try {
+                return GzipUtils.isCompressedFilename(file.getName()) ? new GZIPInputStream(new FileInputStream(file))
+                                : new FileInputStream(file);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
         @Override
         public boolean hasNext() {
             return idxCounter.get() < numWords;
@@ -2724,14 +5579,152 @@ public class WordVectorSerializer {
         }
     }
 
+    /**
+     * This class reads binary syn0 table of DL4J zip model row by row, taking labels from frequencies table
+     */
+    protected static class BinaryTableReader implements Reader {
+        private final DataInputStream stream;
+        private final List<Pair<String, double[]>> labels;
+        private final int numWords;
+        private final byte[] buffer;
+        private int idx = 0;
+
+        protected BinaryTableReader(@NonNull InputStream stream, @NonNull List<Pair<String, double[]>> labels)
+                        throws IOException {
+            this.stream = new DataInputStream(new BufferedInputStream(stream));
+            this.labels = labels;
+
+            numWords = this.stream.readInt();
+            int vectorLength = this.stream.readInt();
+            // number of docs isn't used here
+            this.stream.readLong();
+
+            if (numWords != labels.size())
+                throw new DL4JInvalidInputException("Binary syn0 doesn't match vocabulary");
+
+            buffer = new byte[vectorLength * 4];
+        }
+
+        @Override
+        public boolean hasNext() {
+            return idx < numWords;
+        }
+
+        @Override
+        public Pair<VocabWord, float[]> next() {
+            try {
+                Pair<String, double[]> label = labels.get(idx);
+                VocabWord word = new VocabWord(1.0, label.getFirst());
+                word.setIndex(idx++);
+
+                stream.readFully(buffer);
+                float[] vector = new float[buffer.length / 4];
+                ByteBuffer.wrap(buffer).asFloatBuffer().get(vector);
+
+                return Pair.makePair(word, vector);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void close() throws Exception {
+            stream.close();
+        }
+    }
+
+    /**
+     * This class reads Google binary model through sliding memory-mapped windows, so files larger than 2GB are supported.
+     */
+    protected static class MappedBinaryReader implements AutoCloseable {
+        private static final long WINDOW_SIZE = 1L << 30;
+
+        private final FileChannel channel;
+        private final long fileSize;
+        private MappedByteBuffer window;
+        private long windowStart;
+        private byte[] scratch = new byte[MAX_SIZE];
+
+        protected MappedBinaryReader(@NonNull File file) throws IOException {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            fileSize = channel.size();
+            map(0);
+        }
+
+        private void map(long position) throws IOException {
+            windowStart = position;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, fileSize - position));
+            window.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        /**
+         * Makes sure that given number of bytes can be read from current window, remapping it if needed
+         */
+        private void ensure(int bytes) throws IOException {
+            if (window.remaining() < bytes) {
+                long position = windowStart + window.position();
+                if (position + bytes > fileSize)
+                    throw new EOFException("Unexpected end of file at position " + position);
+
+                map(position);
+            }
+        }
+
+        /**
+         * This method returns next space- or linebreak-terminated token, skipping leading separators
+         */
+        protected String readWord() throws IOException {
+            byte b;
+            do {
+                ensure(1);
+                b = window.get();
+            } while (b == 32 || b == 10);
+
+            int length = 0;
+            while (b != 32 && b != 10) {
+                if (length == scratch.length)
+                    scratch = Arrays.copyOf(scratch, length * 2);
+
+                scratch[length++] = b;
+
+                ensure(1);
+                b = window.get();
+            }
+
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * This method copies next {@code length} little-endian floats into given array
+         */
+        protected void readFloats(float[] target, int offset, int length) throws IOException {
+            ensure(length * 4);
+            window.asFloatBuffer().get(target, offset, length);
+            window.position(window.position() + length * 4);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
     protected static class CSVReader implements Reader {
         private BufferedReader reader;
         private AtomicInteger idxCounter = new AtomicInteger(0);
         private String nextLine;
 
         protected CSVReader(@NonNull File file) {
+            this(openReader(file));
+        }
+
+        protected CSVReader(@NonNull InputStream stream) {
+            this(new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8)));
+        }
+
+        private CSVReader(@NonNull BufferedReader reader) {
             try {
-                reader = new BufferedReader(new FileReader(file));
+                this.reader = reader;
                 nextLine = reader.readLine();
 
                 // checking if there's header inside
@@ -2749,6 +5742,14 @@ public class WordVectorSerializer {
             }
         }
 
+        private static BufferedReader openReader(File file) {
+            try {
+                return new BufferedReader(new FileReader(file));
+            } catch (FileNotFoundException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
         public boolean hasNext() {
             return nextLine != null;
         }
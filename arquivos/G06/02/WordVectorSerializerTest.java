@@ -46,17 +46,32 @@ import org.junit.Test;
 import org.nd4j.linalg.api.ndarray.INDArray;
 import org.nd4j.linalg.factory.Nd4j;
 import org.nd4j.linalg.ops.transforms.Transforms;
+import org.nd4j.linalg.primitives.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import static org.junit.Assert.*;
 
@@ -93,6 +108,664 @@ public class WordVectorSerializerTest {
     }
 
 
+    @Test
+    public void testLoaderMappedBinary() throws IOException {
+        File unpacked = File.createTempFile("google_news_30", ".bin");
+        unpacked.deleteOnExit();
+        try (GZIPInputStream stream = new GZIPInputStream(new FileInputStream(binaryFile))) {
+            FileUtils.copyInputStreamToFile(stream, unpacked);
+        }
+
+        WordVectors expected = WordVectorSerializer.loadGoogleModel(binaryFile, true);
+        WordVectors vec = WordVectorSerializer.loadGoogleModelMapped(unpacked);
+
+        assertEquals(30, vec.vocab().numWords());
+        assertTrue(vec.vocab().hasToken("Morgan_Freeman"));
+        assertEquals(expected.getWordVectorMatrix("Morgan_Freeman"), vec.getWordVectorMatrix("Morgan_Freeman"));
+        assertEquals(expected.getWordVectorMatrix("JA_Montalbano"), vec.getWordVectorMatrix("JA_Montalbano"));
+    }
+
+    @Test
+    public void testLoaderTextParallel() throws IOException {
+        Pair<InMemoryLookupTable, VocabCache> expected = WordVectorSerializer.loadTxt(textFile);
+        Pair<InMemoryLookupTable, VocabCache> pair = WordVectorSerializer.loadTxt(textFile, 4);
+
+        assertEquals(expected.getSecond().numWords(), pair.getSecond().numWords());
+        for (int i = 0; i < expected.getSecond().numWords(); i++) {
+            assertEquals(expected.getSecond().wordAtIndex(i), pair.getSecond().wordAtIndex(i));
+        }
+        assertEquals(expected.getFirst().getSyn0(), pair.getFirst().getSyn0());
+    }
+
+    @Test
+    public void testStaticModelPersistence() throws IOException {
+        WordVectors vec = WordVectorSerializer.loadGoogleModel(textFile, false);
+
+        File full = File.createTempFile("static", "full");
+        File half = File.createTempFile("static", "half");
+        full.deleteOnExit();
+        half.deleteOnExit();
+
+        WordVectorSerializer.writeStaticModel(vec, full, false);
+        WordVectorSerializer.writeStaticModel(vec, half, true);
+
+        WordVectors restored = WordVectorSerializer.loadStaticModel(full);
+        WordVectors restoredHalf = WordVectorSerializer.readStaticModel(half);
+
+        assertEquals(vec.vocab().numWords(), restored.vocab().numWords());
+        assertEquals(vec.getWordVectorMatrix("Morgan_Freeman"), restored.getWordVectorMatrix("Morgan_Freeman"));
+        assertArrayEquals(vec.getWordVector("JA_Montalbano"), restoredHalf.getWordVector("JA_Montalbano"), 1e-3);
+    }
+
+    @Test
+    public void testStaticModelLookup() throws IOException {
+        WordVectors vec = WordVectorSerializer.loadGoogleModel(textFile, false);
+
+        File file = File.createTempFile("static", "lookup");
+        file.deleteOnExit();
+        WordVectorSerializer.writeStaticModel(vec, file, false);
+
+        WordVectorSerializer.StaticModelWord2Vec restored = WordVectorSerializer.readStaticModel(file);
+        assertEquals(vec.vocab().numWords(), restored.vocabSize());
+        for (int i = 0; i < vec.vocab().numWords(); i++) {
+            String word = vec.vocab().wordAtIndex(i);
+            assertEquals(i, restored.indexOf(word));
+            assertTrue(restored.hasWord(word));
+        }
+        assertFalse(restored.hasWord("not_a_word_in_vocab"));
+        assertNull(restored.getWordVector("not_a_word_in_vocab"));
+
+        assertEquals(vec.similarity("Morgan_Freeman", "JA_Montalbano"),
+                        restored.similarity("Morgan_Freeman", "JA_Montalbano"), 1e-5);
+        assertEquals(vec.wordsNearest("Morgan_Freeman", 3), restored.wordsNearest("Morgan_Freeman", 3));
+    }
+
+    @Test
+    public void testStaticModelEmptyVocab() throws IOException {
+        AbstractCache<VocabWord> cache = new AbstractCache.Builder<VocabWord>().build();
+        InMemoryLookupTable<VocabWord> lookupTable =
+                        (InMemoryLookupTable<VocabWord>) new InMemoryLookupTable.Builder<VocabWord>().cache(cache)
+                                        .vectorLength(10).useAdaGrad(false).useHierarchicSoftmax(false).build();
+        Word2Vec vec = new Word2Vec.Builder().vocabCache(cache).lookupTable(lookupTable).layerSize(10)
+                        .resetModel(false).build();
+
+        File file = File.createTempFile("static", "empty");
+        file.deleteOnExit();
+        WordVectorSerializer.writeStaticModel(vec, file, false);
+
+        WordVectorSerializer.StaticModelWord2Vec restored = WordVectorSerializer.readStaticModel(file);
+        assertEquals(0, restored.vocabSize());
+        assertFalse(restored.hasWord("word"));
+        assertEquals(0, restored.vocab().numWords());
+    }
+
+    @Test
+    public void testQuantizedStorage() throws IOException {
+        WordVectors vec = WordVectorSerializer.loadGoogleModel(textFile, false);
+
+        for (WordVectorSerializer.StorageMode mode : new WordVectorSerializer.StorageMode[] {
+                        WordVectorSerializer.StorageMode.HALF, WordVectorSerializer.StorageMode.INT8}) {
+            WordVectorSerializer.QuantizedStorage storage = new WordVectorSerializer.QuantizedStorage(mode);
+            for (int i = 0; i < vec.vocab().numWords(); i++) {
+                storage.store(i, vec.getWordVectorMatrix(vec.vocab().wordAtIndex(i)));
+            }
+
+            int index = vec.vocab().indexOf("Morgan_Freeman");
+            float[] query = new float[vec.lookupTable().layerSize()];
+            storage.vectorAt(index, query);
+
+            assertArrayEquals(vec.getWordVectorMatrix("Morgan_Freeman").data().asFloat(), query, 0.05f);
+            assertEquals(index, storage.nearest(query, 3)[0]);
+            assertEquals(vec.similarity("Morgan_Freeman", "JA_Montalbano"),
+                            storage.similarity(index, vec.vocab().indexOf("JA_Montalbano")), 0.05);
+        }
+
+        WordVectors restored = WordVectorSerializer.loadStaticModel(textFile, WordVectorSerializer.StorageMode.INT8);
+        assertEquals(vec.vocab().numWords(), restored.vocab().numWords());
+    }
+
+    @Test
+    public void testQuantizedModelSearch() throws IOException {
+        WordVectors vec = WordVectorSerializer.loadGoogleModel(textFile, false);
+
+        for (WordVectorSerializer.StorageMode mode : new WordVectorSerializer.StorageMode[] {
+                        WordVectorSerializer.StorageMode.HALF, WordVectorSerializer.StorageMode.INT8}) {
+            WordVectors quantized = WordVectorSerializer.readWord2VecModel(textFile, mode);
+            assertTrue(quantized instanceof WordVectorSerializer.QuantizedWord2Vec);
+            assertEquals(vec.vocab().numWords(), quantized.vocab().numWords());
+
+            assertEquals(vec.similarity("Morgan_Freeman", "JA_Montalbano"),
+                            quantized.similarity("Morgan_Freeman", "JA_Montalbano"), 0.05);
+
+            Collection<String> nearest = quantized.wordsNearest("Morgan_Freeman", 5);
+            assertEquals(5, nearest.size());
+            assertFalse(nearest.contains("Morgan_Freeman"));
+            assertTrue(recall(vec.wordsNearest("Morgan_Freeman", 5), nearest) >= 0.6);
+        }
+    }
+
+    @Ignore
+    @Test
+    public void testQuantizedModelRecallAndLatency() throws IOException {
+        int numWords = Integer.getInteger("w2v.bench.words", 100000);
+        int dim = Integer.getInteger("w2v.bench.dim", 300);
+        int queries = 100;
+        int top = 10;
+
+        File model;
+        if (System.getProperty("w2v.bench.model") != null) {
+            model = new File(System.getProperty("w2v.bench.model"));
+        } else {
+            AbstractCache<VocabWord> cache = new AbstractCache.Builder<VocabWord>().build();
+            for (int i = 0; i < numWords; i++) {
+                VocabWord word = new VocabWord(1.0, "word_" + i);
+                word.setIndex(i);
+                cache.addToken(word);
+                cache.addWordToIndex(i, word.getLabel());
+            }
+
+            InMemoryLookupTable<VocabWord> lookupTable =
+                            (InMemoryLookupTable<VocabWord>) new InMemoryLookupTable.Builder<VocabWord>().cache(cache)
+                                            .vectorLength(dim).useAdaGrad(false).useHierarchicSoftmax(false).build();
+            lookupTable.setSyn0(Nd4j.rand(numWords, dim).subi(0.5));
+
+            model = File.createTempFile("recall", ".txt");
+            model.deleteOnExit();
+            WordVectorSerializer.writeWordVectors(lookupTable, model);
+        }
+
+        WordVectors baseline = WordVectorSerializer.readWord2VecModel(model, WordVectorSerializer.StorageMode.FLOAT);
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < queries; i++)
+            words.add(baseline.vocab().wordAtIndex(i * 97 % baseline.vocab().numWords()));
+
+        List<Collection<String>> expected = new ArrayList<>();
+        long time = System.nanoTime();
+        for (String word : words)
+            expected.add(baseline.wordsNearest(word, top));
+        logger.info("FLOAT: {} us per query", (System.nanoTime() - time) / 1000 / queries);
+
+        for (WordVectorSerializer.StorageMode mode : new WordVectorSerializer.StorageMode[] {
+                        WordVectorSerializer.StorageMode.HALF, WordVectorSerializer.StorageMode.INT8}) {
+            WordVectors quantized = WordVectorSerializer.readWord2VecModel(model, mode);
+
+            double recall = 0.0;
+            time = System.nanoTime();
+            for (int i = 0; i < words.size(); i++)
+                recall += recall(expected.get(i), quantized.wordsNearest(words.get(i), top));
+
+            logger.info("{}: {} us per query, recall@{}: {}", mode, (System.nanoTime() - time) / 1000 / queries,
+                            top, recall / queries);
+        }
+    }
+
+    private static double recall(Collection<String> expected, Collection<String> actual) {
+        int hits = 0;
+        for (String word : actual)
+            if (expected.contains(word))
+                hits++;
+
+        return expected.isEmpty() ? 1.0 : (double) hits / expected.size();
+    }
+
+    @Test
+    public void testNearestNeighborsIndex() throws IOException {
+        WordVectors vec = WordVectorSerializer.loadGoogleModel(textFile, false);
+
+        WordVectorSerializer.NearestNeighborsIndex index =
+                        WordVectorSerializer.NearestNeighborsIndex.build(vec.lookupTable(), 4, 4, 5, 119L);
+
+        List<String> nearest = index.wordsNearest(vec.getWordVectorMatrix("Morgan_Freeman"), 3);
+        assertEquals(3, nearest.size());
+        assertEquals("Morgan_Freeman", nearest.get(0));
+
+        index.setNumProbes(1);
+        assertTrue(index.wordsNearest(vec.getWordVectorMatrix("JA_Montalbano"), 3).contains("JA_Montalbano"));
+    }
+
+    @Test
+    public void testBinaryTablesPersistence() throws IOException {
+        Word2Vec vec = WordVectorSerializer.readWord2VecModel(textFile);
+
+        File tmp = File.createTempFile("w2v_binary", ".zip");
+        tmp.deleteOnExit();
+
+        WordVectorSerializer.WriterOptions options = new WordVectorSerializer.WriterOptions.Builder()
+                        .binaryTables(true).stored(true).workers(2).build();
+        List<WordVectorSerializer.EntryStats> stats;
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            stats = WordVectorSerializer.writeWord2VecModel(vec, fos, options);
+        }
+        assertEquals("syn0.bin", stats.get(0).getName());
+
+        Word2Vec restored = WordVectorSerializer.readWord2VecModel(tmp, true);
+        assertEquals(vec.vocab().numWords(), restored.vocab().numWords());
+        assertEquals(vec.getWordVectorMatrix("Morgan_Freeman"), restored.getWordVectorMatrix("Morgan_Freeman"));
+
+        restored = WordVectorSerializer.readWord2VecModel(tmp, false);
+        assertEquals(vec.getWordVectorMatrix("JA_Montalbano"), restored.getWordVectorMatrix("JA_Montalbano"));
+    }
+
+    @Test
+    public void testMappedVocabCache() throws IOException {
+        WordVectors vec = WordVectorSerializer.loadGoogleModel(textFile, false);
+
+        File tmp = File.createTempFile("vocab_cache", ".json");
+        tmp.deleteOnExit();
+        WordVectorSerializer.writeVocabCache((VocabCache<VocabWord>) vec.vocab(), tmp);
+
+        VocabCache<VocabWord> eager = WordVectorSerializer.readVocabCache(tmp);
+        VocabCache<VocabWord> lazy = WordVectorSerializer.readVocabCache(tmp, true);
+
+        assertEquals(eager.numWords(), lazy.numWords());
+        for (int i = 0; i < eager.numWords(); i++) {
+            String label = eager.wordAtIndex(i);
+            assertEquals(label, lazy.wordAtIndex(i));
+            assertEquals(eager.indexOf(label), lazy.indexOf(label));
+            assertEquals(eager.wordFrequency(label), lazy.wordFrequency(label));
+            assertEquals(label, lazy.tokenFor(eager.tokenFor(label).getStorageId()).getLabel());
+        }
+
+        assertTrue(lazy.containsWord("Morgan_Freeman"));
+        assertFalse(lazy.containsWord("Morgan_Freeman_"));
+        assertNull(lazy.tokenFor("Morgan_Freeman_"));
+    }
+
+    @Test
+    public void testFormatDetection() throws IOException {
+        assertEquals(WordVectorSerializer.ModelFormat.TEXT, WordVectorSerializer.detectFormat(textFile));
+        assertEquals(WordVectorSerializer.ModelFormat.BINARY, WordVectorSerializer.detectFormat(binaryFile));
+
+        // first float of binary row starts with digit bytes followed by line break
+        File tricky = File.createTempFile("w2v_format", ".bin");
+        tricky.deleteOnExit();
+        try (FileOutputStream fos = new FileOutputStream(tricky)) {
+            fos.write("1 3\nword ".getBytes(StandardCharsets.UTF_8));
+            fos.write(new byte[] {'1', '2', '\n', 0x3f, 0, 0, 0, 0x3f, 0, 0, 0, 0x3f});
+        }
+        assertEquals(WordVectorSerializer.ModelFormat.BINARY, WordVectorSerializer.detectFormat(tricky));
+
+        // header-like first line with numbers out of int range
+        File overflow = File.createTempFile("w2v_format", ".txt");
+        overflow.deleteOnExit();
+        FileUtils.writeStringToFile(overflow, "99999999999 3\nword 0.1 0.2 0.3\n", StandardCharsets.UTF_8);
+        assertEquals(WordVectorSerializer.ModelFormat.TEXT, WordVectorSerializer.detectFormat(overflow));
+
+        Word2Vec vec = WordVectorSerializer.readWord2VecModel(textFile);
+        File zip = File.createTempFile("w2v_format", ".zip");
+        zip.deleteOnExit();
+        WordVectorSerializer.writeWord2VecModel(vec, zip);
+        assertEquals(WordVectorSerializer.ModelFormat.DL4J, WordVectorSerializer.detectFormat(zip));
+
+        File staticModel = File.createTempFile("w2v_format", ".static");
+        staticModel.deleteOnExit();
+        WordVectorSerializer.writeStaticModel(vec, staticModel, false);
+        assertEquals(WordVectorSerializer.ModelFormat.STATIC, WordVectorSerializer.detectFormat(staticModel));
+
+        final List<WordVectorSerializer.ModelFormat> formats = new ArrayList<>();
+        final long[] loaded = new long[1];
+        WordVectors restored = WordVectorSerializer.loadStaticModel(binaryFile,
+                        WordVectorSerializer.StorageMode.FLOAT, new WordVectorSerializer.LoadingListener() {
+                            @Override
+                            public void formatDetected(WordVectorSerializer.ModelFormat format) {
+                                formats.add(format);
+                            }
+
+                            @Override
+                            public void progress(long wordsLoaded) {
+                                //
+                            }
+
+                            @Override
+                            public void finished(long numWords, long elapsedTime) {
+                                loaded[0] = numWords;
+                            }
+                        });
+
+        assertEquals(Arrays.asList(WordVectorSerializer.ModelFormat.BINARY), formats);
+        assertEquals(30, loaded[0]);
+        assertTrue(restored.hasWord("Morgan_Freeman"));
+    }
+
+    /**
+     * Round-trip timings for serializer read/write paths over synthetic model, covering Google text, binary,
+     * gzipped and mapped loaders, zip models, static models, vocab cache and paragraph vectors.
+     * Model size is controlled with -Dw2v.bench.words and -Dw2v.bench.dim system properties.
+     *
+     * Each path reports bytes allocated by the calling thread and peak RSS of the process,
+     * allocations made by worker threads of parallel paths aren't included.
+     */
+    @Ignore
+    @Test
+    public void testSerializationThroughput() throws Exception {
+        int numWords = Integer.getInteger("w2v.bench.words", 100000);
+        int dim = Integer.getInteger("w2v.bench.dim", 300);
+
+        final Word2Vec vec = syntheticModel(numWords, dim);
+        VocabCache<VocabWord> cache = vec.getVocab();
+        WeightLookupTable<VocabWord> lookupTable = vec.getLookupTable();
+
+        final File text = File.createTempFile("bench", ".txt");
+        final File textZip = File.createTempFile("bench_text", ".zip");
+        final File binaryZip = File.createTempFile("bench_binary", ".zip");
+        final File staticModel = File.createTempFile("bench", ".static");
+        final File vocab = File.createTempFile("bench", ".vocab");
+        final File googleBinary = File.createTempFile("bench", ".bin");
+        final File googleGzip = File.createTempFile("bench", ".bin.gz");
+        final File paragraphVectors = File.createTempFile("bench_pv", ".zip");
+        for (File file : Arrays.asList(text, textZip, binaryZip, staticModel, vocab, googleBinary, googleGzip,
+                        paragraphVectors))
+            file.deleteOnExit();
+
+        timed("writeWordVectors", text, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                WordVectorSerializer.writeWordVectors(vec.lookupTable(), text);
+                return null;
+            }
+        });
+
+        timed("loadTxt", text, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return WordVectorSerializer.loadTxt(text);
+            }
+        });
+
+        timed("loadTxt parallel", text, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return WordVectorSerializer.loadTxt(text, Runtime.getRuntime().availableProcessors());
+            }
+        });
+
+        timed("loadGoogleModel text", text, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return WordVectorSerializer.loadGoogleModel(text, false);
+            }
+        });
+
+        writeGoogleBinary(vec, googleBinary, false);
+        writeGoogleBinary(vec, googleGzip, true);
+
+        timed("loadGoogleModel binary", googleBinary, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return WordVectorSerializer.loadGoogleModel(googleBinary, true);
+            }
+        });
+
+        timed("loadGoogleModel binary gzip", googleGzip, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return WordVectorSerializer.loadGoogleModel(googleGzip, true);
+            }
+        });
+
+        timed("loadGoogleModelMapped", googleBinary, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return WordVectorSerializer.loadGoogleModelMapped(googleBinary);
+            }
+        });
+
+        timed("loadStaticModel binary gzip", googleGzip, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return WordVectorSerializer.loadStaticModel(googleGzip);
+            }
+        });
+
+        timed("writeWord2VecModel text", textZip, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                WordVectorSerializer.writeWord2VecModel(vec, textZip);
+                return null;
+            }
+        });
+
+        timed("writeWord2VecModel binary", binaryZip, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                try (FileOutputStream fos = new FileOutputStream(binaryZip)) {
+                    WordVectorSerializer.writeWord2VecModel(vec, fos, new WordVectorSerializer.WriterOptions.Builder()
+                                    .binaryTables(true).build());
+                }
+                return null;
+            }
+        });
+
+        for (final File zip : Arrays.asList(textZip, binaryZip)) {
+            timed("readWord2VecModel full " + zip.getName(), zip, new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    return WordVectorSerializer.readWord2VecModel(zip, true);
+                }
+            });
+
+            timed("readWord2VecModel simplified " + zip.getName(), zip, new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    return WordVectorSerializer.readWord2VecModel(zip, false);
+                }
+            });
+
+            timed("loadStaticModel " + zip.getName(), zip, new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    return WordVectorSerializer.loadStaticModel(zip);
+                }
+            });
+        }
+
+        timed("writeStaticModel", staticModel, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                WordVectorSerializer.writeStaticModel(vec, staticModel, false);
+                return null;
+            }
+        });
+
+        timed("readStaticModel", staticModel, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return WordVectorSerializer.readStaticModel(staticModel);
+            }
+        });
+
+        timed("writeVocabCache", vocab, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                WordVectorSerializer.writeVocabCache(vec.getVocab(), vocab);
+                return null;
+            }
+        });
+
+        timed("readVocabCache", vocab, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return WordVectorSerializer.readVocabCache(vocab);
+            }
+        });
+
+        timed("readVocabCache lazy", vocab, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return WordVectorSerializer.readVocabCache(vocab, true);
+            }
+        });
+
+        // every 100th element becomes a label, as paragraph vectors keep labels in the same vocab
+        for (int i = 0; i < numWords; i += 100)
+            cache.wordFor("word_" + i).markAsLabel(true);
+
+        final ParagraphVectors pv = new ParagraphVectors.Builder(vec.getConfiguration()).vocabCache(cache)
+                        .lookupTable(lookupTable).resetModel(false).build();
+
+        timed("writeParagraphVectors", paragraphVectors, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                WordVectorSerializer.writeParagraphVectors(pv, paragraphVectors);
+                return null;
+            }
+        });
+
+        timed("readParagraphVectors", paragraphVectors, new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return WordVectorSerializer.readParagraphVectors(paragraphVectors);
+            }
+        });
+    }
+
+    /**
+     * Timings of DL4J zip model reader, which parses archive entries straight from ZipFile streams.
+     * Extraction of all entries into temporary files is timed as well, that's the cost the reader no longer pays.
+     * Model size is controlled with -Dw2v.bench.words and -Dw2v.bench.dim system properties.
+     */
+    @Ignore
+    @Test
+    public void testStreamingZipReaderThroughput() throws Exception {
+        int numWords = Integer.getInteger("w2v.bench.words", 1000000);
+        int dim = Integer.getInteger("w2v.bench.dim", 100);
+
+        Word2Vec vec = syntheticModel(numWords, dim);
+
+        final File textZip = File.createTempFile("bench_text", ".zip");
+        final File binaryZip = File.createTempFile("bench_binary", ".zip");
+        textZip.deleteOnExit();
+        binaryZip.deleteOnExit();
+
+        WordVectorSerializer.writeWord2VecModel(vec, textZip);
+        try (FileOutputStream fos = new FileOutputStream(binaryZip)) {
+            WordVectorSerializer.writeWord2VecModel(vec, fos,
+                            new WordVectorSerializer.WriterOptions.Builder().binaryTables(true).build());
+        }
+
+        for (final File zip : Arrays.asList(textZip, binaryZip)) {
+            timed("extract entries " + zip.getName(), zip, new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    long total = 0;
+                    try (ZipFile zipFile = new ZipFile(zip)) {
+                        for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                            File tmp = File.createTempFile("bench_entry", ".tmp");
+                            try (InputStream stream = zipFile.getInputStream(entry)) {
+                                FileUtils.copyInputStreamToFile(stream, tmp);
+                                total += tmp.length();
+                            } finally {
+                                tmp.delete();
+                            }
+                        }
+                    }
+                    return total;
+                }
+            });
+
+            timed("readWord2Vec " + zip.getName(), zip, new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    return WordVectorSerializer.readWord2Vec(zip);
+                }
+            });
+
+            timed("readWord2VecModel simplified " + zip.getName(), zip, new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    return WordVectorSerializer.readWord2VecModel(zip, false);
+                }
+            });
+        }
+    }
+
+    private static Word2Vec syntheticModel(int numWords, int dim) {
+        AbstractCache<VocabWord> cache = new AbstractCache.Builder<VocabWord>().build();
+        for (int i = 0; i < numWords; i++) {
+            VocabWord word = new VocabWord(1.0 + i % 100, "word_" + i);
+            word.setIndex(i);
+            cache.addToken(word);
+            cache.addWordToIndex(i, word.getLabel());
+        }
+
+        InMemoryLookupTable<VocabWord> lookupTable =
+                        (InMemoryLookupTable<VocabWord>) new InMemoryLookupTable.Builder<VocabWord>().cache(cache)
+                                        .vectorLength(dim).useAdaGrad(false).useHierarchicSoftmax(false).build();
+        lookupTable.setSyn0(Nd4j.rand(numWords, dim));
+
+        return new Word2Vec.Builder().vocabCache(cache).lookupTable(lookupTable).layerSize(dim).resetModel(false)
+                        .build();
+    }
+
+    private void timed(String name, File file, Callable<Object> callable) throws Exception {
+        // warmup run, result is thrown away
+        callable.call();
+        System.gc();
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        resetPeakRss();
+
+        long allocated = threads.getThreadAllocatedBytes(thread);
+        long time = System.nanoTime();
+        Object result = callable.call();
+        time = System.nanoTime() - time;
+        allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+
+        logger.info("{}: {} ms, file size: {} bytes, allocated: {} bytes, peak RSS: {} kB, result: {}", name,
+                        time / 1000000, file.length(), allocated, peakRss(),
+                        result == null ? "none" : result.getClass().getSimpleName());
+    }
+
+    /**
+     * Resets VmHWM of this process, supported by Linux 4.0+ only
+     */
+    private static void resetPeakRss() {
+        try (FileOutputStream fos = new FileOutputStream("/proc/self/clear_refs")) {
+            fos.write('5');
+        } catch (IOException e) {
+            // peak will include earlier runs
+        }
+    }
+
+    /**
+     * Returns VmHWM of this process in kB, or -1 if /proc isn't available
+     */
+    private static long peakRss() throws IOException {
+        File status = new File("/proc/self/status");
+        if (!status.exists())
+            return -1;
+
+        for (String line : FileUtils.readLines(status, StandardCharsets.UTF_8)) {
+            if (line.startsWith("VmHWM:"))
+                return Long.parseLong(line.substring(6).replace("kB", "").trim());
+        }
+        return -1;
+    }
+
+    /**
+     * Writes vectors in original word2vec binary format, without line breaks
+     */
+    private static void writeGoogleBinary(WordVectors vec, File file, boolean gzip) throws IOException {
+        try (OutputStream os = gzip ? new GZIPOutputStream(new FileOutputStream(file)) : new FileOutputStream(file);
+                        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(os))) {
+            int numWords = vec.vocab().numWords();
+            int dim = vec.lookupTable().layerSize();
+            dos.write((numWords + " " + dim + "\n").getBytes(StandardCharsets.UTF_8));
+
+            ByteBuffer buffer = ByteBuffer.allocate(4 * dim).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < numWords; i++) {
+                String word = vec.vocab().wordAtIndex(i);
+                dos.write((word + " ").getBytes(StandardCharsets.UTF_8));
+
+                buffer.clear();
+                for (double value : vec.getWordVector(word))
+                    buffer.putFloat((float) value);
+                dos.write(buffer.array());
+            }
+        }
+    }
+
     @Test
     public void testVocabPeristence() throws Exception {
         // we build vocab save it, and confirm equality
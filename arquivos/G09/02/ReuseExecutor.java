@@ -16,18 +16,23 @@
 package org.apache.ibatis.executor;
 
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
 import org.apache.ibatis.executor.statement.StatementHandler;
-import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -38,17 +43,62 @@ import org.apache.ibatis.transaction.Transaction;
  */
 public class ReuseExecutor extends BaseExecutor {
 
-  private final Map<String, Statement> statementMap = new HashMap<String, Statement>();
+  /**
+   * Configuration variable holding maximum number of cached statements, 0 means unbounded.
+   */
+  public static final String MAX_STATEMENTS_PROPERTY = "reuseExecutor.maxStatements";
+  /**
+   * Configuration variable holding maximum idle time of cached statement in milliseconds, 0 means unlimited.
+   */
+  public static final String MAX_IDLE_TIME_PROPERTY = "reuseExecutor.maxIdleTime";
+
+  /**
+   * Configuration variable holding maximum number of statements kept open per physical connection
+   * once the executor that prepared them is done, to be reused by later sessions. 0 (default) disables sharing.
+   */
+  public static final String SHARED_STATEMENTS_PROPERTY = "reuseExecutor.sharedStatements";
+
+  public static final int DEFAULT_MAX_STATEMENTS = 0;
+
+  // keyed by physical connection. Pools are dropped once no executor uses them and nothing is left idle,
+  // or when their connection is found closed
+  private static final Map<Connection, StatementPool> statementPools = new IdentityHashMap<Connection, StatementPool>();
+
+  private final int maxStatements;
+  private final long maxIdleTime;
+  private final Map<Object, CachedStatement> statementMap = new LinkedHashMap<Object, CachedStatement>(16, 0.75f, true);
+  private Connection cachedConnection;
+  private final int maxSharedStatements;
+  private StatementPool statementPool;
+
+  private long hits;
+  private long misses;
+  private long evictions;
+  private long sharedHits;
 
   public ReuseExecutor(Configuration configuration, Transaction transaction) {
+    this(configuration, transaction,
+        (int) longVariable(configuration, MAX_STATEMENTS_PROPERTY, DEFAULT_MAX_STATEMENTS),
+        longVariable(configuration, MAX_IDLE_TIME_PROPERTY, 0));
+  }
+
+  /**
+   * @param maxStatements maximum number of cached statements, least recently used ones are closed first.
+   *   Statements still being read from are never closed, so the cache may exceed this bound for a while. 0 means unbounded
+   * @param maxIdleTime statements unused for longer than this number of milliseconds are closed. 0 means unlimited
+   */
+  public ReuseExecutor(Configuration configuration, Transaction transaction, int maxStatements, long maxIdleTime) {
     super(configuration, transaction);
+    this.maxStatements = maxStatements;
+    this.maxIdleTime = maxIdleTime;
+    this.maxSharedStatements = (int) longVariable(configuration, SHARED_STATEMENTS_PROPERTY, 0);
   }
 
   @Override
   public int doUpdate(MappedStatement ms, Object parameter) throws SQLException {
     Configuration configuration = ms.getConfiguration();
     StatementHandler handler = configuration.newStatementHandler(this, ms, parameter, RowBounds.DEFAULT, null, null);
-    Statement stmt = prepareStatement(handler, ms.getStatementLog());
+    Statement stmt = prepareStatement(handler, ms);
     return handler.update(stmt);
   }
 
@@ -56,7 +106,7 @@ public class ReuseExecutor extends BaseExecutor {
   public <E> List<E> doQuery(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) throws SQLException {
     Configuration configuration = ms.getConfiguration();
     StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, resultHandler, boundSql);
-    Statement stmt = prepareStatement(handler, ms.getStatementLog());
+    Statement stmt = prepareStatement(handler, ms);
     return handler.<E>query(stmt, resultHandler);
   }
 
@@ -64,49 +114,305 @@ public class ReuseExecutor extends BaseExecutor {
   protected <E> Cursor<E> doQueryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds, BoundSql boundSql) throws SQLException {
     Configuration configuration = ms.getConfiguration();
     StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, null, boundSql);
-    Statement stmt = prepareStatement(handler, ms.getStatementLog());
+    Statement stmt = prepareStatement(handler, ms);
     return handler.<E>queryCursor(stmt);
   }
 
   @Override
   public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
-    for (Statement stmt : statementMap.values()) {
-      closeStatement(stmt);
+    for (CachedStatement cached : statementMap.values()) {
+      closeStatement(cached.statement);
     }
     statementMap.clear();
+    cachedConnection = null;
+    if (statementPool != null) {
+      detach(statementPool);
+      statementPool = null;
+    }
     return Collections.emptyList();
   }
 
-  private Statement prepareStatement(StatementHandler handler, Log statementLog) throws SQLException {
+  public long getStatementCacheHits() {
+    return hits;
+  }
+
+  public long getStatementCacheMisses() {
+    return misses;
+  }
+
+  public long getStatementCacheEvictions() {
+    return evictions;
+  }
+
+  public int getStatementCacheSize() {
+    return statementMap.size();
+  }
+
+  /**
+   * Number of cache misses served by a statement another session left open on the same connection.
+   */
+  public long getSharedStatementHits() {
+    return sharedHits;
+  }
+
+  @Override
+  protected boolean releaseStatement(Statement statement) {
+    return statementPool != null && statementPool.release(statement);
+  }
+
+  private Statement prepareStatement(StatementHandler handler, MappedStatement ms) throws SQLException {
     Statement stmt;
     BoundSql boundSql = handler.getBoundSql();
-    String sql = boundSql.getSql();
-    if (hasStatementFor(sql)) {
-      stmt = getStatement(sql);
+    Object key = statementKey(ms, boundSql.getSql());
+    if (hasStatementFor(key)) {
+      stmt = getStatement(key);
       applyTransactionTimeout(stmt);
     } else {
-      Connection connection = getConnection(statementLog);
-      stmt = handler.prepare(connection, transaction.getTimeout());
-      putStatement(sql, stmt);
+      stmt = statementPool == null ? null : statementPool.borrow(key);
+      if (stmt != null) {
+        sharedHits++;
+        applyTransactionTimeout(stmt);
+      } else {
+        Connection connection = getConnection(ms.getStatementLog());
+        stmt = handler.prepare(connection, transaction.getTimeout());
+        if (statementPool != null) {
+          statementPool.register(key, stmt);
+        }
+      }
+      putStatement(key, stmt);
     }
     handler.parameterize(stmt);
     return stmt;
   }
 
-  private boolean hasStatementFor(String sql) {
+  /**
+   * The same sql may be prepared as a callable statement or with another result set type.
+   * Plain prepared statements, by far the most common ones, are keyed by the sql itself.
+   */
+  private static Object statementKey(MappedStatement ms, String sql) {
+    if (ms.getStatementType() == StatementType.PREPARED && ms.getResultSetType() == null) {
+      return sql;
+    }
+    return new StatementKey(ms.getStatementType(), ms.getResultSetType(), sql);
+  }
+
+  private boolean hasStatementFor(Object key) throws SQLException {
+    // statements are bound to the connection they were prepared on, so a new connection invalidates all of them
+    Connection connection = transaction.getConnection();
+    if (connection != cachedConnection) {
+      doFlushStatements(false);
+      cachedConnection = connection;
+      statementPool = maxSharedStatements > 0 ? attach(connection, maxSharedStatements) : null;
+      return false;
+    }
+    if (maxIdleTime > 0) {
+      closeIdleStatements();
+    }
+    return statementMap.containsKey(key);
+  }
+
+  private void closeIdleStatements() {
+    long now = System.currentTimeMillis();
+    Iterator<CachedStatement> iterator = statementMap.values().iterator();
+    while (iterator.hasNext()) {
+      CachedStatement cached = iterator.next();
+      // iteration order is access order, so the first statement used recently ends the sweep
+      if (now - cached.lastUsed <= maxIdleTime) {
+        break;
+      }
+      if (!isInUse(cached.statement)) {
+        closeStatement(cached.statement);
+        iterator.remove();
+        evictions++;
+      }
+    }
+  }
+
+  private Statement getStatement(Object s) {
+    CachedStatement cached = statementMap.get(s);
+    cached.lastUsed = System.currentTimeMillis();
+    hits++;
+    return cached.statement;
+  }
+
+  private void putStatement(Object key, Statement stmt) {
+    misses++;
+    CachedStatement added = new CachedStatement(stmt);
+    statementMap.put(key, added);
+    if (maxStatements > 0) {
+      Iterator<CachedStatement> iterator = statementMap.values().iterator();
+      while (statementMap.size() > maxStatements && iterator.hasNext()) {
+        // iteration order is access order, so the least recently used statement comes first
+        CachedStatement cached = iterator.next();
+        // the new statement has no result set yet, but is about to be executed
+        if (cached != added && !isInUse(cached.statement)) {
+          closeStatement(cached.statement);
+          iterator.remove();
+          evictions++;
+        }
+      }
+    }
+  }
+
+  /**
+   * A statement is in use while its result set is open, e.g. behind an open cursor
+   * or as the outer query of a nested select.
+   */
+  private static boolean isInUse(Statement statement) {
     try {
-      return statementMap.keySet().contains(sql) && !statementMap.get(sql).getConnection().isClosed();
+      ResultSet rs = statement.getResultSet();
+      return rs != null && !rs.isClosed();
     } catch (SQLException e) {
-      return false;
+      // closing it is not safe when we cannot tell
+      return true;
+    }
+  }
+
+  private static StatementPool attach(Connection connection, int maxStatements) {
+    // pooled data source hands out a new proxy on every checkout
+    Connection physical = PooledDataSource.unwrapConnection(connection);
+    synchronized (statementPools) {
+      Iterator<Connection> iterator = statementPools.keySet().iterator();
+      while (iterator.hasNext()) {
+        if (isClosed(iterator.next())) {
+          iterator.remove();
+        }
+      }
+      StatementPool pool = statementPools.get(physical);
+      if (pool == null) {
+        pool = new StatementPool(physical, maxStatements);
+        statementPools.put(physical, pool);
+      }
+      pool.users++;
+      return pool;
+    }
+  }
+
+  private static void detach(StatementPool pool) {
+    synchronized (statementPools) {
+      pool.users--;
+      if (pool.users == 0 && pool.isEmpty()) {
+        statementPools.remove(pool.connection);
+      }
     }
   }
 
-  private Statement getStatement(String s) {
-    return statementMap.get(s);
+  private static boolean isClosed(Connection connection) {
+    try {
+      return connection.isClosed();
+    } catch (SQLException e) {
+      return true;
+    }
   }
 
-  private void putStatement(String sql, Statement stmt) {
-    statementMap.put(sql, stmt);
+  /**
+   * Statements of one physical connection. Statements prepared while the pool was attached are registered,
+   * so that they are kept here instead of being closed when their executor is done with them.
+   */
+  private static class StatementPool {
+
+    private final Connection connection;
+    private final int maxStatements;
+    private final Map<Statement, Object> keys = new IdentityHashMap<Statement, Object>();
+    private final Map<Object, Statement> idle = new LinkedHashMap<Object, Statement>(16, 0.75f, true);
+    // executors attached, guarded by statementPools
+    private int users;
+
+    StatementPool(Connection connection, int maxStatements) {
+      this.connection = connection;
+      this.maxStatements = maxStatements;
+    }
+
+    synchronized boolean isEmpty() {
+      return idle.isEmpty();
+    }
+
+    synchronized Statement borrow(Object key) throws SQLException {
+      Statement statement = idle.remove(key);
+      if (statement != null && statement.isClosed()) {
+        keys.remove(statement);
+        return null;
+      }
+      return statement;
+    }
+
+    synchronized void register(Object key, Statement statement) {
+      keys.put(statement, key);
+    }
+
+    synchronized boolean release(Statement statement) {
+      Object key = keys.get(statement);
+      if (key == null) {
+        return false;
+      }
+      try {
+        // another session may have left an equivalent statement meanwhile
+        if (idle.containsKey(key) || statement.isClosed()) {
+          keys.remove(statement);
+          return false;
+        }
+      } catch (SQLException e) {
+        keys.remove(statement);
+        return false;
+      }
+      idle.put(key, statement);
+      Iterator<Statement> iterator = idle.values().iterator();
+      while (idle.size() > maxStatements) {
+        Statement eldest = iterator.next();
+        iterator.remove();
+        keys.remove(eldest);
+        try {
+          eldest.close();
+        } catch (SQLException e) {
+          // ignore
+        }
+      }
+      return true;
+    }
+  }
+
+  private static class StatementKey {
+
+    private final StatementType statementType;
+    private final ResultSetType resultSetType;
+    private final String sql;
+
+    StatementKey(StatementType statementType, ResultSetType resultSetType, String sql) {
+      this.statementType = statementType;
+      this.resultSetType = resultSetType;
+      this.sql = sql;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof StatementKey)) {
+        return false;
+      }
+      StatementKey that = (StatementKey) o;
+      return statementType == that.statementType && resultSetType == that.resultSetType && sql.equals(that.sql);
+    }
+
+    @Override
+    public int hashCode() {
+      // strings cache their hash code
+      return 31 * (31 * statementType.hashCode() + (resultSetType == null ? 0 : resultSetType.hashCode())) + sql.hashCode();
+    }
+
+  }
+
+  private static class CachedStatement {
+
+    private final Statement statement;
+    private long lastUsed;
+
+    CachedStatement(Statement statement) {
+      this.statement = statement;
+      this.lastUsed = System.currentTimeMillis();
+    }
+
   }
 
 }
@@ -15,7 +15,18 @@
  */
 package org.apache.ibatis.executor;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.sql.Connection;
+import java.util.Iterator;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
 import org.junit.Test;
 
 public class ReuseExecutorTest extends BaseExecutorTest {
@@ -30,6 +41,67 @@ public class ReuseExecutorTest extends BaseExecutorTest {
     super.shouldFetchPostWithBlogWithCompositeKey();
   }
 
+  @Test
+  public void shouldEvictLeastRecentlyUsedStatements() throws Exception {
+    ReuseExecutor executor = new ReuseExecutor(config, new JdbcTransaction(ds, null, false), 1, 0);
+    try {
+      MappedStatement selectOne = ExecutorTestHelper.prepareSelectOneAuthorMappedStatement(config);
+      MappedStatement selectAll = ExecutorTestHelper.prepareSelectAllAuthorsAutoMappedStatement(config);
+      executor.query(selectOne, 101, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      executor.query(selectOne, 102, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      executor.query(selectAll, null, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      assertEquals(1, executor.getStatementCacheHits());
+      assertEquals(2, executor.getStatementCacheMisses());
+      assertEquals(1, executor.getStatementCacheEvictions());
+      assertEquals(1, executor.getStatementCacheSize());
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  public void shouldNotEvictStatementOfOpenCursor() throws Exception {
+    ReuseExecutor executor = new ReuseExecutor(config, new JdbcTransaction(ds, null, false), 1, 0);
+    try {
+      MappedStatement selectOne = ExecutorTestHelper.prepareSelectOneAuthorMappedStatement(config);
+      MappedStatement selectAll = ExecutorTestHelper.prepareSelectAllAuthorsAutoMappedStatement(config);
+      Cursor<Author> cursor = executor.queryCursor(selectAll, null, RowBounds.DEFAULT);
+      Iterator<Author> iterator = cursor.iterator();
+      assertNotNull(iterator.next());
+      executor.query(selectOne, 101, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      // the cursor still reads from its statement, so the cache goes over its bound instead
+      assertEquals(0, executor.getStatementCacheEvictions());
+      assertEquals(2, executor.getStatementCacheSize());
+      assertNotNull(iterator.next());
+      cursor.close();
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  public void shouldShareStatementsOfConnectionAcrossExecutors() throws Exception {
+    config.getVariables().setProperty(ReuseExecutor.SHARED_STATEMENTS_PROPERTY, "8");
+    Connection connection = ds.getConnection();
+    ReuseExecutor first = new ReuseExecutor(config, new JdbcTransaction(connection));
+    ReuseExecutor second = new ReuseExecutor(config, new JdbcTransaction(connection));
+    try {
+      MappedStatement selectOne = ExecutorTestHelper.prepareSelectOneAuthorMappedStatement(config);
+      first.query(selectOne, 101, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      // statements are handed over to the connection pool instead of being closed
+      first.rollback(true);
+      second.query(selectOne, 102, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      assertEquals(0, first.getSharedStatementHits());
+      assertEquals(1, second.getSharedStatementHits());
+    } finally {
+      config.getVariables().remove(ReuseExecutor.SHARED_STATEMENTS_PROPERTY);
+      second.close(true);
+      first.close(true);
+    }
+  }
+
   @Override
   protected Executor createExecutor(Transaction transaction) {
     return new ReuseExecutor(config,transaction);
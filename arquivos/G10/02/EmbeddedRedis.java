@@ -0,0 +1,456 @@
+/*
+ * Copyright 1999-2012 Alibaba Group.
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *  
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.dubbo.registry.redis;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * 进程内的Redis替身，实现RedisRegistry用到的RESP命令子集并统计命令数。
+ * 数据只存在内存中，不支持过期与事务。
+ */
+class EmbeddedRedis implements Closeable {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ServerSocket serverSocket;
+
+    private final Map<String, Map<String, String>> hashes = new HashMap<String, Map<String, String>>();
+
+    private final Map<String, Set<String>> sets = new HashMap<String, Set<String>>();
+
+    private final List<Session> sessions = new CopyOnWriteArrayList<Session>();
+
+    private final ConcurrentMap<String, AtomicLong> commandCounts = new ConcurrentHashMap<String, AtomicLong>();
+
+    private volatile boolean closed;
+
+    EmbeddedRedis() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        Thread acceptor = new Thread(new Runnable() {
+            public void run() {
+                while (!closed) {
+                    try {
+                        Session session = new Session(serverSocket.accept());
+                        sessions.add(session);
+                        session.start();
+                    } catch (IOException e) {
+                        // closed
+                    }
+                }
+            }
+        }, "EmbeddedRedisAcceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    boolean waitForSubscriptions(int count, long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        while (System.currentTimeMillis() < deadline) {
+            int subscriptions = 0;
+            for (Session session : sessions) {
+                subscriptions += session.subscriptions.size();
+            }
+            if (subscriptions >= count) {
+                return true;
+            }
+            Thread.sleep(10);
+        }
+        return false;
+    }
+
+    Map<String, Long> getCommandCounts() {
+        Map<String, Long> counts = new HashMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> entry : commandCounts.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+        return counts;
+    }
+
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        for (Session session : sessions) {
+            session.close();
+        }
+    }
+
+    private void execute(Session session, List<String> command) throws IOException {
+        String name = command.get(0).toUpperCase();
+        AtomicLong count = commandCounts.get(name);
+        if (count == null) {
+            commandCounts.putIfAbsent(name, new AtomicLong());
+            count = commandCounts.get(name);
+        }
+        count.incrementAndGet();
+        if ("PING".equals(name)) {
+            session.writeStatus("PONG");
+        } else if ("QUIT".equals(name)) {
+            session.writeStatus("OK");
+            session.close();
+        } else if ("PUBLISH".equals(name)) {
+            session.writeInteger(publish(command.get(1), command.get(2)));
+        } else if ("PSUBSCRIBE".equals(name) || "SUBSCRIBE".equals(name)) {
+            for (String pattern : command.subList(1, command.size())) {
+                session.subscribe(name.toLowerCase(), pattern);
+            }
+        } else if ("PUNSUBSCRIBE".equals(name) || "UNSUBSCRIBE".equals(name)) {
+            session.unsubscribe(name.toLowerCase());
+        } else {
+            synchronized (this) {
+                executeData(session, name, command);
+            }
+        }
+    }
+
+    private void executeData(Session session, String name, List<String> command) throws IOException {
+        String key = command.size() > 1 ? command.get(1) : null;
+        if ("HSET".equals(name)) {
+            Map<String, String> hash = hashes.get(key);
+            if (hash == null) {
+                hash = new HashMap<String, String>();
+                hashes.put(key, hash);
+            }
+            session.writeInteger(hash.put(command.get(2), command.get(3)) == null ? 1 : 0);
+        } else if ("HDEL".equals(name)) {
+            Map<String, String> hash = hashes.get(key);
+            int removed = 0;
+            for (String field : command.subList(2, command.size())) {
+                if (hash != null && hash.remove(field) != null) {
+                    removed++;
+                }
+            }
+            if (hash != null && hash.isEmpty()) {
+                hashes.remove(key);
+            }
+            session.writeInteger(removed);
+        } else if ("HLEN".equals(name)) {
+            Map<String, String> hash = hashes.get(key);
+            session.writeInteger(hash == null ? 0 : hash.size());
+        } else if ("EXISTS".equals(name)) {
+            session.writeInteger(hashes.containsKey(key) || sets.containsKey(key) ? 1 : 0);
+        } else if ("HGETALL".equals(name)) {
+            Map<String, String> hash = hashes.get(key);
+            List<String> values = new ArrayList<String>();
+            if (hash != null) {
+                for (Map.Entry<String, String> entry : hash.entrySet()) {
+                    values.add(entry.getKey());
+                    values.add(entry.getValue());
+                }
+            }
+            session.writeArray(values);
+        } else if ("SADD".equals(name) || "SREM".equals(name)) {
+            Set<String> set = sets.get(key);
+            if (set == null) {
+                set = new HashSet<String>();
+                sets.put(key, set);
+            }
+            int changed = 0;
+            for (String member : command.subList(2, command.size())) {
+                if ("SADD".equals(name) ? set.add(member) : set.remove(member)) {
+                    changed++;
+                }
+            }
+            if (set.isEmpty()) {
+                sets.remove(key);
+            }
+            session.writeInteger(changed);
+        } else if ("SMEMBERS".equals(name)) {
+            Set<String> set = sets.get(key);
+            session.writeArray(set == null ? new ArrayList<String>() : new ArrayList<String>(set));
+        } else if ("KEYS".equals(name)) {
+            session.writeArray(matchingKeys(key));
+        } else if ("SCAN".equals(name)) {
+            // 与Redis一样先按COUNT取出一页键再做MATCH过滤，游标为下一页的起始位置，取完后归零
+            String pattern = "*";
+            int count = 10;
+            for (int i = 2; i < command.size() - 1; i++) {
+                if ("MATCH".equalsIgnoreCase(command.get(i))) {
+                    pattern = command.get(i + 1);
+                } else if ("COUNT".equalsIgnoreCase(command.get(i))) {
+                    count = Integer.parseInt(command.get(i + 1));
+                }
+            }
+            List<String> keys = matchingKeys("*");
+            Collections.sort(keys);
+            int from = Math.min(Integer.parseInt(key), keys.size());
+            int to = Math.min(from + count, keys.size());
+            Pattern regex = toRegex(pattern);
+            List<String> page = new ArrayList<String>();
+            for (String k : keys.subList(from, to)) {
+                if (regex.matcher(k).matches()) {
+                    page.add(k);
+                }
+            }
+            session.writeScan(to < keys.size() ? String.valueOf(to) : "0", page);
+        } else if ("DEL".equals(name)) {
+            int removed = 0;
+            for (String k : command.subList(1, command.size())) {
+                if (hashes.remove(k) != null | sets.remove(k) != null) {
+                    removed++;
+                }
+            }
+            session.writeInteger(removed);
+        } else {
+            session.writeError("ERR unknown command '" + name + "'");
+        }
+    }
+
+    private List<String> matchingKeys(String pattern) {
+        Pattern regex = toRegex(pattern);
+        List<String> keys = new ArrayList<String>();
+        for (String key : hashes.keySet()) {
+            if (regex.matcher(key).matches()) {
+                keys.add(key);
+            }
+        }
+        for (String key : sets.keySet()) {
+            if (regex.matcher(key).matches()) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    private int publish(String channel, String message) {
+        int receivers = 0;
+        for (Session session : sessions) {
+            receivers += session.deliver(channel, message);
+        }
+        return receivers;
+    }
+
+    private static Pattern toRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (char c : glob.toCharArray()) {
+            if (c == '*') {
+                regex.append(".*");
+            } else if (c == '?') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    private class Session extends Thread {
+
+        private final Socket socket;
+
+        private final InputStream in;
+
+        private final OutputStream out;
+
+        // 模式订阅以psubscribe区分于频道订阅
+        private final Map<String, String> subscriptions = new ConcurrentHashMap<String, String>();
+
+        Session(Socket socket) throws IOException {
+            super("EmbeddedRedisSession");
+            setDaemon(true);
+            this.socket = socket;
+            this.in = new BufferedInputStream(socket.getInputStream());
+            this.out = new BufferedOutputStream(socket.getOutputStream());
+        }
+
+        @Override
+        public void run() {
+            try {
+                List<String> command;
+                while ((command = readCommand()) != null) {
+                    execute(this, command);
+                    // 管道中的命令一并读取后再刷新
+                    if (in.available() == 0) {
+                        flush();
+                    }
+                }
+            } catch (IOException e) {
+                // disconnected
+            } finally {
+                close();
+            }
+        }
+
+        void close() {
+            sessions.remove(this);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+
+        synchronized void subscribe(String kind, String pattern) throws IOException {
+            subscriptions.put(pattern, kind);
+            writeArrayHeader(3);
+            writeBulk(kind);
+            writeBulk(pattern);
+            writeInteger(subscriptions.size());
+        }
+
+        synchronized void unsubscribe(String kind) throws IOException {
+            String subscribeKind = kind.replace("unsubscribe", "subscribe");
+            for (Map.Entry<String, String> entry : subscriptions.entrySet()) {
+                if (entry.getValue().equals(subscribeKind)) {
+                    subscriptions.remove(entry.getKey());
+                    writeArrayHeader(3);
+                    writeBulk(kind);
+                    writeBulk(entry.getKey());
+                    writeInteger(subscriptions.size());
+                }
+            }
+        }
+
+        int deliver(String channel, String message) {
+            int delivered = 0;
+            for (Map.Entry<String, String> entry : subscriptions.entrySet()) {
+                boolean pattern = "psubscribe".equals(entry.getValue());
+                if (pattern ? toRegex(entry.getKey()).matcher(channel).matches() : entry.getKey().equals(channel)) {
+                    try {
+                        synchronized (this) {
+                            if (pattern) {
+                                writeArrayHeader(4);
+                                writeBulk("pmessage");
+                                writeBulk(entry.getKey());
+                            } else {
+                                writeArrayHeader(3);
+                                writeBulk("message");
+                            }
+                            writeBulk(channel);
+                            writeBulk(message);
+                            out.flush();
+                        }
+                        delivered++;
+                    } catch (IOException e) {
+                        close();
+                    }
+                }
+            }
+            return delivered;
+        }
+
+        private List<String> readCommand() throws IOException {
+            String line = readLine();
+            if (line == null) {
+                return null;
+            }
+            if (line.charAt(0) != '*') {
+                throw new IOException("Unsupported request: " + line);
+            }
+            int size = Integer.parseInt(line.substring(1));
+            List<String> command = new ArrayList<String>(size);
+            for (int i = 0; i < size; i++) {
+                String header = readLine();
+                byte[] bytes = new byte[Integer.parseInt(header.substring(1))];
+                int read = 0;
+                while (read < bytes.length) {
+                    int n = in.read(bytes, read, bytes.length - read);
+                    if (n < 0) {
+                        throw new EOFException();
+                    }
+                    read += n;
+                }
+                readLine();
+                command.add(new String(bytes, UTF_8));
+            }
+            return command;
+        }
+
+        private String readLine() throws IOException {
+            StringBuilder line = new StringBuilder();
+            int c;
+            while ((c = in.read()) != -1) {
+                if (c == '\r') {
+                    in.read();
+                    return line.toString();
+                }
+                line.append((char) c);
+            }
+            return line.length() == 0 ? null : line.toString();
+        }
+
+        synchronized void flush() throws IOException {
+            out.flush();
+        }
+
+        synchronized void writeStatus(String status) throws IOException {
+            write("+" + status + "\r\n");
+        }
+
+        synchronized void writeError(String error) throws IOException {
+            write("-" + error + "\r\n");
+        }
+
+        synchronized void writeInteger(long value) throws IOException {
+            write(":" + value + "\r\n");
+        }
+
+        synchronized void writeArray(List<String> values) throws IOException {
+            writeArrayHeader(values.size());
+            for (String value : values) {
+                writeBulk(value);
+            }
+        }
+
+        synchronized void writeScan(String cursor, List<String> keys) throws IOException {
+            writeArrayHeader(2);
+            writeBulk(cursor);
+            writeArray(keys);
+        }
+
+        private void writeArrayHeader(int size) throws IOException {
+            write("*" + size + "\r\n");
+        }
+
+        private void writeBulk(String value) throws IOException {
+            byte[] bytes = value.getBytes(UTF_8);
+            write("$" + bytes.length + "\r\n");
+            out.write(bytes);
+            write("\r\n");
+        }
+
+        private void write(String value) throws IOException {
+            out.write(value.getBytes(UTF_8));
+        }
+
+    }
+
+}
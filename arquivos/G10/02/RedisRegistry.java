@@ -29,24 +29,35 @@ import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * RedisRegistry
@@ -61,16 +72,45 @@ public class RedisRegistry extends FailbackRegistry {
 
     private final static String DEFAULT_ROOT = "dubbo";
 
+    private static final int SCAN_COUNT = 1000;
+
+    // 清理只遍历索引，每隔若干次清理才全量SCAN一次，补入旧版本提供者写入的未索引键
+    private static final int CLEAN_SCAN_CYCLES = 10;
+
+    // 旧版本提供者写入的分类键不在索引中，订阅时逐个检查
+    private static final String[] CATEGORIES = {Constants.PROVIDERS_CATEGORY, Constants.CONSUMERS_CATEGORY,
+            Constants.ROUTERS_CATEGORY, Constants.CONFIGURATORS_CATEGORY};
+
+    private static final String URL_CACHE_SIZE_KEY = "url.cache.size";
+
+    private static final int DEFAULT_URL_CACHE_SIZE = 10000;
+
     private final ScheduledExecutorService expireExecutor = Executors.newScheduledThreadPool(1, new NamedThreadFactory("DubboRegistryExpireTimer", true));
 
     private final ScheduledFuture<?> expireFuture;
 
+    private final ExecutorService heartbeatExecutor;
+
+    private final ConcurrentMap<String, AtomicLong> heartbeatFailures = new ConcurrentHashMap<String, AtomicLong>();
+
+    private final ConcurrentMap<String, AtomicLong> cleanCycles = new ConcurrentHashMap<String, AtomicLong>();
+
+    private volatile long heartbeatCycleTime;
+
     private final String root;
 
+    // 服务索引集合，每个服务另有一个分类键索引集合，避免使用阻塞服务端的KEYS命令
+    private final String indexKey;
+
     private final Map<String, JedisPool> jedisPools = new ConcurrentHashMap<String, JedisPool>();
 
     private final ConcurrentMap<String, Notifier> notifiers = new ConcurrentHashMap<String, Notifier>();
 
+    private final ConcurrentMap<String, KeySnapshot> snapshots = new ConcurrentHashMap<String, KeySnapshot>();
+
+    // 心跳、清理、注册与各Notifier线程共用，避免重复解析与拼接同一URL
+    private final UrlCache urlCache;
+
     private final int reconnectPeriod;
 
     private final int expirePeriod;
@@ -141,8 +181,12 @@ public class RedisRegistry extends FailbackRegistry {
             group = group + Constants.PATH_SEPARATOR;
         }
         this.root = group;
+        this.urlCache = new UrlCache(url.getParameter(URL_CACHE_SIZE_KEY, DEFAULT_URL_CACHE_SIZE));
+        this.indexKey = root.substring(0, root.length() - 1) + ".index";
 
         this.expirePeriod = url.getParameter(Constants.SESSION_TIMEOUT_KEY, Constants.DEFAULT_SESSION_TIMEOUT);
+        this.heartbeatExecutor = replicate && jedisPools.size() > 1
+                ? Executors.newFixedThreadPool(jedisPools.size(), new NamedThreadFactory("DubboRegistryHeartbeat", true)) : null;
         this.expireFuture = expireExecutor.scheduleWithFixedDelay(new Runnable() {
             public void run() {
                 try {
@@ -155,45 +199,154 @@ public class RedisRegistry extends FailbackRegistry {
     }
 
     private void deferExpired() {
-        for (Map.Entry<String, JedisPool> entry : jedisPools.entrySet()) {
-            JedisPool jedisPool = entry.getValue();
-            try {
-                Jedis jedis = jedisPool.getResource();
+        long start = System.currentTimeMillis();
+        // 按分类分组，每台机器一次管道提交
+        final Map<String, List<String>> heartbeats = new HashMap<String, List<String>>();
+        for (URL url : new HashSet<URL>(getRegistered())) {
+            if (url.getParameter(Constants.DYNAMIC_KEY, true)) {
+                String key = toCategoryPath(url);
+                List<String> values = heartbeats.get(key);
+                if (values == null) {
+                    values = new ArrayList<String>();
+                    heartbeats.put(key, values);
+                }
+                values.add(urlCache.toFullString(url));
+            }
+        }
+        if (heartbeatExecutor != null) {
+            // 复制模式下并发写入所有机器
+            List<Future<?>> futures = new ArrayList<Future<?>>(jedisPools.size());
+            for (final Map.Entry<String, JedisPool> entry : jedisPools.entrySet()) {
+                futures.add(heartbeatExecutor.submit(new Runnable() {
+                    public void run() {
+                        deferExpired(entry.getKey(), entry.getValue(), heartbeats);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
                 try {
-                    for (URL url : new HashSet<URL>(getRegistered())) {
-                        if (url.getParameter(Constants.DYNAMIC_KEY, true)) {
-                            String key = toCategoryPath(url);
-                            if (jedis.hset(key, url.toFullString(), String.valueOf(System.currentTimeMillis() + expirePeriod)) == 1) {
-                                jedis.publish(key, Constants.REGISTER);
+                    future.get();
+                } catch (ExecutionException e) {
+                    logger.warn("Failed to write provider heartbeat to redis registry, cause: " + e.getMessage(), e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        } else {
+            for (Map.Entry<String, JedisPool> entry : jedisPools.entrySet()) {
+                if (deferExpired(entry.getKey(), entry.getValue(), heartbeats) && !replicate) {
+                    break;//  如果服务器端已同步数据，只需写入单台机器
+                }
+            }
+        }
+        heartbeatCycleTime = System.currentTimeMillis() - start;
+        if (heartbeatCycleTime > expirePeriod / 2) {
+            logger.warn("Provider heartbeat to redis registry took " + heartbeatCycleTime + "ms, longer than the heartbeat period " + expirePeriod / 2 + "ms");
+        }
+    }
+
+    private boolean deferExpired(String address, JedisPool jedisPool, Map<String, List<String>> heartbeats) {
+        try {
+            Jedis jedis = jedisPool.getResource();
+            try {
+                String expire = String.valueOf(System.currentTimeMillis() + expirePeriod);
+                Pipeline pipeline = jedis.pipelined();
+                Map<String, List<Response<Long>>> responses = new HashMap<String, List<Response<Long>>>();
+                for (Map.Entry<String, List<String>> heartbeat : heartbeats.entrySet()) {
+                    List<Response<Long>> keyResponses = new ArrayList<Response<Long>>(heartbeat.getValue().size());
+                    for (String value : heartbeat.getValue()) {
+                        keyResponses.add(pipeline.hset(heartbeat.getKey(), value, expire));
+                    }
+                    responses.put(heartbeat.getKey(), keyResponses);
+                }
+                for (String key : heartbeats.keySet()) {
+                    index(pipeline, key);
+                }
+                pipeline.sync();
+                // 新增字段说明数据已被清除，需重新通知
+                Pipeline publish = null;
+                for (Map.Entry<String, List<Response<Long>>> keyResponses : responses.entrySet()) {
+                    for (Response<Long> response : keyResponses.getValue()) {
+                        if (response.get() == 1) {
+                            if (publish == null) {
+                                publish = jedis.pipelined();
                             }
+                            publish.publish(keyResponses.getKey(), Constants.REGISTER);
+                            break;
                         }
                     }
-                    if (admin) {
-                        clean(jedis);
-                    }
-                    if (!replicate) {
-                        break;//  如果服务器端已同步数据，只需写入单台机器
-                    }
-                } finally {
-                    jedisPool.returnResource(jedis);
                 }
-            } catch (Throwable t) {
-                logger.warn("Failed to write provider heartbeat to redis registry. registry: " + entry.getKey() + ", cause: " + t.getMessage(), t);
+                if (publish != null) {
+                    publish.sync();
+                }
+                if (admin) {
+                    clean(address, jedis);
+                }
+                return true;
+            } finally {
+                jedisPool.returnResource(jedis);
+            }
+        } catch (Throwable t) {
+            AtomicLong failures = heartbeatFailures.get(address);
+            if (failures == null) {
+                heartbeatFailures.putIfAbsent(address, new AtomicLong());
+                failures = heartbeatFailures.get(address);
             }
+            failures.incrementAndGet();
+            logger.warn("Failed to write provider heartbeat to redis registry. registry: " + address + ", cause: " + t.getMessage(), t);
+            return false;
         }
     }
 
-    // 监控中心负责删除过期脏数据
-    private void clean(Jedis jedis) {
-        Set<String> keys = jedis.keys(root + Constants.ANY_VALUE);
-        if (keys != null && keys.size() > 0) {
+    /**
+     * 最近一次心跳周期耗时(毫秒)
+     */
+    public long getHeartbeatCycleTime() {
+        return heartbeatCycleTime;
+    }
+
+    /**
+     * 各注册中心地址的心跳失败次数
+     */
+    public Map<String, Long> getHeartbeatFailures() {
+        Map<String, Long> failures = new HashMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> entry : heartbeatFailures.entrySet()) {
+            failures.put(entry.getKey(), entry.getValue().get());
+        }
+        return failures;
+    }
+
+    // 监控中心负责删除过期脏数据，只遍历索引中的分类键，索引为空或每隔CLEAN_SCAN_CYCLES次才全量SCAN
+    private void clean(String address, Jedis jedis) {
+        AtomicLong cycles = cleanCycles.get(address);
+        if (cycles == null) {
+            cleanCycles.putIfAbsent(address, new AtomicLong());
+            cycles = cleanCycles.get(address);
+        }
+        if (cycles.getAndIncrement() % CLEAN_SCAN_CYCLES == 0 || !jedis.exists(indexKey)) {
+            scanKeys(jedis, root + Constants.ANY_VALUE);
+        }
+        Map<String, Response<Set<String>>> indexes = new HashMap<String, Response<Set<String>>>();
+        Pipeline pipeline = jedis.pipelined();
+        for (String service : jedis.smembers(indexKey)) {
+            indexes.put(service, pipeline.smembers(toIndexKey(service)));
+        }
+        pipeline.sync();
+        for (Map.Entry<String, Response<Set<String>>> index : indexes.entrySet()) {
+            String service = index.getKey();
+            Set<String> keys = index.getValue().get();
+            List<String> removed = new ArrayList<String>();
             for (String key : keys) {
                 Map<String, String> values = jedis.hgetAll(key);
-                if (values != null && values.size() > 0) {
+                if (values == null || values.isEmpty()) {
+                    // 移除已不存在的分类键
+                    removed.add(key);
+                } else {
                     boolean delete = false;
                     long now = System.currentTimeMillis();
                     for (Map.Entry<String, String> entry : values.entrySet()) {
-                        URL url = URL.valueOf(entry.getKey());
+                        URL url = urlCache.valueOf(entry.getKey());
                         if (url.getParameter(Constants.DYNAMIC_KEY, true)) {
                             long expire = Long.parseLong(entry.getValue());
                             if (expire < now) {
@@ -210,7 +363,80 @@ public class RedisRegistry extends FailbackRegistry {
                     }
                 }
             }
+            if (!removed.isEmpty()) {
+                jedis.srem(toIndexKey(service), removed.toArray(new String[removed.size()]));
+            }
+            if (removed.size() == keys.size()) {
+                jedis.srem(indexKey, service);
+            }
+        }
+    }
+
+    /**
+     * 从服务的索引集合中查找分类键，索引中缺少的分类(如旧版本提供者写入的数据)逐个检查是否存在并补入索引。
+     * 监控中心订阅全部服务时使用增量的SCAN，同时修复索引
+     *
+     * @param pattern 服务路径/*，或根路径*
+     */
+    private Set<String> getKeys(Jedis jedis, String pattern) {
+        if (pattern.equals(root + Constants.ANY_VALUE)) {
+            return scanKeys(jedis, pattern);
+        }
+        String service = toServicePath(pattern);
+        Set<String> keys = new HashSet<String>(jedis.smembers(toIndexKey(service)));
+        Map<String, Response<Boolean>> missing = new HashMap<String, Response<Boolean>>();
+        Pipeline pipeline = jedis.pipelined();
+        for (String category : CATEGORIES) {
+            String key = service + Constants.PATH_SEPARATOR + category;
+            if (!keys.contains(key)) {
+                missing.put(key, pipeline.exists(key));
+            }
+        }
+        pipeline.sync();
+        List<String> found = new ArrayList<String>();
+        for (Map.Entry<String, Response<Boolean>> entry : missing.entrySet()) {
+            if (Boolean.TRUE.equals(entry.getValue().get())) {
+                found.add(entry.getKey());
+            }
+        }
+        if (!found.isEmpty()) {
+            keys.addAll(found);
+            index(jedis, found);
+        }
+        return keys;
+    }
+
+    private Set<String> scanKeys(Jedis jedis, String pattern) {
+        Set<String> keys = new HashSet<String>();
+        ScanParams params = new ScanParams().match(pattern).count(SCAN_COUNT);
+        String cursor = ScanParams.SCAN_POINTER_START;
+        do {
+            ScanResult<String> result = jedis.scan(cursor, params);
+            keys.addAll(result.getResult());
+            cursor = result.getStringCursor();
+        } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+        if (!keys.isEmpty()) {
+            index(jedis, keys);
+        }
+        return keys;
+    }
+
+    private void index(Jedis jedis, Collection<String> keys) {
+        Pipeline pipeline = jedis.pipelined();
+        for (String key : keys) {
+            index(pipeline, key);
         }
+        pipeline.sync();
+    }
+
+    private void index(Pipeline pipeline, String key) {
+        String service = toServicePath(key);
+        pipeline.sadd(toIndexKey(service), key);
+        pipeline.sadd(indexKey, service);
+    }
+
+    private String toIndexKey(String servicePath) {
+        return indexKey + servicePath.substring(root.length() - 1);
     }
 
     public boolean isAvailable() {
@@ -235,6 +461,9 @@ public class RedisRegistry extends FailbackRegistry {
         super.destroy();
         try {
             expireFuture.cancel(true);
+            if (heartbeatExecutor != null) {
+                heartbeatExecutor.shutdownNow();
+            }
         } catch (Throwable t) {
             logger.warn(t.getMessage(), t);
         }
@@ -258,7 +487,7 @@ public class RedisRegistry extends FailbackRegistry {
     @Override
     public void doRegister(URL url) {
         String key = toCategoryPath(url);
-        String value = url.toFullString();
+        String value = urlCache.toFullString(url);
         String expire = String.valueOf(System.currentTimeMillis() + expirePeriod);
         boolean success = false;
         RpcException exception = null;
@@ -267,8 +496,11 @@ public class RedisRegistry extends FailbackRegistry {
             try {
                 Jedis jedis = jedisPool.getResource();
                 try {
-                    jedis.hset(key, value, expire);
-                    jedis.publish(key, Constants.REGISTER);
+                    Pipeline pipeline = jedis.pipelined();
+                    pipeline.hset(key, value, expire);
+                    index(pipeline, key);
+                    pipeline.publish(key, Constants.REGISTER);
+                    pipeline.sync();
                     success = true;
                     if (!replicate) {
                         break; //  如果服务器端已同步数据，只需写入单台机器
@@ -292,7 +524,7 @@ public class RedisRegistry extends FailbackRegistry {
     @Override
     public void doUnregister(URL url) {
         String key = toCategoryPath(url);
-        String value = url.toFullString();
+        String value = urlCache.toFullString(url);
         RpcException exception = null;
         boolean success = false;
         for (Map.Entry<String, JedisPool> entry : jedisPools.entrySet()) {
@@ -300,8 +532,15 @@ public class RedisRegistry extends FailbackRegistry {
             try {
                 Jedis jedis = jedisPool.getResource();
                 try {
-                    jedis.hdel(key, value);
-                    jedis.publish(key, Constants.UNREGISTER);
+                    Pipeline pipeline = jedis.pipelined();
+                    pipeline.hdel(key, value);
+                    Response<Long> remaining = pipeline.hlen(key);
+                    pipeline.publish(key, Constants.UNREGISTER);
+                    pipeline.sync();
+                    if (remaining.get() == 0) {
+                        // 并发注册的分类键由下次心跳补回索引
+                        jedis.srem(toIndexKey(toServicePath(key)), key);
+                    }
                     success = true;
                     if (!replicate) {
                         break; //  如果服务器端已同步数据，只需写入单台机器
@@ -343,7 +582,7 @@ public class RedisRegistry extends FailbackRegistry {
                 try {
                     if (service.endsWith(Constants.ANY_VALUE)) {
                         admin = true;
-                        Set<String> keys = jedis.keys(service);
+                        Set<String> keys = getKeys(jedis, service);
                         if (keys != null && keys.size() > 0) {
                             Map<String, Set<String>> serviceKeys = new HashMap<String, Set<String>>();
                             for (String key : keys) {
@@ -360,7 +599,7 @@ public class RedisRegistry extends FailbackRegistry {
                             }
                         }
                     } else {
-                        doNotify(jedis, jedis.keys(service + Constants.PATH_SEPARATOR + Constants.ANY_VALUE), url, Arrays.asList(listener));
+                        doNotify(jedis, getKeys(jedis, service + Constants.PATH_SEPARATOR + Constants.ANY_VALUE), url, Arrays.asList(listener));
                     }
                     success = true;
                     break; // 只需读一个服务器的数据
@@ -385,17 +624,28 @@ public class RedisRegistry extends FailbackRegistry {
     }
 
     private void doNotify(Jedis jedis, String key) {
+        Map<String, List<URL>> fetched = new HashMap<String, List<URL>>();
+        // 有效数据与上次推送相同时(如心跳补写、重连)，不再重复通知
+        if (!getSnapshot(key).markNotified(getActiveUrls(jedis, key, fetched))) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("redis notify skipped, no change: " + key);
+            }
+            return;
+        }
         for (Map.Entry<URL, Set<NotifyListener>> entry : new HashMap<URL, Set<NotifyListener>>(getSubscribed()).entrySet()) {
-            doNotify(jedis, Arrays.asList(key), entry.getKey(), new HashSet<NotifyListener>(entry.getValue()));
+            doNotify(jedis, Arrays.asList(key), entry.getKey(), new HashSet<NotifyListener>(entry.getValue()), fetched);
         }
     }
 
     private void doNotify(Jedis jedis, Collection<String> keys, URL url, Collection<NotifyListener> listeners) {
+        doNotify(jedis, keys, url, listeners, new HashMap<String, List<URL>>());
+    }
+
+    private void doNotify(Jedis jedis, Collection<String> keys, URL url, Collection<NotifyListener> listeners, Map<String, List<URL>> fetched) {
         if (keys == null || keys.size() == 0
                 || listeners == null || listeners.size() == 0) {
             return;
         }
-        long now = System.currentTimeMillis();
         List<URL> result = new ArrayList<URL>();
         List<String> categories = Arrays.asList(url.getParameter(Constants.CATEGORY_KEY, new String[0]));
         String consumerService = url.getServiceInterface();
@@ -411,16 +661,9 @@ public class RedisRegistry extends FailbackRegistry {
                 continue;
             }
             List<URL> urls = new ArrayList<URL>();
-            Map<String, String> values = jedis.hgetAll(key);
-            if (values != null && values.size() > 0) {
-                for (Map.Entry<String, String> entry : values.entrySet()) {
-                    URL u = URL.valueOf(entry.getKey());
-                    if (!u.getParameter(Constants.DYNAMIC_KEY, true)
-                            || Long.parseLong(entry.getValue()) >= now) {
-                        if (UrlUtils.isMatch(url, u)) {
-                            urls.add(u);
-                        }
-                    }
+            for (URL u : getActiveUrls(jedis, key, fetched)) {
+                if (UrlUtils.isMatch(url, u)) {
+                    urls.add(u);
                 }
             }
             if (urls.isEmpty()) {
@@ -442,6 +685,28 @@ public class RedisRegistry extends FailbackRegistry {
         }
     }
 
+    /**
+     * 读取分类键下未过期的数据，同一次通知中每个键只读取一次
+     */
+    private List<URL> getActiveUrls(Jedis jedis, String key, Map<String, List<URL>> fetched) {
+        List<URL> urls = fetched.get(key);
+        if (urls == null) {
+            Map<String, String> values = jedis.hgetAll(key);
+            urls = getSnapshot(key).refresh(values == null ? Collections.<String, String>emptyMap() : values, System.currentTimeMillis(), urlCache);
+            fetched.put(key, urls);
+        }
+        return urls;
+    }
+
+    private KeySnapshot getSnapshot(String key) {
+        KeySnapshot snapshot = snapshots.get(key);
+        if (snapshot == null) {
+            snapshots.putIfAbsent(key, new KeySnapshot());
+            snapshot = snapshots.get(key);
+        }
+        return snapshot;
+    }
+
     private String toServiceName(String categoryPath) {
         String servicePath = toServicePath(categoryPath);
         return servicePath.startsWith(root) ? servicePath.substring(root.length()) : servicePath;
@@ -470,6 +735,147 @@ public class RedisRegistry extends FailbackRegistry {
         return toServicePath(url) + Constants.PATH_SEPARATOR + url.getParameter(Constants.CATEGORY_KEY, Constants.DEFAULT_CATEGORY);
     }
 
+    /**
+     * 分类键的本地快照，已解析的URL在其字段不变时被复用
+     */
+    private static class KeySnapshot {
+
+        private Map<String, URL> parsed = new HashMap<String, URL>();
+
+        // 最近一次推送给所有订阅者的有效数据
+        private Set<URL> notified;
+
+        public synchronized List<URL> refresh(Map<String, String> values, long now, UrlCache urlCache) {
+            Map<String, URL> current = new HashMap<String, URL>(values.size() * 4 / 3 + 1);
+            List<URL> active = new ArrayList<URL>(values.size());
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                URL u = parsed.get(entry.getKey());
+                if (u == null) {
+                    u = urlCache.valueOf(entry.getKey());
+                }
+                current.put(entry.getKey(), u);
+                if (!u.getParameter(Constants.DYNAMIC_KEY, true)
+                        || Long.parseLong(entry.getValue()) >= now) {
+                    active.add(u);
+                }
+            }
+            parsed = current;
+            return active;
+        }
+
+        public synchronized boolean markNotified(List<URL> active) {
+            Set<URL> current = new HashSet<URL>(active);
+            if (current.equals(notified)) {
+                return false;
+            }
+            notified = current;
+            return true;
+        }
+
+    }
+
+    /**
+     * 完整URL字符串与解析后URL的双向缓存，按近似的最近最少使用淘汰。
+     * URL实例自身缓存了toFullString的结果，因此同一字符串总是得到同一实例即可同时省去解析与拼接。
+     * 查找不加锁，条目只记下最近访问时的时钟值，时钟在新增条目时推进；
+     * 超出容量时由一个线程按时钟值批量淘汰最旧的条目，其他线程照常读写。
+     */
+    static class UrlCache {
+
+        private final ConcurrentMap<String, Entry> urls = new ConcurrentHashMap<String, Entry>();
+
+        private final AtomicBoolean evicting = new AtomicBoolean();
+
+        private final int maxSize;
+
+        // 每次多淘汰的条目数，避免容量满后每次新增都要排序
+        private final int slack;
+
+        // 并发推进时可能丢失计数，只影响淘汰顺序的精度
+        private volatile long clock;
+
+        public UrlCache(final int maxSize) {
+            this.maxSize = maxSize;
+            this.slack = maxSize / 16;
+        }
+
+        public URL valueOf(String full) {
+            Entry entry = urls.get(full);
+            if (entry != null) {
+                entry.accessed = clock;
+                return entry.url;
+            }
+            return add(full, URL.valueOf(full)).url;
+        }
+
+        public String toFullString(URL url) {
+            String full = url.toFullString();
+            Entry entry = urls.get(full);
+            if (entry != null) {
+                entry.accessed = clock;
+            } else {
+                add(full, url);
+            }
+            return full;
+        }
+
+        public int size() {
+            return urls.size();
+        }
+
+        private Entry add(String full, URL url) {
+            Entry entry = new Entry(url, ++clock);
+            Entry existing = urls.putIfAbsent(full, entry);
+            if (existing != null) {
+                return existing;
+            }
+            evict();
+            return entry;
+        }
+
+        private void evict() {
+            // 淘汰期间其他线程新增的条目不会再触发淘汰，由当前线程循环处理
+            while (urls.size() > maxSize && evicting.compareAndSet(false, true)) {
+                try {
+                    // 访问时钟在排序期间仍会变化，先取快照求出淘汰阈值
+                    List<Entry> entries = new ArrayList<Entry>(urls.values());
+                    int count = entries.size() - Math.max(0, maxSize - slack);
+                    if (count <= 0) {
+                        continue;
+                    }
+                    long[] accessed = new long[entries.size()];
+                    for (int i = 0; i < accessed.length; i++) {
+                        accessed[i] = entries.get(i).accessed;
+                    }
+                    Arrays.sort(accessed);
+                    long threshold = accessed[count - 1];
+                    for (Iterator<Entry> it = urls.values().iterator(); it.hasNext() && count > 0; ) {
+                        if (it.next().accessed <= threshold) {
+                            it.remove();
+                            count--;
+                        }
+                    }
+                } finally {
+                    evicting.set(false);
+                }
+            }
+        }
+
+        private static class Entry {
+
+            private final URL url;
+
+            private volatile long accessed;
+
+            Entry(URL url, long accessed) {
+                this.url = url;
+                this.accessed = accessed;
+            }
+
+        }
+
+    }
+
     private class NotifySub extends JedisPubSub {
 
         private final JedisPool jedisPool;
@@ -575,7 +981,7 @@ public class RedisRegistry extends FailbackRegistry {
                                         if (service.endsWith(Constants.ANY_VALUE)) {
                                             if (!first) {
                                                 first = false;
-                                                Set<String> keys = jedis.keys(service);
+                                                Set<String> keys = getKeys(jedis, service);
                                                 if (keys != null && keys.size() > 0) {
                                                     for (String s : keys) {
                                                         doNotify(jedis, s);
@@ -15,11 +15,35 @@
  */
 package com.alibaba.dubbo.registry.redis;
 
+import com.alibaba.dubbo.common.Constants;
 import com.alibaba.dubbo.common.URL;
+import com.alibaba.dubbo.common.logger.Logger;
+import com.alibaba.dubbo.common.logger.LoggerFactory;
+import com.alibaba.dubbo.registry.NotifyListener;
 
 import org.junit.Before;
 import org.junit.BeforeClass;
+import org.junit.Ignore;
 import org.junit.Test;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 /**
  * RedisRegistryTest
@@ -28,6 +52,8 @@ import org.junit.Test;
  */
 public class RedisRegistryTest {
 
+    private static final Logger logger = LoggerFactory.getLogger(RedisRegistryTest.class);
+
     String service = "com.alibaba.dubbo.test.injvmServie";
     URL registryUrl = URL.valueOf("redis://239.255.255.255/");
     URL serviceUrl = URL.valueOf("redis://redis/" + service
@@ -92,4 +118,250 @@ public class RedisRegistryTest {
 
     }
 
+    @Test
+    public void testUrlCacheInternsParsedUrls() {
+        RedisRegistry.UrlCache cache = new RedisRegistry.UrlCache(2);
+        String full = serviceUrl.toFullString();
+        URL parsed = cache.valueOf(full);
+        assertSame(parsed, cache.valueOf(full));
+        assertEquals(full, cache.toFullString(parsed));
+
+        // 格式化过的URL同样会被后续解析复用
+        assertEquals(consumerUrl.toFullString(), cache.toFullString(consumerUrl));
+        assertSame(consumerUrl, cache.valueOf(consumerUrl.toFullString()));
+
+        cache.valueOf("dubbo://10.20.30.40:20880/" + service);
+        assertEquals(2, cache.size());
+        assertNotSame(parsed, cache.valueOf(full));
+    }
+
+    @Test
+    public void testUrlCacheStaysBoundedUnderConcurrentUse() throws Exception {
+        final RedisRegistry.UrlCache cache = new RedisRegistry.UrlCache(100);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < 4; t++) {
+            final int seed = t;
+            Thread thread = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        for (int i = 0; i < 10000; i++) {
+                            String full = "dubbo://10.20.30." + ((i * 31 + seed) % 300) + ":20880/" + service;
+                            assertEquals(full, cache.valueOf(full).toFullString());
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+        assertTrue(cache.size() <= 100);
+    }
+
+    @Test
+    public void testNotifyProvidersThroughEmbeddedRedis() throws Exception {
+        EmbeddedRedis redis = new EmbeddedRedis();
+        RedisRegistry provider = new RedisRegistry(URL.valueOf("redis://127.0.0.1:" + redis.getPort()));
+        RedisRegistry consumer = new RedisRegistry(URL.valueOf("redis://127.0.0.1:" + redis.getPort()));
+        try {
+            URL providerUrl = URL.valueOf("dubbo://10.20.30.40:20880/" + service + "?methods=test1,test2");
+            URL subscribeUrl = URL.valueOf("consumer://10.20.30.41/" + service + "?category=providers&check=false");
+            final AtomicReference<List<URL>> notified = new AtomicReference<List<URL>>();
+            consumer.subscribe(subscribeUrl, new NotifyListener() {
+                public void notify(List<URL> urls) {
+                    notified.set(urls);
+                }
+            });
+            // 事件只推送给已订阅的连接
+            assertTrue(redis.waitForSubscriptions(1, 5000));
+            provider.register(providerUrl);
+            assertTrue(waitFor(notified, "dubbo"));
+
+            provider.unregister(providerUrl);
+            assertTrue(waitFor(notified, Constants.EMPTY_PROTOCOL));
+            assertNull(redis.getCommandCounts().get("KEYS"));
+        } finally {
+            provider.destroy();
+            consumer.destroy();
+            redis.close();
+        }
+    }
+
+    @Test
+    public void testFindUnindexedKeysThroughEmbeddedRedis() throws Exception {
+        EmbeddedRedis redis = new EmbeddedRedis();
+        RedisRegistry consumer = new RedisRegistry(URL.valueOf("redis://127.0.0.1:" + redis.getPort()));
+        RedisRegistry admin = new RedisRegistry(URL.valueOf("redis://127.0.0.1:" + redis.getPort()));
+        Jedis jedis = new Jedis("127.0.0.1", redis.getPort());
+        try {
+            // 旧版本提供者只写入分类键，不维护索引；键数超过一页SCAN
+            String expire = String.valueOf(System.currentTimeMillis() + 60000);
+            Pipeline pipeline = jedis.pipelined();
+            for (int i = 0; i < 1500; i++) {
+                pipeline.hset("/dubbo/" + service + i + "/providers", "dubbo://10.20.30." + i % 250 + ":20880/" + service + i, expire);
+            }
+            pipeline.hset("/dubbo/" + service + "/providers", "dubbo://10.20.30.40:20880/" + service + "?methods=test1,test2", expire);
+            pipeline.sync();
+
+            URL subscribeUrl = URL.valueOf("consumer://10.20.30.41/" + service + "?category=providers&check=false");
+            final AtomicReference<List<URL>> notified = new AtomicReference<List<URL>>();
+            consumer.subscribe(subscribeUrl, new NotifyListener() {
+                public void notify(List<URL> urls) {
+                    notified.set(urls);
+                }
+            });
+            assertTrue(waitFor(notified, "dubbo"));
+            assertTrue(jedis.smembers("/dubbo.index/" + service).contains("/dubbo/" + service + "/providers"));
+
+            URL adminUrl = URL.valueOf("admin://10.20.30.42/*?interface=*&category=providers&check=false");
+            final Set<String> services = Collections.synchronizedSet(new HashSet<String>());
+            admin.subscribe(adminUrl, new NotifyListener() {
+                public void notify(List<URL> urls) {
+                    for (URL url : urls) {
+                        if ("dubbo".equals(url.getProtocol())) {
+                            services.add(url.getServiceInterface());
+                        }
+                    }
+                }
+            });
+            assertEquals(1501, services.size());
+            assertTrue(redis.getCommandCounts().get("SCAN") > 1);
+            assertTrue(jedis.smembers("/dubbo.index").contains("/dubbo/" + service + "1499"));
+            assertNull(redis.getCommandCounts().get("KEYS"));
+        } finally {
+            jedis.close();
+            consumer.destroy();
+            admin.destroy();
+            redis.close();
+        }
+    }
+
+    private static boolean waitFor(AtomicReference<List<URL>> notified, String protocol) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            List<URL> urls = notified.get();
+            if (urls != null && urls.size() == 1 && protocol.equals(urls.get(0).getProtocol())) {
+                return true;
+            }
+            Thread.sleep(10);
+        }
+        return false;
+    }
+
+    /**
+     * 模拟N个提供者与M个消费者反复注册/注销，输出通知传播延迟与Redis命令数。
+     * 参数: -Dredis.bench.providers, -Dredis.bench.consumers, -Dredis.bench.services, -Dredis.bench.rounds
+     */
+    @Ignore("benchmark, run manually")
+    @Test
+    public void benchmarkRegistryChurn() throws Exception {
+        int providers = Integer.getInteger("redis.bench.providers", 50);
+        int consumers = Integer.getInteger("redis.bench.consumers", 10);
+        int services = Integer.getInteger("redis.bench.services", 5);
+        int rounds = Integer.getInteger("redis.bench.rounds", 5);
+        EmbeddedRedis redis = new EmbeddedRedis();
+        URL registryUrl = URL.valueOf("redis://127.0.0.1:" + redis.getPort());
+        final ConcurrentMap<String, Long> registeredAt = new ConcurrentHashMap<String, Long>();
+        final List<Long> latencies = Collections.synchronizedList(new ArrayList<Long>());
+        final AtomicLong visible = new AtomicLong();
+        List<RedisRegistry> registries = new ArrayList<RedisRegistry>();
+        try {
+            for (int c = 0; c < consumers; c++) {
+                RedisRegistry registry = new RedisRegistry(registryUrl);
+                registries.add(registry);
+                for (int s = 0; s < services; s++) {
+                    URL subscribeUrl = URL.valueOf("consumer://10.1.0." + c + "/" + service + s + "?category=providers&check=false");
+                    registry.subscribe(subscribeUrl, new NotifyListener() {
+                        private final Set<String> seen = new HashSet<String>();
+
+                        public synchronized void notify(List<URL> urls) {
+                            long now = System.nanoTime();
+                            Set<String> current = new HashSet<String>();
+                            for (URL url : urls) {
+                                if (!Constants.EMPTY_PROTOCOL.equals(url.getProtocol())) {
+                                    current.add(url.toFullString());
+                                }
+                            }
+                            for (String url : current) {
+                                Long start = registeredAt.get(url);
+                                if (!seen.contains(url) && start != null) {
+                                    latencies.add(now - start);
+                                }
+                            }
+                            visible.addAndGet(current.size() - seen.size());
+                            seen.clear();
+                            seen.addAll(current);
+                        }
+                    });
+                }
+            }
+            assertTrue(redis.waitForSubscriptions(consumers * services, 60000));
+            List<RedisRegistry> providerRegistries = new ArrayList<RedisRegistry>();
+            List<URL> providerUrls = new ArrayList<URL>();
+            for (int p = 0; p < providers; p++) {
+                RedisRegistry registry = new RedisRegistry(registryUrl);
+                registries.add(registry);
+                providerRegistries.add(registry);
+                providerUrls.add(URL.valueOf("dubbo://10.2." + p / 250 + "." + p % 250 + ":20880/" + service + (p % services) + "?methods=test1,test2"));
+            }
+            long expected = (long) providers * consumers;
+            for (int round = 0; round <= rounds; round++) {
+                if (round > 0) {
+                    // 先全部注销，等待消费者收到空列表
+                    for (int p = 0; p < providers; p++) {
+                        providerRegistries.get(p).unregister(providerUrls.get(p));
+                    }
+                    long deadline = System.currentTimeMillis() + 60000;
+                    while (visible.get() > 0 && System.currentTimeMillis() < deadline) {
+                        Thread.sleep(5);
+                    }
+                }
+                latencies.clear();
+                Map<String, Long> before = redis.getCommandCounts();
+                long start = System.currentTimeMillis();
+                for (int p = 0; p < providers; p++) {
+                    URL url = providerUrls.get(p);
+                    registeredAt.put(url.toFullString(), System.nanoTime());
+                    providerRegistries.get(p).register(url);
+                }
+                // 等待所有消费者看到全部提供者
+                while (visible.get() < expected || latencies.size() < expected) {
+                    if (System.currentTimeMillis() - start > 60000) {
+                        break;
+                    }
+                    Thread.sleep(5);
+                }
+                long elapsed = System.currentTimeMillis() - start;
+                List<Long> sorted = new ArrayList<Long>(latencies);
+                Collections.sort(sorted);
+                Map<String, Long> commands = redis.getCommandCounts();
+                for (Map.Entry<String, Long> entry : before.entrySet()) {
+                    commands.put(entry.getKey(), commands.get(entry.getKey()) - entry.getValue());
+                }
+                logger.info((round == 0 ? "register" : "churn " + round) + ": " + elapsed + "ms, notifications " + sorted.size() + "/" + expected
+                        + ", latency p50 " + percentile(sorted, 50) / 1000 + "us, p99 " + percentile(sorted, 99) / 1000
+                        + "us, max " + percentile(sorted, 100) / 1000 + "us, commands " + commands);
+            }
+        } finally {
+            for (RedisRegistry registry : registries) {
+                registry.destroy();
+            }
+            redis.close();
+        }
+    }
+
+    private static long percentile(List<Long> sorted, int percentile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index));
+    }
+
 }
\ No newline at end of file
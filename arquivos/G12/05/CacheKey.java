@@ -15,8 +15,13 @@
  */
 package org.apache.ibatis.cache;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.ibatis.reflection.ArrayUtil;
@@ -28,23 +33,43 @@ public class CacheKey implements Cloneable, Serializable {
 
   private static final long serialVersionUID = 1146682552656046210L;
 
-  public static final CacheKey NULL_CACHE_KEY = new NullCacheKey();
+  // the serialized form is still the one of the list based implementation, so keys are exchanged
+  // with older versions both ways. sealed is an addition, which older versions skip
+  private static final ObjectStreamField[] serialPersistentFields = {
+      new ObjectStreamField("multiplier", int.class),
+      new ObjectStreamField("hashcode", int.class),
+      new ObjectStreamField("checksum", long.class),
+      new ObjectStreamField("count", int.class),
+      new ObjectStreamField("updateList", List.class),
+      new ObjectStreamField("sealed", boolean.class)
+  };
+
+  public static final CacheKey NULL_CACHE_KEY = new NullCacheKey().seal();
 
   private static final int DEFAULT_MULTIPLYER = 37;
   private static final int DEFAULT_HASHCODE = 17;
+  private static final int DEFAULT_CAPACITY = 8;
+
+  // markers for components stored unboxed in primitives array, never serialized
+  private static final Object INT = new Object();
+  private static final Object LONG = new Object();
 
-  private final int multiplier;
+  // not final, restored by readObject
+  private int multiplier;
   private int hashcode;
   private long checksum;
   private int count;
-  // 8/21/2017 - Sonarlint flags this as needing to be marked transient.  While true if content is not serializable, this is not always true and thus should not be marked transient.
-  private List<Object> updateList;
+  private transient Object[] updateArray;
+  private transient long[] primitives;
+  private transient boolean sealed;
+  // arrays are shared with the key this one was cloned from, and must be copied before next update
+  private transient boolean shared;
 
   public CacheKey() {
     this.hashcode = DEFAULT_HASHCODE;
     this.multiplier = DEFAULT_MULTIPLYER;
     this.count = 0;
-    this.updateList = new ArrayList<Object>();
+    this.updateArray = new Object[DEFAULT_CAPACITY];
   }
 
   public CacheKey(Object[] objects) {
@@ -53,25 +78,126 @@ public class CacheKey implements Cloneable, Serializable {
   }
 
   public int getUpdateCount() {
-    return updateList.size();
+    return count;
   }
 
   public void update(Object object) {
     int baseHashCode = object == null ? 1 : ArrayUtil.hashCode(object); 
+    append(baseHashCode, object, 0);
+  }
+
+  /**
+   * Same as update(Integer.valueOf(value)), without boxing.
+   */
+  public void update(int value) {
+    append(value, INT, value);
+  }
+
+  /**
+   * Same as update(Long.valueOf(value)), without boxing.
+   */
+  public void update(long value) {
+    append((int) (value ^ (value >>> 32)), LONG, value);
+  }
+
+  /**
+   * Same as update(Character.valueOf(value)). Declared so that a char is not widened to int by update(int).
+   */
+  public void update(char value) {
+    update((Object) Character.valueOf(value));
+  }
+
+  /**
+   * Same as update(Short.valueOf(value)). Declared so that a short is not widened to int by update(int).
+   */
+  public void update(short value) {
+    update((Object) Short.valueOf(value));
+  }
+
+  /**
+   * Same as update(Byte.valueOf(value)). Declared so that a byte is not widened to int by update(int).
+   */
+  public void update(byte value) {
+    update((Object) Byte.valueOf(value));
+  }
+
+  public void updateAll(Object[] objects) {
+    for (Object o : objects) {
+      update(o);
+    }
+  }
+
+  /**
+   * Makes this key immutable: any further update fails, and clones share its storage until they are updated.
+   *
+   * @return this key
+   */
+  public CacheKey seal() {
+    if (!sealed) {
+      updateArray = Arrays.copyOf(updateArray, count);
+      if (primitives != null) {
+        primitives = Arrays.copyOf(primitives, count);
+      }
+      sealed = true;
+    }
+    return this;
+  }
+
+  public boolean isSealed() {
+    return sealed;
+  }
+
+  private void append(int baseHashCode, Object object, long primitive) {
+    if (sealed) {
+      throw new CacheException("Not allowed to update a sealed CacheKey instance.");
+    }
+    if (shared || count == updateArray.length) {
+      int capacity = count == updateArray.length ? Math.max(DEFAULT_CAPACITY, count * 2) : updateArray.length;
+      updateArray = Arrays.copyOf(updateArray, capacity);
+      if (primitives != null) {
+        primitives = Arrays.copyOf(primitives, capacity);
+      }
+      shared = false;
+    }
+    if (object == INT || object == LONG) {
+      if (primitives == null) {
+        primitives = new long[updateArray.length];
+      }
+      primitives[count] = primitive;
+    }
+    updateArray[count] = object;
 
     count++;
     checksum += baseHashCode;
     baseHashCode *= count;
 
     hashcode = multiplier * hashcode + baseHashCode;
+  }
 
-    updateList.add(object);
+  /**
+   * Returns component at given position, boxing it if it was stored unboxed.
+   */
+  private Object componentAt(int index) {
+    Object object = updateArray[index];
+    if (object == INT) {
+      return Integer.valueOf((int) primitives[index]);
+    }
+    if (object == LONG) {
+      return Long.valueOf(primitives[index]);
+    }
+    return object;
   }
 
-  public void updateAll(Object[] objects) {
-    for (Object o : objects) {
-      update(o);
+  private boolean componentEquals(int index, CacheKey that) {
+    Object thisObject = updateArray[index];
+    Object thatObject = that.updateArray[index];
+    if (thisObject == thatObject && (thisObject == INT || thisObject == LONG)) {
+      return primitives[index] == that.primitives[index];
+    }
+    if (thisObject == INT || thisObject == LONG || thatObject == INT || thatObject == LONG) {
+      return ArrayUtil.equals(componentAt(index), that.componentAt(index));
     }
+    return ArrayUtil.equals(thisObject, thatObject);
   }
 
   @Override
@@ -95,10 +221,8 @@ public class CacheKey implements Cloneable, Serializable {
       return false;
     }
 
-    for (int i = 0; i < updateList.size(); i++) {
-      Object thisObject = updateList.get(i);
-      Object thatObject = cacheKey.updateList.get(i);
-      if (!ArrayUtil.equals(thisObject, thatObject)) {
+    for (int i = 0; i < count; i++) {
+      if (!componentEquals(i, cacheKey)) {
         return false;
       }
     }
@@ -113,8 +237,8 @@ public class CacheKey implements Cloneable, Serializable {
   @Override
   public String toString() {
     StringBuilder returnValue = new StringBuilder().append(hashcode).append(':').append(checksum);
-    for (Object object : updateList) {
-      returnValue.append(':').append(ArrayUtil.toString(object));
+    for (int i = 0; i < count; i++) {
+      returnValue.append(':').append(ArrayUtil.toString(componentAt(i)));
     }
     return returnValue.toString();
   }
@@ -122,8 +246,38 @@ public class CacheKey implements Cloneable, Serializable {
   @Override
   public CacheKey clone() throws CloneNotSupportedException {
     CacheKey clonedCacheKey = (CacheKey) super.clone();
-    clonedCacheKey.updateList = new ArrayList<Object>(updateList);
+    // storage is copied lazily, on the first update of either key
+    clonedCacheKey.sealed = false;
+    clonedCacheKey.shared = true;
+    shared = !sealed;
     return clonedCacheKey;
   }
 
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    List<Object> updateList = new ArrayList<Object>(count);
+    for (int i = 0; i < count; i++) {
+      updateList.add(componentAt(i));
+    }
+    ObjectOutputStream.PutField fields = out.putFields();
+    fields.put("multiplier", multiplier);
+    fields.put("hashcode", hashcode);
+    fields.put("checksum", checksum);
+    fields.put("count", count);
+    fields.put("updateList", updateList);
+    fields.put("sealed", sealed);
+    out.writeFields();
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    ObjectInputStream.GetField fields = in.readFields();
+    multiplier = fields.get("multiplier", DEFAULT_MULTIPLYER);
+    hashcode = fields.get("hashcode", DEFAULT_HASHCODE);
+    checksum = fields.get("checksum", 0L);
+    @SuppressWarnings("unchecked")
+    List<Object> updateList = (List<Object>) fields.get("updateList", null);
+    updateArray = updateList == null ? new Object[DEFAULT_CAPACITY] : updateList.toArray();
+    count = updateList == null ? 0 : updateList.size();
+    sealed = fields.get("sealed", false);
+  }
+
 }
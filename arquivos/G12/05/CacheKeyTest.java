@@ -28,7 +28,9 @@ import java.io.IOException;
 import java.io.NotSerializableException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
 import java.util.Date;
+import java.util.List;
 
 public class CacheKeyTest {
 
@@ -43,4 +45,94 @@ public class CacheKeyTest {
     assertFalse(key1.toString().equals(key2.toString()));
   }
 
+  @Test
+  public void shouldTestCacheKeysEqualForPrimitiveAndBoxedUpdates() {
+    CacheKey key1 = new CacheKey();
+    key1.update(1);
+    key1.update(2L);
+    key1.update("hello");
+    CacheKey key2 = new CacheKey(new Object[] { 1, 2L, "hello" });
+    assertEquals(key1, key2);
+    assertEquals(key2, key1);
+    assertEquals(key1.hashCode(), key2.hashCode());
+    assertEquals(key1.toString(), key2.toString());
+
+    CacheKey key3 = new CacheKey(new Object[] { 1L, 2, "hello" });
+    assertFalse(key1.equals(key3));
+  }
+
+  @Test
+  public void shouldGrowBeyondInitialCapacity() {
+    CacheKey key1 = new CacheKey();
+    CacheKey key2 = new CacheKey();
+    for (int i = 0; i < 100; i++) {
+      key1.update(i);
+      key2.update(Integer.valueOf(i));
+    }
+    assertEquals(100, key1.getUpdateCount());
+    assertEquals(key1, key2);
+  }
+
+  @Test(expected = CacheException.class)
+  public void shouldNotUpdateSealedCacheKey() {
+    CacheKey key = new CacheKey(new Object[] { 1, "hello" }).seal();
+    key.update(2);
+  }
+
+  @Test
+  public void shouldKeepClonesIndependent() throws Exception {
+    CacheKey key = new CacheKey(new Object[] { 1, "hello" }).seal();
+    CacheKey clone = key.clone();
+    assertEquals(key, clone);
+    assertFalse(clone.isSealed());
+
+    clone.update(2);
+    assertEquals(2, key.getUpdateCount());
+    assertEquals(3, clone.getUpdateCount());
+    assertFalse(key.equals(clone));
+
+    CacheKey cloneOfClone = clone.clone();
+    clone.update("a");
+    cloneOfClone.update("b");
+    assertFalse(clone.equals(cloneOfClone));
+    assertEquals(new CacheKey(new Object[] { 1, "hello", 2, "b" }), cloneOfClone);
+  }
+
+  @Test
+  public void shouldSerializeUnboxedComponents() throws Exception {
+    CacheKey key = new CacheKey();
+    key.update(1);
+    key.update(2L);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(key);
+    out.close();
+    ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    CacheKey restored = (CacheKey) in.readObject();
+    assertEquals(key, restored);
+    assertEquals(new CacheKey(new Object[] { 1, 2L }), restored);
+  }
+
+  @Test
+  public void shouldKeepSerializedFormOfListBasedKeys() throws Exception {
+    // streams written by earlier versions carry these fields under the same serialVersionUID
+    ObjectStreamClass descriptor = ObjectStreamClass.lookup(CacheKey.class);
+    assertEquals(1146682552656046210L, descriptor.getSerialVersionUID());
+    assertEquals(List.class, descriptor.getField("updateList").getType());
+    assertEquals(int.class, descriptor.getField("multiplier").getType());
+    assertEquals(int.class, descriptor.getField("hashcode").getType());
+    assertEquals(long.class, descriptor.getField("checksum").getType());
+    assertEquals(int.class, descriptor.getField("count").getType());
+  }
+
+  @Test
+  public void shouldNotWidenSmallPrimitivesToInt() {
+    CacheKey key = new CacheKey();
+    key.update('a');
+    key.update((short) 1);
+    key.update((byte) 2);
+    assertEquals(new CacheKey(new Object[] { 'a', (short) 1, (byte) 2 }), key);
+    assertFalse(key.equals(new CacheKey(new Object[] { 97, 1, 2 })));
+  }
+
 }